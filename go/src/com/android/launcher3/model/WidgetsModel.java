@@ -27,6 +27,7 @@ import com.android.launcher3.icons.ComponentWithLabelAndIcon;
 import com.android.launcher3.model.data.PackageItemInfo;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -59,6 +60,15 @@ public class WidgetsModel {
         return EMPTY_WIDGET_LIST;
     }
 
+    /**
+     * Returns the changes to the list returned by {@link #getWidgetsListForPicker}, or null if
+     * {@link #getWidgetsListForPicker} must be used instead.
+     */
+    @Nullable
+    public synchronized WidgetsListDiff getWidgetsListDiffForPicker(Context context) {
+        return null;
+    }
+
     /** Returns a mapping of packages to their widgets without static shortcuts. */
     public synchronized Map<PackageUserKey, List<WidgetItem>> getAllWidgetsWithoutShortcuts() {
         return Map.of();
@@ -23,6 +23,12 @@ package com.android.launcher3.util;
  */
 public abstract class AbsGridOccupancy {
 
+    /**
+     * Returns true if the region of the grid starting at (x, y) with the given span is within
+     * the grid and has no occupied cell.
+     */
+    public abstract boolean isRegionVacant(int x, int y, int spanX, int spanY);
+
     /**
      * Find the first vacant cell, if there is one.
      *
@@ -32,19 +38,11 @@ public abstract class AbsGridOccupancy {
      *
      * @return true if a vacant cell was found
      */
-    protected boolean findVacantCell(int[] vacantOut, boolean[][] cells, int countX, int countY,
+    protected boolean findVacantCell(int[] vacantOut, int countX, int countY,
             int spanX, int spanY) {
         for (int y = 0; (y + spanY) <= countY; y++) {
             for (int x = 0; (x + spanX) <= countX; x++) {
-                boolean available = !cells[x][y];
-                out:
-                for (int i = x; i < x + spanX; i++) {
-                    for (int j = y; j < y + spanY; j++) {
-                        available = available && !cells[i][j];
-                        if (!available) break out;
-                    }
-                }
-                if (available) {
+                if (isRegionVacant(x, y, spanX, spanY)) {
                     vacantOut[0] = x;
                     vacantOut[1] = y;
                     return true;
@@ -44,14 +44,15 @@ public class HotseatPredictionModel {
     public static Bundle convertDataModelToAppTargetBundle(Context context, BgDataModel dataModel) {
         Bundle bundle = new Bundle();
         ArrayList<AppTargetEvent> events = new ArrayList<>();
-        ArrayList<ItemInfo> workspaceItems = dataModel.getAllWorkspaceItems();
+        BgDataModel.Snapshot snapshot = dataModel.getSnapshot();
+        ArrayList<ItemInfo> workspaceItems = snapshot.getAllWorkspaceItems();
         for (ItemInfo item : workspaceItems) {
             AppTarget target = getAppTargetFromItemInfo(context, item);
             if (target != null && !isTrackedForHotseatPrediction(item)) continue;
             events.add(wrapAppTargetWithItemLocation(target, AppTargetEvent.ACTION_PIN, item));
         }
         ArrayList<AppTarget> currentTargets = new ArrayList<>();
-        FixedContainerItems hotseatItems = dataModel.extraItems.get(CONTAINER_HOTSEAT_PREDICTION);
+        FixedContainerItems hotseatItems = snapshot.getExtraItems(CONTAINER_HOTSEAT_PREDICTION);
         if (hotseatItems != null) {
             for (ItemInfo itemInfo : hotseatItems.items) {
                 AppTarget target = getAppTargetFromItemInfo(context, itemInfo);
@@ -108,7 +108,7 @@ public class PredictionUpdateTask extends BaseModelUpdateTask {
             fci.items.add(itemInfo);
         }
 
-        dataModel.extraItems.put(fci.containerId, fci);
+        dataModel.putExtraItems(fci);
         bindExtraContainerItems(fci);
         usersForChangedShortcuts.forEach(
                 u -> dataModel.updateShortcutPinnedState(app.getContext(), u));
@@ -63,7 +63,6 @@ import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.shortcuts.ShortcutKey;
-import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.PersistedItemArray;
 import com.android.quickstep.logging.SettingsChangeLogger;
 import com.android.quickstep.logging.StatsLogCompatManager;
@@ -122,16 +121,16 @@ public class QuickstepModelDelegate extends ModelDelegate {
                 mApp, ums, pinnedShortcuts, mIDP.numDatabaseAllAppsColumns);
         FixedContainerItems allAppsItems = new FixedContainerItems(mAllAppsState.containerId,
                 mAllAppsState.storage.read(mApp.getContext(), allAppsFactory, ums.allUsers::get));
-        mDataModel.extraItems.put(mAllAppsState.containerId, allAppsItems);
+        mDataModel.putExtraItems(allAppsItems);
 
         WorkspaceItemFactory hotseatFactory =
                 new WorkspaceItemFactory(mApp, ums, pinnedShortcuts, mIDP.numDatabaseHotseatIcons);
         FixedContainerItems hotseatItems = new FixedContainerItems(mHotseatState.containerId,
                 mHotseatState.storage.read(mApp.getContext(), hotseatFactory, ums.allUsers::get));
-        mDataModel.extraItems.put(mHotseatState.containerId, hotseatItems);
+        mDataModel.putExtraItems(hotseatItems);
 
         // Widgets prediction isn't used frequently. And thus, it is not persisted on disk.
-        mDataModel.extraItems.put(mWidgetsRecommendationState.containerId,
+        mDataModel.putExtraItems(
                 new FixedContainerItems(mWidgetsRecommendationState.containerId));
         mActive = true;
     }
@@ -160,13 +159,10 @@ public class QuickstepModelDelegate extends ModelDelegate {
                         elapsedTime));
             }
         } else {
-            IntSparseArrayMap<ItemInfo> itemsIdMap;
-            synchronized (mDataModel) {
-                itemsIdMap = mDataModel.itemsIdMap.clone();
-            }
+            BgDataModel.Snapshot snapshot = mDataModel.getSnapshot();
             InstanceId instanceId = new InstanceIdSequence().newInstanceId();
-            for (ItemInfo info : itemsIdMap) {
-                FolderInfo parent = getContainer(info, itemsIdMap);
+            for (ItemInfo info : snapshot.getAllItems()) {
+                FolderInfo parent = getContainer(info, snapshot);
                 StatsLogCompatManager.writeSnapshot(info.buildProto(parent), instanceId);
             }
             additionalSnapshotEvents(instanceId);
@@ -197,13 +193,10 @@ public class QuickstepModelDelegate extends ModelDelegate {
                     MODEL_EXECUTOR,
                     (i, eventList) -> {
                         InstanceId instanceId = new InstanceIdSequence().newInstanceId();
-                        IntSparseArrayMap<ItemInfo> itemsIdMap;
-                        synchronized (mDataModel) {
-                            itemsIdMap = mDataModel.itemsIdMap.clone();
-                        }
+                        BgDataModel.Snapshot snapshot = mDataModel.getSnapshot();
 
-                        for (ItemInfo info : itemsIdMap) {
-                            FolderInfo parent = getContainer(info, itemsIdMap);
+                        for (ItemInfo info : snapshot.getAllItems()) {
+                            FolderInfo parent = getContainer(info, snapshot);
                             LauncherAtom.ItemInfo itemInfo = info.buildProto(parent);
                             Log.d(TAG, itemInfo.toString());
                             StatsEvent statsEvent = StatsLogCompatManager.buildStatsEvent(itemInfo,
@@ -226,9 +219,9 @@ public class QuickstepModelDelegate extends ModelDelegate {
         }
     }
 
-    private static FolderInfo getContainer(ItemInfo info, IntSparseArrayMap<ItemInfo> itemsIdMap) {
+    private static FolderInfo getContainer(ItemInfo info, BgDataModel.Snapshot snapshot) {
         if (info.container > 0) {
-            ItemInfo containerInfo = itemsIdMap.get(info.container);
+            ItemInfo containerInfo = snapshot.getItem(info.container);
 
             if (!(containerInfo instanceof FolderInfo)) {
                 Log.e(TAG, String.format(
@@ -100,7 +100,7 @@ public final class WidgetsPredictionUpdateTask extends BaseModelUpdateTask {
                 }
             }
         }
-        dataModel.extraItems.put(mPredictorState.containerId, fixedContainerItems);
+        dataModel.putExtraItems(fixedContainerItems);
         bindExtraContainerItems(fixedContainerItems);
 
         // Don't store widgets prediction to disk because it is not used frequently.
@@ -64,6 +64,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.anim.AnimatorPlaybackController;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.logger.LauncherAtom;
@@ -120,6 +121,7 @@ public class TaskbarActivityContext extends BaseTaskbarContext {
     private final NavigationMode mNavMode;
     private final boolean mImeDrawsImeNavBar;
     private final ViewCache mViewCache = new ViewCache();
+    private final DotViewIndex mDotViewIndex = new DotViewIndex();
 
     private final boolean mIsSafeModeEnabled;
     private final boolean mIsUserSetupComplete;
@@ -387,6 +389,11 @@ public class TaskbarActivityContext extends BaseTaskbarContext {
         return getPopupDataProvider().getDotInfoForItem(info);
     }
 
+    @Override
+    public DotViewIndex getDotViewIndex() {
+        return mDotViewIndex;
+    }
+
     @NonNull
     @Override
     public PopupDataProvider getPopupDataProvider() {
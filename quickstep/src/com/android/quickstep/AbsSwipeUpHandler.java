@@ -91,6 +91,7 @@ import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.StatsLogger;
 import com.android.launcher3.statemanager.BaseState;
 import com.android.launcher3.statemanager.StatefulActivity;
+import com.android.launcher3.tracing.GestureStateProto;
 import com.android.launcher3.tracing.InputConsumerProto;
 import com.android.launcher3.tracing.SwipeHandlerProto;
 import com.android.launcher3.util.ActivityLifecycleCallbacksAdapter;
@@ -110,6 +111,7 @@ import com.android.quickstep.util.RecentsOrientedState;
 import com.android.quickstep.util.RectFSpringAnim;
 import com.android.quickstep.util.StaggeredWorkspaceAnim;
 import com.android.quickstep.util.SurfaceTransactionApplier;
+import com.android.quickstep.util.SwipeLatencyTracker;
 import com.android.quickstep.util.SwipePipToHomeAnimator;
 import com.android.quickstep.util.TaskViewSimulator;
 import com.android.quickstep.util.VibratorWrapper;
@@ -277,6 +279,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
 
     private final long mTouchTimeMs;
     private long mLauncherFrameDrawnTime;
+    private final SwipeLatencyTracker mLatencyTracker;
 
     private final Runnable mOnDeferredActivityLaunch = this::onDeferredActivityLaunch;
 
@@ -306,6 +309,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 }, new InputProxyHandlerFactory(mActivityInterface, mGestureState));
         mTaskAnimationManager = taskAnimationManager;
         mTouchTimeMs = touchTimeMs;
+        mLatencyTracker = new SwipeLatencyTracker(context, touchTimeMs);
         mContinuingLastGesture = continuingLastGesture;
         mQuickSwitchScaleScrollThreshold = context.getResources().getDimension(
                 R.dimen.quick_switch_scaling_scroll_threshold);
@@ -357,6 +361,8 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
 
         mGestureState.runOnceAtState(STATE_END_TARGET_ANIMATION_FINISHED,
                 this::continueComputingRecentsScrollIfNecessary);
+        mGestureState.runOnceAtState(STATE_END_TARGET_ANIMATION_FINISHED,
+                this::finishLatencyTracking);
         mGestureState.runOnceAtState(STATE_END_TARGET_ANIMATION_FINISHED
                         | STATE_RECENTS_SCROLLING_FINISHED,
                 this::onSettledOnEndTarget);
@@ -749,6 +755,18 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
         applyScrollAndTransform();
 
         updateLauncherTransitionProgress();
+        trackQuickSwitchThumbnail();
+    }
+
+    private void trackQuickSwitchThumbnail() {
+        if (mRecentsView == null) {
+            return;
+        }
+        TaskView centermostTask = mRecentsView.getTaskViewNearestToCenterOfScreen();
+        if (centermostTask != null && centermostTask != mRecentsView.getRunningTaskView()) {
+            RecentsModel.INSTANCE.get(mContext).getThumbnailPreloader()
+                    .onQuickSwitchFrame(centermostTask.getThumbnail().hasThumbnail());
+        }
     }
 
     private void updateLauncherTransitionProgress() {
@@ -1003,7 +1021,8 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 }
                 break;
         }
-        ActiveGestureLog.INSTANCE.addLog("onSettledOnEndTarget " + endTarget);
+        ActiveGestureLog.INSTANCE.addLog(ActiveGestureLog.EVENT_SETTLED_ON_END_TARGET,
+                endTarget == null ? -1 : endTarget.ordinal());
     }
 
     /** @return Whether this was the task we were waiting to appear, and thus handled it. */
@@ -1615,6 +1634,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
     }
 
     private void invalidateHandler() {
+        finishLatencyTracking();
         if (!ENABLE_QUICKSTEP_LIVE_TILE.get() || !mActivityInterface.isInLiveTileMode()
                 || mGestureState.getEndTarget() != RECENTS) {
             mInputConsumerProxy.destroy();
@@ -2000,6 +2020,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
         boolean notSwipingToHome = mRecentsAnimationTargets != null
                 && mGestureState.getEndTarget() != HOME;
         boolean setRecentsScroll = mRecentsViewScrollLinked && mRecentsView != null;
+        long applyStartTime = System.nanoTime();
         for (RemoteTargetHandle remoteHandle : mRemoteTargetHandles) {
             AnimatorControllerWithResistance playbackController =
                     remoteHandle.getPlaybackController();
@@ -2016,9 +2037,20 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 taskViewSimulator.apply(remoteHandle.getTransformParams());
             }
         }
+        if (notSwipingToHome && mRemoteTargetHandles.length > 0) {
+            mLatencyTracker.onTransformApplied(
+                    mRemoteTargetHandles[0].getTransformParams().getSyncTransactionApplier(),
+                    applyStartTime);
+        }
         ProtoTracer.INSTANCE.get(mContext).scheduleFrameUpdate();
     }
 
+    private void finishLatencyTracking() {
+        mLatencyTracker.finish(mGestureState.getEndTarget() == null
+                ? GestureStateProto.GestureEndTarget.UNSET
+                : mGestureState.getEndTarget().protoEndTarget);
+    }
+
     // Scaling of RecentsView during quick switch based on amount of recents scroll
     private float getScaleProgressDueToScroll() {
         if (mActivity == null || !mActivity.getDeviceProfile().isTablet || mRecentsView == null
@@ -20,14 +20,18 @@ import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.annotation.TargetApi;
 import android.app.ActivityManager;
+import android.app.ActivityManager.RunningTaskInfo;
 import android.os.Build;
 import android.os.Process;
 import android.os.RemoteException;
+import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.quickstep.util.GroupTask;
+import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.SplitConfigurationOptions;
 import com.android.systemui.shared.recents.model.Task;
@@ -43,6 +47,9 @@ import java.util.function.Consumer;
 
 /**
  * Manages the recent task list from the system, caching it as necessary.
+ *
+ * When the task list changes, the list is fetched again from the system, and the tasks which did
+ * not change since the cached list was loaded are reused rather than created again.
  */
 @TargetApi(Build.VERSION_CODES.R)
 public class RecentTasksList {
@@ -62,6 +69,15 @@ public class RecentTasksList {
     private TaskLoadResult mResultsBg = INVALID_RESULT;
     private TaskLoadResult mResultsUi = INVALID_RESULT;
 
+    // Tasks whose description changed since the last load of mResultsBg
+    private IntSet mUpdatedTaskIds = new IntSet();
+
+    // Load statistics, only updated on UI_HELPER_EXECUTOR
+    private int mBinderCallCount;
+    private int mGroupTaskBuildCount;
+    private int mFullReloadCount;
+    private int mIncrementalReloadCount;
+
     public RecentTasksList(LooperExecutor mainThreadExecutor,
             KeyguardManagerCompat keyguardManager, SystemUiProxy sysUiProxy) {
         mMainThreadExecutor = mainThreadExecutor;
@@ -121,7 +137,7 @@ public class RecentTasksList {
         mLoadingTasksInBackground = true;
         UI_HELPER_EXECUTOR.execute(() -> {
             if (!mResultsBg.isValidForRequest(requestLoadId, loadKeysOnly)) {
-                mResultsBg = loadTasksInBackground(Integer.MAX_VALUE, requestLoadId, loadKeysOnly);
+                mResultsBg = updateTasksInBackground(requestLoadId, loadKeysOnly);
             }
             TaskLoadResult loadResult = mResultsBg;
             mMainThreadExecutor.execute(() -> {
@@ -148,38 +164,126 @@ public class RecentTasksList {
         invalidateLoadedTasks();
     }
 
+    /**
+     * Called when the description of a task changes, which is not reflected by the other task
+     * info fields compared when reusing the previously loaded tasks.
+     */
+    public synchronized void onTaskDescriptionChanged(RunningTaskInfo taskInfo) {
+        mUpdatedTaskIds.add(taskInfo.taskId);
+        invalidateLoadedTasks();
+    }
+
     private synchronized void invalidateLoadedTasks() {
-        UI_HELPER_EXECUTOR.execute(() -> mResultsBg = INVALID_RESULT);
+        // mResultsBg is kept to reuse its unchanged tasks on the next load
         mResultsUi = INVALID_RESULT;
         mChangeId++;
     }
 
+    private synchronized IntSet takeUpdatedTaskIds() {
+        IntSet taskIds = mUpdatedTaskIds;
+        mUpdatedTaskIds = new IntSet();
+        return taskIds;
+    }
+
+    /**
+     * Loads all the recent tasks, reusing the tasks of the previous result which did not change.
+     */
+    private TaskLoadResult updateTasksInBackground(int requestId, boolean loadKeysOnly) {
+        // Descriptions updated after this point invalidate the result, and are reloaded next time
+        IntSet updatedTaskIds = takeUpdatedTaskIds();
+        TaskLoadResult previous = mResultsBg;
+        if (previous == INVALID_RESULT || (previous.mKeysOnly && !loadKeysOnly)) {
+            previous = null;
+        }
+        int buildCount = mGroupTaskBuildCount;
+        TaskLoadResult result = loadTasksInBackground(Integer.MAX_VALUE, requestId, loadKeysOnly,
+                previous, updatedTaskIds);
+        if (mGroupTaskBuildCount - buildCount < result.size()) {
+            mIncrementalReloadCount++;
+        } else {
+            mFullReloadCount++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a task loaded from {@param info} would match the {@param task} loaded
+     * previously, apart from its description.
+     */
+    private static boolean isSameTask(Task task, ActivityManager.RecentTaskInfo info) {
+        return task.key.id == info.taskId
+                && task.key.windowingMode == info.configuration.windowConfiguration
+                        .getWindowingMode()
+                && task.key.lastActiveTime == info.lastActiveTime;
+    }
+
+    private SparseBooleanArray createLockedUsersCache() {
+        return new SparseBooleanArray() {
+            @Override
+            public boolean get(int key) {
+                if (indexOfKey(key) < 0) {
+                    // Fill the cached locked state as we fetch
+                    mBinderCallCount++;
+                    put(key, mKeyguardManager.isDeviceLocked(key));
+                }
+                return super.get(key);
+            }
+        };
+    }
+
     /**
      * Loads and creates a list of all the recent tasks.
      */
     @VisibleForTesting
     TaskLoadResult loadTasksInBackground(int numTasks, int requestId, boolean loadKeysOnly) {
+        return loadTasksInBackground(numTasks, requestId, loadKeysOnly, null, new IntSet());
+    }
+
+    /**
+     * Loads and creates a list of the recent tasks, reusing the single tasks of {@param previous}
+     * which did not change since they were loaded.
+     *
+     * @param updatedTaskIds The tasks whose description changed since {@param previous} was
+     *                       loaded
+     */
+    @VisibleForTesting
+    TaskLoadResult loadTasksInBackground(int numTasks, int requestId, boolean loadKeysOnly,
+            @Nullable TaskLoadResult previous, IntSet updatedTaskIds) {
         int currentUserId = Process.myUserHandle().getIdentifier();
+        mBinderCallCount++;
         ArrayList<GroupedRecentTaskInfo> rawTasks =
                 mSysUiProxy.getRecentTasks(numTasks, currentUserId);
         // The raw tasks are given in most-recent to least-recent order, we need to reverse it
         Collections.reverse(rawTasks);
 
-        SparseBooleanArray tmpLockedUsers = new SparseBooleanArray() {
-            @Override
-            public boolean get(int key) {
-                if (indexOfKey(key) < 0) {
-                    // Fill the cached locked state as we fetch
-                    put(key, mKeyguardManager.isDeviceLocked(key));
+        SparseArray<Task> previousTasks = new SparseArray<>();
+        if (previous != null) {
+            for (GroupTask group : previous) {
+                // Split pairs are managed by the shell, they are always reloaded
+                if (!group.hasMultipleTasks()) {
+                    previousTasks.put(group.task1.key.id, group.task1);
                 }
-                return super.get(key);
             }
-        };
+        }
+
+        SparseBooleanArray tmpLockedUsers = createLockedUsersCache();
 
         TaskLoadResult allTasks = new TaskLoadResult(requestId, loadKeysOnly, rawTasks.size());
         for (GroupedRecentTaskInfo rawTask : rawTasks) {
             ActivityManager.RecentTaskInfo taskInfo1 = rawTask.mTaskInfo1;
             ActivityManager.RecentTaskInfo taskInfo2 = rawTask.mTaskInfo2;
+            Task previousTask = taskInfo2 == null ? previousTasks.get(taskInfo1.taskId) : null;
+            if (previousTask != null && isSameTask(previousTask, taskInfo1)
+                    && !updatedTaskIds.contains(taskInfo1.taskId)
+                    && (loadKeysOnly
+                            || previousTask.isLocked == tmpLockedUsers.get(taskInfo1.userId))) {
+                // Copied as the previous task can still be read by the UI thread
+                Task task = new Task(previousTask);
+                task.setLastSnapshotData(taskInfo1);
+                allTasks.add(new GroupTask(task, null, null));
+                continue;
+            }
+
             Task.TaskKey task1Key = new Task.TaskKey(taskInfo1);
             Task task1 = loadKeysOnly
                     ? new Task(task1Key)
@@ -198,6 +302,7 @@ public class RecentTasksList {
             final SplitConfigurationOptions.StagedSplitBounds launcherSplitBounds =
                     convertSplitBounds(rawTask.mStagedSplitBounds);
             allTasks.add(new GroupTask(task1, task2, launcherSplitBounds));
+            mGroupTaskBuildCount++;
         }
 
         return allTasks;
@@ -223,6 +328,10 @@ public class RecentTasksList {
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentTasksList:");
         writer.println(prefix + "  mChangeId=" + mChangeId);
+        writer.println(prefix + "  binderCalls=" + mBinderCallCount
+                + " groupTaskBuilds=" + mGroupTaskBuildCount
+                + " fullReloads=" + mFullReloadCount
+                + " incrementalReloads=" + mIncrementalReloadCount);
         writer.println(prefix + "  mResultsUi=[id=" + mResultsUi.mRequestId + ", tasks=");
         for (GroupTask task : mResultsUi) {
             writer.println(prefix + "    t1=" + task.task1.key.id
@@ -240,7 +349,8 @@ public class RecentTasksList {
         writer.println(prefix + "  ]");
     }
 
-    private static class TaskLoadResult extends ArrayList<GroupTask> {
+    @VisibleForTesting
+    static class TaskLoadResult extends ArrayList<GroupTask> {
 
         final int mRequestId;
 
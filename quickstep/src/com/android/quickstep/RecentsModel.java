@@ -69,6 +69,7 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
     private final RecentTasksList mTaskList;
     private final TaskIconCache mIconCache;
     private final TaskThumbnailCache mThumbnailCache;
+    private final TaskThumbnailPreloader mThumbnailPreloader;
 
     private RecentsModel(Context context) {
         mContext = context;
@@ -78,6 +79,7 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         IconProvider iconProvider = new IconProvider(context);
         mIconCache = new TaskIconCache(context, RECENTS_MODEL_EXECUTOR, iconProvider);
         mThumbnailCache = new TaskThumbnailCache(context, RECENTS_MODEL_EXECUTOR);
+        mThumbnailPreloader = new TaskThumbnailPreloader(mTaskList, mThumbnailCache);
 
         TaskStackChangeListeners.getInstance().registerTaskStackListener(this);
         iconProvider.registerIconChangeListener(this, MAIN_EXECUTOR.getHandler());
@@ -91,6 +93,10 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         return mThumbnailCache;
     }
 
+    public TaskThumbnailPreloader getThumbnailPreloader() {
+        return mThumbnailPreloader;
+    }
+
     /**
      * Fetches the list of recent tasks.
      *
@@ -177,6 +183,11 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         return true;
     }
 
+    @Override
+    public void onTaskDescriptionChanged(ActivityManager.RunningTaskInfo taskInfo) {
+        mTaskList.onTaskDescriptionChanged(taskInfo);
+    }
+
     @Override
     public void onTaskRemoved(int taskId) {
         Task.TaskKey stubKey = new Task.TaskKey(taskId, 0, new Intent(), null, 0, 0);
@@ -188,9 +199,9 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
         if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
             mThumbnailCache.getHighResLoadingState().setVisible(false);
         }
+        mThumbnailCache.onTrimMemory(level);
         if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
             // Clear everything once we reach a low-mem situation
-            mThumbnailCache.clear();
             mIconCache.clearCache();
         }
     }
@@ -225,6 +236,9 @@ public class RecentsModel implements IconChangeListener, TaskStackChangeListener
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentsModel:");
         mTaskList.dump("  ", writer);
+        mIconCache.dump("  ", writer);
+        mThumbnailCache.dump("  ", writer);
+        mThumbnailPreloader.dump("  ", writer);
     }
 
     /**
@@ -22,11 +22,13 @@ import android.app.ActivityManager;
 import android.app.ActivityManager.TaskDescription;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.LocaleList;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.SparseArray;
@@ -45,11 +47,14 @@ import com.android.launcher3.util.DisplayController.DisplayInfoChangeListener;
 import com.android.launcher3.util.DisplayController.Info;
 import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.util.CancellableTask;
-import com.android.quickstep.util.TaskKeyLruCache;
+import com.android.quickstep.util.ConcurrentTaskKeyCache;
+import com.android.quickstep.util.TaskIconDiskCache;
+import com.android.quickstep.util.TaskKeyCache;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 import com.android.systemui.shared.system.PackageManagerWrapper;
 
+import java.io.PrintWriter;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
@@ -62,7 +67,9 @@ public class TaskIconCache implements DisplayInfoChangeListener {
     private final AccessibilityManager mAccessibilityManager;
 
     private final Context mContext;
-    private final TaskKeyLruCache<TaskCacheEntry> mIconCache;
+    private final TaskKeyCache<TaskCacheEntry> mIconCache;
+    // Only accessed on mBgExecutor
+    private final TaskIconDiskCache mDiskCache;
     private final SparseArray<BitmapInfo> mDefaultIcons = new SparseArray<>();
     private BitmapInfo mDefaultIconBase = null;
 
@@ -79,9 +86,14 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         Resources res = context.getResources();
         int cacheSize = res.getInteger(R.integer.recentsIconCacheSize);
 
-        mIconCache = new TaskKeyLruCache<>(cacheSize);
+        // Read from the UI thread while the bg executor loads icons
+        mIconCache = new ConcurrentTaskKeyCache<>(cacheSize);
+        mDiskCache = new TaskIconDiskCache(context);
+        // Packages may have been updated while the process was not running
+        mBgExecutor.execute(mDiskCache::removeOutdatedEntries);
 
         DisplayController.INSTANCE.get(mContext).addChangeListener(this);
+        context.getSystemService(LauncherApps.class).registerCallback(new PackageCallback());
     }
 
     @Override
@@ -134,8 +146,11 @@ public class TaskIconCache implements DisplayInfoChangeListener {
     }
 
     void invalidateCacheEntries(String pkg, UserHandle handle) {
-        mBgExecutor.execute(() -> mIconCache.removeAll(key ->
-                pkg.equals(key.getPackageName()) && handle.getIdentifier() == key.userId));
+        mBgExecutor.execute(() -> {
+            mIconCache.removeAll(key ->
+                    pkg.equals(key.getPackageName()) && handle.getIdentifier() == key.userId);
+            mDiskCache.remove(pkg, handle.getIdentifier());
+        });
     }
 
     @WorkerThread
@@ -148,6 +163,9 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         TaskDescription desc = task.taskDescription;
         TaskKey key = task.key;
         ActivityInfo activityInfo = null;
+        // Icons and labels of the task component, loaded from or written to the disk cache
+        TaskIconDiskCache.Entry diskEntry = null;
+        boolean writeDiskEntry = false;
 
         // Create new cache entry
         entry = new TaskCacheEntry();
@@ -162,33 +180,65 @@ public class TaskIconCache implements DisplayInfoChangeListener {
                     desc.getPrimaryColor(),
                     false /* isInstantApp */).newIcon(mContext);
         } else {
-            activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
-                    key.getComponent(), key.userId);
-            if (activityInfo != null) {
-                BitmapInfo bitmapInfo = getBitmapInfo(
-                        mIconProvider.getIcon(activityInfo),
-                        key.userId,
-                        desc.getPrimaryColor(),
-                        activityInfo.applicationInfo.isInstantApp());
-                entry.icon = bitmapInfo.newIcon(mContext);
+            diskEntry = mDiskCache.get(key.getComponent(), key.userId, desc.getPrimaryColor(),
+                    getSystemState());
+            if (diskEntry != null) {
+                entry.icon = getBitmapInfo(diskEntry, key.userId).newIcon(mContext);
             } else {
-                entry.icon = getDefaultIcon(key.userId);
+                activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
+                        key.getComponent(), key.userId);
+                if (activityInfo != null) {
+                    boolean isInstantApp = activityInfo.applicationInfo.isInstantApp();
+                    BitmapInfo bitmapInfo = getBitmapInfo(
+                            mIconProvider.getIcon(activityInfo),
+                            key.userId,
+                            desc.getPrimaryColor(),
+                            isInstantApp);
+                    entry.icon = bitmapInfo.newIcon(mContext);
+                    diskEntry = new TaskIconDiskCache.Entry(
+                            bitmapInfo.icon, bitmapInfo.color, isInstantApp);
+                    writeDiskEntry = true;
+                } else {
+                    entry.icon = getDefaultIcon(key.userId);
+                }
             }
         }
 
         // Loading content descriptions if accessibility or low RAM recents is enabled.
         if (GO_LOW_RAM_RECENTS_ENABLED || mAccessibilityManager.isEnabled()) {
-            // Skip loading the content description if the activity no longer exists
-            if (activityInfo == null) {
-                activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
-                        key.getComponent(), key.userId);
-            }
-            if (activityInfo != null) {
-                entry.contentDescription = getBadgedContentDescription(
-                        activityInfo, task.key.userId, task.taskDescription);
+            if (diskEntry != null && diskEntry.hasLabels()) {
+                entry.contentDescription = getBadgedContentDescription(diskEntry.activityLabel,
+                        diskEntry.appLabel, diskEntry.badgedAppLabel, task.taskDescription);
+            } else {
+                // Skip loading the content description if the activity no longer exists
+                if (activityInfo == null) {
+                    activityInfo = PackageManagerWrapper.getInstance().getActivityInfo(
+                            key.getComponent(), key.userId);
+                }
+                if (activityInfo != null) {
+                    PackageManager pm = mContext.getPackageManager();
+                    String activityLabel = Utilities.trim(activityInfo.loadLabel(pm));
+                    String appLabel = Utilities.trim(activityInfo.applicationInfo.loadLabel(pm));
+                    String badgedAppLabel = key.userId != UserHandle.myUserId()
+                            ? pm.getUserBadgedLabel(appLabel, UserHandle.of(key.userId))
+                                    .toString()
+                            : appLabel;
+                    entry.contentDescription = getBadgedContentDescription(activityLabel,
+                            appLabel, badgedAppLabel, task.taskDescription);
+                    if (diskEntry != null) {
+                        diskEntry.activityLabel = activityLabel;
+                        diskEntry.appLabel = appLabel;
+                        diskEntry.badgedAppLabel = badgedAppLabel;
+                        writeDiskEntry = true;
+                    }
+                }
             }
         }
 
+        if (writeDiskEntry) {
+            mDiskCache.put(key.getComponent(), key.userId, desc.getPrimaryColor(),
+                    getSystemState(), diskEntry);
+        }
         mIconCache.put(task.key, entry);
         return entry;
     }
@@ -201,17 +251,12 @@ public class TaskIconCache implements DisplayInfoChangeListener {
                 desc.getIconFilename(), userId);
     }
 
-    private String getBadgedContentDescription(ActivityInfo info, int userId, TaskDescription td) {
-        PackageManager pm = mContext.getPackageManager();
+    private String getBadgedContentDescription(String activityLabel, String applicationLabel,
+            String badgedApplicationLabel, TaskDescription td) {
         String taskLabel = td == null ? null : Utilities.trim(td.getLabel());
         if (TextUtils.isEmpty(taskLabel)) {
-            taskLabel = Utilities.trim(info.loadLabel(pm));
+            taskLabel = activityLabel;
         }
-
-        String applicationLabel = Utilities.trim(info.applicationInfo.loadLabel(pm));
-        String badgedApplicationLabel = userId != UserHandle.myUserId()
-                ? pm.getUserBadgedLabel(applicationLabel, UserHandle.of(userId)).toString()
-                : applicationLabel;
         return applicationLabel.equals(taskLabel)
                 ? badgedApplicationLabel : badgedApplicationLabel + " " + taskLabel;
     }
@@ -252,6 +297,27 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         }
     }
 
+    @WorkerThread
+    private BitmapInfo getBitmapInfo(TaskIconDiskCache.Entry diskEntry, int userId) {
+        try (BaseIconFactory bif = getIconFactory()) {
+            return BitmapInfo.of(diskEntry.icon, diskEntry.color).withFlags(
+                    bif.getBitmapFlagOp(new IconOptions().setUser(UserHandle.of(userId))
+                            .setInstantApp(diskEntry.isInstantApp)));
+        }
+    }
+
+    /**
+     * Returns the state the icons and labels are created with, disk cache entries created with a
+     * different state are ignored.
+     */
+    @WorkerThread
+    private String getSystemState() {
+        return mIconProvider.getSystemIconState()
+                + "," + LocaleList.getDefault().toLanguageTags()
+                + "," + DisplayController.INSTANCE.get(mContext).getInfo().getDensityDpi()
+                + "," + mContext.getResources().getDimensionPixelSize(R.dimen.taskbar_icon_size);
+    }
+
     @WorkerThread
     private BaseIconFactory getIconFactory() {
         if (mIconFactory == null) {
@@ -268,6 +334,44 @@ public class TaskIconCache implements DisplayInfoChangeListener {
         mIconCache.evictAll();
     }
 
+    public void dump(String prefix, PrintWriter writer) {
+        mDiskCache.dump(prefix, writer);
+    }
+
+    private class PackageCallback extends LauncherApps.Callback {
+
+        @Override
+        public void onPackageRemoved(String packageName, UserHandle user) {
+            invalidateCacheEntries(packageName, user);
+        }
+
+        @Override
+        public void onPackageAdded(String packageName, UserHandle user) {
+            invalidateCacheEntries(packageName, user);
+        }
+
+        @Override
+        public void onPackageChanged(String packageName, UserHandle user) {
+            invalidateCacheEntries(packageName, user);
+        }
+
+        @Override
+        public void onPackagesAvailable(String[] packageNames, UserHandle user,
+                boolean replacing) {
+            for (String packageName : packageNames) {
+                invalidateCacheEntries(packageName, user);
+            }
+        }
+
+        @Override
+        public void onPackagesUnavailable(String[] packageNames, UserHandle user,
+                boolean replacing) {
+            for (String packageName : packageNames) {
+                invalidateCacheEntries(packageName, user);
+            }
+        }
+    }
+
     private static class TaskCacheEntry {
         public Drawable icon;
         public String contentDescription = "";
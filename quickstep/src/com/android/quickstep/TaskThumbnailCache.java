@@ -17,16 +17,18 @@ package com.android.quickstep;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.util.DisplayMetrics;
 
 import com.android.launcher3.R;
 import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.util.CancellableTask;
-import com.android.quickstep.util.TaskKeyLruCache;
+import com.android.quickstep.util.TaskThumbnailLruCache;
 import com.android.systemui.shared.recents.model.Task;
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 import com.android.systemui.shared.recents.model.ThumbnailData;
 import com.android.systemui.shared.system.ActivityManagerWrapper;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
@@ -36,7 +38,7 @@ public class TaskThumbnailCache {
     private final Executor mBgExecutor;
 
     private final int mCacheSize;
-    private final TaskKeyLruCache<ThumbnailData> mCache;
+    private final TaskThumbnailLruCache mCache;
     private final HighResLoadingState mHighResLoadingState;
     private final boolean mEnableTaskSnapshotPreloading;
 
@@ -97,7 +99,17 @@ public class TaskThumbnailCache {
         Resources res = context.getResources();
         mCacheSize = res.getInteger(R.integer.recentsThumbnailCacheSize);
         mEnableTaskSnapshotPreloading = res.getBoolean(R.bool.config_enableTaskSnapshotPreloading);
-        mCache = new TaskKeyLruCache<>(mCacheSize);
+        mCache = new TaskThumbnailLruCache(getCacheSizeBytes(res, mCacheSize));
+    }
+
+    /**
+     * Returns the memory budget of the cache: the size of {@param cacheSize} full screen
+     * thumbnails, so that more low-res thumbnails fit in the same memory.
+     */
+    private static long getCacheSizeBytes(Resources res, int cacheSize) {
+        DisplayMetrics dm = res.getDisplayMetrics();
+        long thumbnailSizeBytes = (long) dm.widthPixels * dm.heightPixels * 4;
+        return Math.min(cacheSize * thumbnailSizeBytes, Runtime.getRuntime().maxMemory() / 8);
     }
 
     /**
@@ -111,7 +123,7 @@ public class TaskThumbnailCache {
         // Fetch the thumbnail for this task and put it in the cache
         if (task.thumbnail == null) {
             updateThumbnailInBackground(task.key, true /* lowResolution */,
-                    t -> task.thumbnail = t);
+                    false /* showLowResFirst */, t -> task.thumbnail = t);
         }
     }
 
@@ -131,6 +143,20 @@ public class TaskThumbnailCache {
      */
     public CancellableTask updateThumbnailInBackground(
             Task task, Consumer<ThumbnailData> callback) {
+        return updateThumbnailInBackground(task, false /* showLowResFirst */, callback);
+    }
+
+    /**
+     * Asynchronously fetches the icon and other task data for the given {@param task}.
+     *
+     * @param showLowResFirst Whether a cached low-res thumbnail is sent to the callback while the
+     *                        high-res one is loaded, for the tasks revealed by quick switch
+     * @param callback The callback to receive the task after its data has been populated, twice
+     *                 if a low-res thumbnail is shown first.
+     * @return A cancelable handle to the request
+     */
+    public CancellableTask updateThumbnailInBackground(
+            Task task, boolean showLowResFirst, Consumer<ThumbnailData> callback) {
         Preconditions.assertUIThread();
 
         boolean lowResolution = !mHighResLoadingState.isEnabled();
@@ -142,23 +168,42 @@ public class TaskThumbnailCache {
             return null;
         }
 
-        return updateThumbnailInBackground(task.key, !mHighResLoadingState.isEnabled(), t -> {
-            task.thumbnail = t;
-            callback.accept(t);
-        });
+        return updateThumbnailInBackground(task.key, !mHighResLoadingState.isEnabled(),
+                showLowResFirst, t -> {
+                    task.thumbnail = t;
+                    callback.accept(t);
+                });
+    }
+
+    /**
+     * Asynchronously loads the thumbnail of the given {@param task} in the cache, at the resolution
+     * currently allowed by the {@link HighResLoadingState}.
+     *
+     * @return A cancelable handle to the request, or null if the thumbnail is already cached
+     */
+    public CancellableTask preloadThumbnail(Task task) {
+        Preconditions.assertUIThread();
+        return updateThumbnailInBackground(task.key, !mHighResLoadingState.isEnabled(),
+                false /* showLowResFirst */, t -> { });
     }
 
     private CancellableTask updateThumbnailInBackground(TaskKey key, boolean lowResolution,
-            Consumer<ThumbnailData> callback) {
+            boolean showLowResFirst, Consumer<ThumbnailData> callback) {
         Preconditions.assertUIThread();
 
-        ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(key);
-        if (cachedThumbnail != null &&  cachedThumbnail.thumbnail != null
-                && (!cachedThumbnail.reducedResolution || lowResolution)) {
+        ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(key, lowResolution);
+        if (cachedThumbnail != null && cachedThumbnail.thumbnail != null) {
             // Already cached, lets use that thumbnail
             callback.accept(cachedThumbnail);
             return null;
         }
+        if (!lowResolution && showLowResFirst) {
+            // Show the low-res thumbnail if it is cached, until the high-res one is loaded
+            ThumbnailData lowResThumbnail = mCache.getLowResIfValid(key);
+            if (lowResThumbnail != null && lowResThumbnail.thumbnail != null) {
+                callback.accept(lowResThumbnail);
+            }
+        }
 
         CancellableTask<ThumbnailData> request = new CancellableTask<ThumbnailData>() {
             @Override
@@ -191,6 +236,14 @@ public class TaskThumbnailCache {
         mCache.remove(key);
     }
 
+    /**
+     * Trims the cache based on the {@param level} of
+     * {@link android.content.ComponentCallbacks2#onTrimMemory}.
+     */
+    public void onTrimMemory(int level) {
+        mCache.onTrimMemory(level);
+    }
+
     /**
      * @return The cache size.
      */
@@ -212,6 +265,10 @@ public class TaskThumbnailCache {
         return mEnableTaskSnapshotPreloading && mHighResLoadingState.mVisible;
     }
 
+    public void dump(String prefix, PrintWriter writer) {
+        mCache.dump(prefix, writer);
+    }
+
     /**
      * @return Whether device supports low-res thumbnails. Low-res files are an optimization
      * for faster load times of snapshots. Devices can optionally disable low-res files so that
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep;
+
+import static com.android.quickstep.GestureState.STATE_END_TARGET_ANIMATION_FINISHED;
+
+import androidx.annotation.UiThread;
+
+import com.android.quickstep.util.CancellableTask;
+import com.android.quickstep.util.GroupTask;
+import com.android.systemui.shared.recents.model.Task;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Loads the thumbnails of the most recent tasks when a gesture starts, so that they are already
+ * in the {@link TaskThumbnailCache} when the tasks are scrolled into view by quick switch or
+ * overview. The requests are cancelled once the gesture has settled.
+ *
+ * Also tracks how often a frame of a quick switch showed a task without its thumbnail.
+ */
+public class TaskThumbnailPreloader {
+
+    // Number of tasks preloaded, in addition to the running task
+    private static final int PRELOAD_TASK_COUNT = 2;
+
+    private final RecentTasksList mTaskList;
+    private final TaskThumbnailCache mThumbnailCache;
+
+    private final ArrayList<CancellableTask> mRequests = new ArrayList<>();
+    // Incremented for each preload, to ignore the task lists of previous gestures
+    private int mPreloadId;
+
+    private int mPreloadCount;
+    private int mThumbnailRequestCount;
+    private int mQuickSwitchFrameCount;
+    private int mMissingThumbnailFrameCount;
+
+    public TaskThumbnailPreloader(RecentTasksList taskList, TaskThumbnailCache thumbnailCache) {
+        mTaskList = taskList;
+        mThumbnailCache = thumbnailCache;
+    }
+
+    /**
+     * Starts loading the thumbnails of the tasks preceding the running task of
+     * {@param gestureState}, in most recently used order. Any previous preload is cancelled.
+     */
+    @UiThread
+    public void preload(GestureState gestureState) {
+        cancel();
+        int preloadId = ++mPreloadId;
+        int runningTaskId = gestureState.getRunningTaskId();
+        mPreloadCount++;
+        mTaskList.getTaskKeys(PRELOAD_TASK_COUNT + 1, taskGroups -> {
+            if (preloadId != mPreloadId) {
+                return;
+            }
+            int count = 0;
+            // The tasks are ordered from least to most recent
+            for (int i = taskGroups.size() - 1; i >= 0 && count < PRELOAD_TASK_COUNT; i--) {
+                GroupTask group = taskGroups.get(i);
+                if (group.containsTask(runningTaskId)) {
+                    continue;
+                }
+                preloadThumbnail(group.task1);
+                preloadThumbnail(group.task2);
+                count++;
+            }
+        });
+        gestureState.runOnceAtState(STATE_END_TARGET_ANIMATION_FINISHED, () -> {
+            if (preloadId == mPreloadId) {
+                cancel();
+            }
+        });
+    }
+
+    private void preloadThumbnail(Task task) {
+        if (task == null) {
+            return;
+        }
+        CancellableTask request = mThumbnailCache.preloadThumbnail(task);
+        if (request != null) {
+            mThumbnailRequestCount++;
+            mRequests.add(request);
+        }
+    }
+
+    /**
+     * Cancels the pending thumbnail requests of the current preload.
+     */
+    @UiThread
+    public void cancel() {
+        mPreloadId++;
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            mRequests.get(i).cancel();
+        }
+        mRequests.clear();
+    }
+
+    /**
+     * Called on every frame of a gesture where another task than the running one is the closest
+     * to the center of the screen.
+     *
+     * @param hasThumbnail Whether that task was showing its thumbnail
+     */
+    @UiThread
+    public void onQuickSwitchFrame(boolean hasThumbnail) {
+        mQuickSwitchFrameCount++;
+        if (!hasThumbnail) {
+            mMissingThumbnailFrameCount++;
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskThumbnailPreloader:"
+                + " preloads=" + mPreloadCount
+                + " thumbnailRequests=" + mThumbnailRequestCount
+                + " quickSwitchFrames=" + mQuickSwitchFrameCount
+                + " missingThumbnailFrames=" + mMissingThumbnailFrameCount);
+    }
+}
@@ -96,6 +96,7 @@ import com.android.quickstep.util.ActiveGestureLog;
 import com.android.quickstep.util.ProtoTracer;
 import com.android.quickstep.util.ProxyScreenStatusProvider;
 import com.android.quickstep.util.SplitScreenBounds;
+import com.android.quickstep.util.SwipeLatencyStats;
 import com.android.systemui.shared.recents.IOverviewProxy;
 import com.android.systemui.shared.recents.ISystemUiProxy;
 import com.android.systemui.shared.system.ActivityManagerWrapper;
@@ -603,8 +604,14 @@ public class TouchInteractionService extends Service
                 mConsumer.onConsumerAboutToBeSwitched();
                 mGestureState = newGestureState;
                 mConsumer = newConsumer(prevGestureState, mGestureState, event);
+                if ((mConsumer.getType() & InputConsumer.TYPE_OTHER_ACTIVITY) != 0) {
+                    // Only a swipe from an app quick switches to the preloaded tasks, the
+                    // preload is cancelled on reset if the touch does not become a gesture
+                    RecentsModel.INSTANCE.get(this).getThumbnailPreloader().preload(mGestureState);
+                }
 
-                ActiveGestureLog.INSTANCE.addLog("setInputConsumer: " + mConsumer.getName());
+                ActiveGestureLog.INSTANCE.addLog(
+                        ActiveGestureLog.EVENT_SET_INPUT_CONSUMER, mConsumer.getType());
                 mUncheckedConsumer = mConsumer;
             } else if (mDeviceState.isUserUnlocked() && mDeviceState.isFullyGesturalNavMode()
                     && mDeviceState.canTriggerAssistantAction(event)) {
@@ -632,10 +639,12 @@ public class TouchInteractionService extends Service
         if (mUncheckedConsumer != InputConsumer.NO_OP) {
             switch (event.getActionMasked()) {
                 case ACTION_DOWN:
+                    ActiveGestureLog.INSTANCE.addLog(ActiveGestureLog.EVENT_MOTION_DOWN,
+                            (int) event.getRawX(), (int) event.getRawY());
+                    break;
                 case ACTION_UP:
-                    ActiveGestureLog.INSTANCE.addLog("onMotionEvent("
-                            + (int) event.getRawX() + ", " + (int) event.getRawY() + ")",
-                            event.getActionMasked());
+                    ActiveGestureLog.INSTANCE.addLog(ActiveGestureLog.EVENT_MOTION_UP,
+                            (int) event.getRawX(), (int) event.getRawY());
                     break;
                 default:
                     ActiveGestureLog.INSTANCE.addLog("onMotionEvent", event.getActionMasked());
@@ -869,6 +878,7 @@ public class TouchInteractionService extends Service
     private void reset() {
         mConsumer = mUncheckedConsumer = getDefaultInputConsumer();
         mGestureState = DEFAULT_STATE;
+        RecentsModel.INSTANCE.get(this).getThumbnailPreloader().cancel();
         // By default, use batching of the input events, but check receiver before using in the rare
         // case that the monitor was disposed before the swipe settled
         if (mInputEventReceiver != null) {
@@ -994,6 +1004,7 @@ public class TouchInteractionService extends Service
             pw.println("  mConsumer=" + mConsumer.getName());
             ActiveGestureLog.INSTANCE.dump("", pw);
             RecentsModel.INSTANCE.get(this).dump("", pw);
+            SwipeLatencyStats.INSTANCE.get(this).dump("", pw);
             pw.println("ProtoTrace:");
             pw.println("  file=" + ProtoTracer.INSTANCE.get(this).getTraceFile());
             if (createdOverviewActivity != null) {
@@ -1040,6 +1051,7 @@ public class TouchInteractionService extends Service
             mOverviewComponentObserver.writeToProto(serviceProto);
         }
         mConsumer.writeToProto(serviceProto);
+        SwipeLatencyStats.INSTANCE.get(this).writeToProto(serviceProto);
 
         proto.setTouchInteractionService(serviceProto);
     }
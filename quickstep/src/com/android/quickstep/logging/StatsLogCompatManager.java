@@ -338,7 +338,8 @@ public class StatsLogCompatManager extends StatsLogManager {
                             @Override
                             public void execute(LauncherAppState app, BgDataModel dataModel,
                                     AllAppsList apps) {
-                                FolderInfo folderInfo = dataModel.folders.get(mItemInfo.container);
+                                FolderInfo folderInfo =
+                                        dataModel.getSnapshot().getFolder(mItemInfo.container);
                                 write(event, applyOverwrites(mItemInfo.buildProto(folderInfo)));
                             }
                         });
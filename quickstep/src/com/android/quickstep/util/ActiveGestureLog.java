@@ -15,10 +15,9 @@
  */
 package com.android.quickstep.util;
 
-import android.content.Context;
-
 import com.android.launcher3.logging.EventLogArray;
-import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.quickstep.GestureState.GestureEndTarget;
+import com.android.quickstep.InputConsumer;
 
 /**
  * A log to keep track of the active gesture.
@@ -33,7 +32,22 @@ public class ActiveGestureLog extends EventLogArray {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
+    // Events logged on the touch path, which should not allocate
+    public static final int EVENT_SET_INPUT_CONSUMER =
+            registerEvent("setInputConsumer", InputConsumer::getName);
+    public static final int EVENT_MOTION_DOWN = registerEvent("onMotionEvent(ACTION_DOWN)");
+    public static final int EVENT_MOTION_UP = registerEvent("onMotionEvent(ACTION_UP)");
+    public static final int EVENT_SET_END_TARGET =
+            registerEvent("setEndTarget", ActiveGestureLog::getEndTargetName);
+    public static final int EVENT_SETTLED_ON_END_TARGET =
+            registerEvent("onSettledOnEndTarget", ActiveGestureLog::getEndTargetName);
+
     private ActiveGestureLog() {
         super("touch_interaction_log", 40);
     }
+
+    private static String getEndTargetName(int ordinal) {
+        GestureEndTarget[] targets = GestureEndTarget.values();
+        return ordinal >= 0 && ordinal < targets.length ? targets[ordinal].name() : "null";
+    }
 }
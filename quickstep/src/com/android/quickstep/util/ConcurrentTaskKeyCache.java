@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.Log;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A cache for task key entries which can be read from multiple threads without locking.
+ *
+ * Entries are evicted using the CLOCK policy, an approximation of LRU: reads only mark the entry
+ * as referenced, and when the cache is full, the oldest entry that was not referenced since the
+ * clock hand last passed it is evicted. Only writes that can evict an entry are serialized.
+ * @param <V> The type of the value
+ */
+public class ConcurrentTaskKeyCache<V> implements TaskKeyCache<V> {
+
+    private static final String TAG = "ConcurrentTaskKeyCache";
+
+    private final int mMaxSize;
+    private final ConcurrentHashMap<Integer, Entry<V>> mMap = new ConcurrentHashMap<>();
+    // Entries in the order they are visited by the clock hand, which is the head of the queue.
+    // Can contain entries which were already removed from mMap, they are dropped when visited.
+    private final ArrayDeque<Entry<V>> mClock = new ArrayDeque<>();
+
+    public ConcurrentTaskKeyCache(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    @Override
+    public void evictAll() {
+        synchronized (mClock) {
+            mMap.clear();
+            mClock.clear();
+        }
+    }
+
+    @Override
+    public void remove(TaskKey key) {
+        mMap.remove(key.id);
+    }
+
+    @Override
+    public void removeAll(Predicate<TaskKey> keyCheck) {
+        mMap.values().removeIf(e -> keyCheck.test(e.mKey));
+    }
+
+    @Override
+    public V getAndInvalidateIfModified(TaskKey key) {
+        Entry<V> entry = mMap.get(key.id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.mKey.windowingMode == key.windowingMode
+                && entry.mKey.lastActiveTime == key.lastActiveTime) {
+            entry.mReferenced = true;
+            return entry.mValue;
+        } else {
+            // Only remove this entry, and not one which was added concurrently
+            mMap.remove(key.id, entry);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(TaskKey key, V value) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        Entry<V> entry = new Entry<>(key, value);
+        synchronized (mClock) {
+            mMap.put(key.id, entry);
+            mClock.addLast(entry);
+            while (mMap.size() > mMaxSize && !mClock.isEmpty()) {
+                advanceClock();
+            }
+            if (mClock.size() > 2 * mMaxSize) {
+                // Drop the entries which were removed without going through the clock
+                mClock.removeIf(e -> !isLive(e));
+            }
+        }
+    }
+
+    @Override
+    public void updateIfAlreadyInCache(int taskId, V data) {
+        Entry<V> entry = mMap.get(taskId);
+        if (entry != null) {
+            entry.mValue = data;
+        }
+    }
+
+    /**
+     * Moves the clock hand by one entry, evicting it if it was not referenced since the last pass
+     */
+    private void advanceClock() {
+        Entry<V> entry = mClock.pollFirst();
+        if (!isLive(entry)) {
+            return;
+        }
+        if (entry.mReferenced) {
+            entry.mReferenced = false;
+            mClock.addLast(entry);
+        } else {
+            mMap.remove(entry.mKey.id, entry);
+        }
+    }
+
+    private boolean isLive(Entry<V> entry) {
+        return mMap.get(entry.mKey.id) == entry;
+    }
+
+    private static class Entry<V> {
+
+        final TaskKey mKey;
+        volatile V mValue;
+        volatile boolean mReferenced;
+
+        Entry(TaskKey key, V value) {
+            mKey = key;
+            mValue = value;
+        }
+    }
+}
@@ -24,10 +24,13 @@ import android.view.SurfaceControl.Transaction;
 import android.view.View;
 import android.view.ViewRootImpl;
 
+import androidx.annotation.Nullable;
+
 import com.android.quickstep.RemoteAnimationTargets.ReleaseCheck;
 import com.android.systemui.shared.system.SyncRtSurfaceTransactionApplierCompat.SurfaceParams;
 
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 
 /**
@@ -46,6 +49,9 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
 
     private int mLastSequenceNumber = 0;
 
+    @Nullable
+    private IntConsumer mScheduleDelayListener;
+
     /**
      * @param targetView The view in the surface that acts as synchronization anchor.
      */
@@ -59,11 +65,32 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
     protected boolean onApplyMessage(Message msg) {
         if (msg.what == MSG_UPDATE_SEQUENCE_NUMBER) {
             setCanRelease(msg.arg1 == mLastSequenceNumber);
+            // A negative delay means that the transaction was dropped
+            if (mScheduleDelayListener != null && msg.arg2 >= 0) {
+                mScheduleDelayListener.accept(msg.arg2);
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Sets a listener called on the main thread with the delay in microseconds between scheduling
+     * surface parameters and merging them into a frame.
+     */
+    public void setScheduleDelayListener(@Nullable IntConsumer listener) {
+        mScheduleDelayListener = listener;
+    }
+
+    /**
+     * Removes the listener set by {@link #setScheduleDelayListener} if it was not replaced since.
+     */
+    public void removeScheduleDelayListener(IntConsumer listener) {
+        if (mScheduleDelayListener == listener) {
+            mScheduleDelayListener = null;
+        }
+    }
+
     /**
      * Schedules applying surface parameters on the next frame.
      *
@@ -85,15 +112,17 @@ public class SurfaceTransactionApplier extends ReleaseCheck {
 
         mLastSequenceNumber++;
         final int toApplySeqNo = mLastSequenceNumber;
+        final long scheduleTimeNanos = System.nanoTime();
         setCanRelease(false);
         mTargetViewRootImpl.registerRtFrameCallback(frame -> {
             if (mBarrierSurfaceControl == null || !mBarrierSurfaceControl.isValid()) {
-                Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, 0)
+                Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, -1)
                         .sendToTarget();
                 return;
             }
             mTargetViewRootImpl.mergeWithNextTransaction(t, frame);
-            Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, 0)
+            int delayUs = (int) ((System.nanoTime() - scheduleTimeNanos) / 1000);
+            Message.obtain(mApplyHandler, MSG_UPDATE_SEQUENCE_NUMBER, toApplySeqNo, delayUs)
                     .sendToTarget();
         });
 
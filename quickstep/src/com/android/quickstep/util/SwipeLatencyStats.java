@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.tracing.SwipeLatencyProto;
+import com.android.launcher3.tracing.TouchInteractionServiceProto;
+import com.android.launcher3.util.MainThreadInitializedObject;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Aggregates the {@link SwipeLatencyProto} records of the recent swipe gestures, and holds the
+ * records until they are written to the proto trace.
+ */
+public class SwipeLatencyStats {
+
+    public static final MainThreadInitializedObject<SwipeLatencyStats> INSTANCE =
+            new MainThreadInitializedObject<>(c -> new SwipeLatencyStats());
+
+    private static final int GESTURE_HISTORY_SIZE = 100;
+    private static final int FRAME_HISTORY_SIZE = 2000;
+    // Records are only consumed while tracing, older ones are dropped past this size
+    private static final int MAX_PENDING_RECORDS = 16;
+
+    private final Samples mInputToFirstFrameUs = new Samples(GESTURE_HISTORY_SIZE);
+    private final Samples mDroppedFrames = new Samples(GESTURE_HISTORY_SIZE);
+    private final Samples mApplyTimeUs = new Samples(FRAME_HISTORY_SIZE);
+    private final Samples mScheduleDelayUs = new Samples(FRAME_HISTORY_SIZE);
+
+    private final ArrayList<SwipeLatencyProto> mPendingRecords = new ArrayList<>();
+    private int mSwipeCount;
+
+    /**
+     * Adds the record of a finished swipe gesture
+     */
+    @UiThread
+    public void add(SwipeLatencyProto record) {
+        mSwipeCount++;
+        if (record.hasInputToFirstFrameUs()) {
+            mInputToFirstFrameUs.add(record.getInputToFirstFrameUs());
+        }
+        mDroppedFrames.add(record.getDroppedFrames());
+        for (int i = 0; i < record.getApplyTimeUsCount(); i++) {
+            mApplyTimeUs.add(record.getApplyTimeUs(i));
+        }
+        for (int i = 0; i < record.getScheduleDelayUsCount(); i++) {
+            mScheduleDelayUs.add(record.getScheduleDelayUs(i));
+        }
+
+        if (mPendingRecords.size() >= MAX_PENDING_RECORDS) {
+            mPendingRecords.remove(0);
+        }
+        mPendingRecords.add(record);
+    }
+
+    /**
+     * Writes the records added since the last call.
+     */
+    @UiThread
+    public void writeToProto(TouchInteractionServiceProto.Builder serviceProto) {
+        serviceProto.addAllFinishedSwipes(mPendingRecords);
+        mPendingRecords.clear();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "SwipeLatencyStats: swipes=" + mSwipeCount);
+        mInputToFirstFrameUs.dump(prefix + "  inputToFirstFrameUs", writer);
+        mApplyTimeUs.dump(prefix + "  applyTimeUs", writer);
+        mScheduleDelayUs.dump(prefix + "  scheduleDelayUs", writer);
+        mDroppedFrames.dump(prefix + "  droppedFramesPerSwipe", writer);
+    }
+
+    /**
+     * A ring buffer of the most recent values of a metric
+     */
+    private static class Samples {
+
+        private final int[] mValues;
+        private int mCount;
+
+        Samples(int size) {
+            mValues = new int[size];
+        }
+
+        void add(int value) {
+            mValues[mCount % mValues.length] = value;
+            mCount++;
+        }
+
+        void dump(String prefix, PrintWriter writer) {
+            int[] sorted = Arrays.copyOf(mValues, Math.min(mCount, mValues.length));
+            Arrays.sort(sorted);
+            writer.println(prefix + ":"
+                    + " samples=" + sorted.length
+                    + " p50=" + percentile(sorted, 50)
+                    + " p95=" + percentile(sorted, 95)
+                    + " p99=" + percentile(sorted, 99));
+        }
+
+        private static int percentile(int[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100f * sorted.length);
+            return sorted[Math.max(rank - 1, 0)];
+        }
+    }
+}
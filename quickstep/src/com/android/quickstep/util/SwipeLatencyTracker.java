@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static com.android.launcher3.util.window.RefreshRateTracker.getSingleFrameMs;
+
+import android.content.Context;
+import android.view.Choreographer;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.tracing.GestureStateProto;
+import com.android.launcher3.tracing.SwipeLatencyProto;
+import com.android.launcher3.util.IntArray;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures the frame timings of a single swipe gesture, from the touch down until the end target
+ * animation finishes, and reports them to {@link SwipeLatencyStats}.
+ */
+@UiThread
+public class SwipeLatencyTracker implements Choreographer.FrameCallback {
+
+    private final SwipeLatencyStats mStats;
+    private final long mTouchTimeNanos;
+    private final long mFrameIntervalNanos;
+
+    private final IntArray mApplyTimesUs = new IntArray();
+    private final IntArray mScheduleDelaysUs = new IntArray();
+    private final IntConsumer mScheduleDelayListener = this::onScheduleDelay;
+
+    @Nullable
+    private SurfaceTransactionApplier mApplier;
+    private long mFirstApplyTimeNanos = -1;
+    private int mInputToFirstFrameUs = -1;
+    private long mLastFrameTimeNanos = -1;
+    private int mDroppedFrames;
+    private boolean mFinished;
+
+    /**
+     * @param touchTimeMs The uptime of the touch which started the gesture
+     */
+    public SwipeLatencyTracker(Context context, long touchTimeMs) {
+        mStats = SwipeLatencyStats.INSTANCE.get(context);
+        mTouchTimeNanos = TimeUnit.MILLISECONDS.toNanos(touchTimeMs);
+        mFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(getSingleFrameMs(context));
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Called after the TransformParams of a frame were applied
+     *
+     * @param applier The applier the surface params were scheduled on, if any
+     * @param startTimeNanos The {@link System#nanoTime()} at which applying started
+     */
+    public void onTransformApplied(@Nullable SurfaceTransactionApplier applier,
+            long startTimeNanos) {
+        if (mFinished) {
+            return;
+        }
+        long now = System.nanoTime();
+        mApplyTimesUs.add((int) TimeUnit.NANOSECONDS.toMicros(now - startTimeNanos));
+        if (mFirstApplyTimeNanos < 0) {
+            mFirstApplyTimeNanos = now;
+        }
+        if (applier != mApplier) {
+            setApplier(applier);
+        }
+    }
+
+    private void setApplier(@Nullable SurfaceTransactionApplier applier) {
+        if (mApplier != null) {
+            mApplier.removeScheduleDelayListener(mScheduleDelayListener);
+        }
+        mApplier = applier;
+        if (mApplier != null) {
+            mApplier.setScheduleDelayListener(mScheduleDelayListener);
+        }
+    }
+
+    private void onScheduleDelay(int delayUs) {
+        if (mFinished) {
+            return;
+        }
+        mScheduleDelaysUs.add(delayUs);
+        if (mInputToFirstFrameUs < 0 && mFirstApplyTimeNanos >= 0) {
+            mInputToFirstFrameUs = (int) TimeUnit.NANOSECONDS.toMicros(
+                    mFirstApplyTimeNanos - mTouchTimeNanos) + delayUs;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mFinished) {
+            return;
+        }
+        if (mLastFrameTimeNanos >= 0 && mFrameIntervalNanos > 0) {
+            long missedFrames = Math.round(
+                    (double) (frameTimeNanos - mLastFrameTimeNanos) / mFrameIntervalNanos) - 1;
+            mDroppedFrames += Math.max(missedFrames, 0);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops tracking and reports the record of the gesture, only the first call has any effect.
+     */
+    public void finish(GestureStateProto.GestureEndTarget endTarget) {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+        Choreographer.getInstance().removeFrameCallback(this);
+        setApplier(null);
+
+        SwipeLatencyProto.Builder record = SwipeLatencyProto.newBuilder()
+                .setEndTarget(endTarget)
+                .setDroppedFrames(mDroppedFrames);
+        if (mInputToFirstFrameUs >= 0) {
+            record.setInputToFirstFrameUs(mInputToFirstFrameUs);
+        }
+        for (int i = 0; i < mApplyTimesUs.size(); i++) {
+            record.addApplyTimeUs(mApplyTimesUs.get(i));
+        }
+        for (int i = 0; i < mScheduleDelaysUs.size(); i++) {
+            record.addScheduleDelayUs(mScheduleDelaysUs.get(i));
+        }
+        mStats.add(record.build());
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.UserHandle;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.icons.GraphicsUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Persists the icons and labels of task components, so that they can be shown after a process
+ * restart without loading them from the package manager.
+ *
+ * Entries are keyed by component, user and the primary color of the task, and are only valid for
+ * the lastUpdateTime of the package and the icon system state they were created with.
+ */
+public class TaskIconDiskCache extends SQLiteOpenHelper {
+
+    private static final String TAG = "TaskIconDiskCache";
+
+    private static final int DB_VERSION = 1;
+    // Maximum number of rows kept, the least recently written ones are removed first
+    private static final int MAX_ENTRIES = 64;
+
+    private static final String TABLE_NAME = "task_icons";
+    private static final String COLUMN_ROWID = "rowid";
+    private static final String COLUMN_COMPONENT = "componentName";
+    private static final String COLUMN_PACKAGE = "packageName";
+    private static final String COLUMN_USER = "profileId";
+    private static final String COLUMN_PRIMARY_COLOR = "primaryColor";
+    private static final String COLUMN_LAST_UPDATED = "lastUpdated";
+    private static final String COLUMN_SYSTEM_STATE = "systemState";
+    private static final String COLUMN_ICON = "icon";
+    private static final String COLUMN_ICON_COLOR = "iconColor";
+    private static final String COLUMN_INSTANT_APP = "instantApp";
+    private static final String COLUMN_ACTIVITY_LABEL = "activityLabel";
+    private static final String COLUMN_APP_LABEL = "appLabel";
+    private static final String COLUMN_BADGED_APP_LABEL = "badgedAppLabel";
+
+    private static final String[] COLUMNS_ENTRY = new String[] {
+            COLUMN_ICON, COLUMN_ICON_COLOR, COLUMN_INSTANT_APP, COLUMN_ACTIVITY_LABEL,
+            COLUMN_APP_LABEL, COLUMN_BADGED_APP_LABEL};
+
+    private final Context mContext;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mInvalidatedCount;
+
+    public TaskIconDiskCache(Context context) {
+        super(context, LauncherFiles.TASK_ICONS_DB, null, DB_VERSION);
+        mContext = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                + COLUMN_COMPONENT + " TEXT NOT NULL, "
+                + COLUMN_PACKAGE + " TEXT NOT NULL, "
+                + COLUMN_USER + " INTEGER NOT NULL, "
+                + COLUMN_PRIMARY_COLOR + " INTEGER NOT NULL, "
+                + COLUMN_LAST_UPDATED + " INTEGER NOT NULL, "
+                + COLUMN_SYSTEM_STATE + " TEXT NOT NULL, "
+                + COLUMN_ICON + " BLOB NOT NULL, "
+                + COLUMN_ICON_COLOR + " INTEGER NOT NULL, "
+                + COLUMN_INSTANT_APP + " INTEGER NOT NULL, "
+                + COLUMN_ACTIVITY_LABEL + " TEXT, "
+                + COLUMN_APP_LABEL + " TEXT, "
+                + COLUMN_BADGED_APP_LABEL + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ", "
+                + COLUMN_PRIMARY_COLOR + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreateTable(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreateTable(db);
+    }
+
+    private void recreateTable(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+        onCreate(db);
+    }
+
+    /**
+     * Removes the entries of packages which were updated or removed since they were written.
+     * This should be called before any other method after the process starts.
+     */
+    @WorkerThread
+    public void removeOutdatedEntries() {
+        ArrayList<String[]> outdated = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(true /* distinct */, TABLE_NAME,
+                new String[] {COLUMN_PACKAGE, COLUMN_USER, COLUMN_LAST_UPDATED},
+                null, null, null, null, null, null)) {
+            while (c.moveToNext()) {
+                String pkg = c.getString(0);
+                int userId = c.getInt(1);
+                if (getLastUpdateTime(pkg, userId) != c.getLong(2)) {
+                    outdated.add(new String[] {pkg, Integer.toString(userId)});
+                }
+            }
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to read task icons", e);
+            return;
+        }
+        for (String[] args : outdated) {
+            delete(COLUMN_PACKAGE + " = ? AND " + COLUMN_USER + " = ?", args);
+        }
+    }
+
+    /**
+     * Returns the entry for the given component if it was created with {@param systemState}.
+     */
+    @WorkerThread
+    @Nullable
+    public Entry get(ComponentName component, int userId, int primaryColor, String systemState) {
+        try (Cursor c = getReadableDatabase().query(TABLE_NAME, COLUMNS_ENTRY,
+                COLUMN_COMPONENT + " = ? AND " + COLUMN_USER + " = ? AND "
+                        + COLUMN_PRIMARY_COLOR + " = ? AND " + COLUMN_SYSTEM_STATE + " = ?",
+                new String[] {component.flattenToString(), Integer.toString(userId),
+                        Integer.toString(primaryColor), systemState},
+                null, null, null)) {
+            if (c.moveToNext()) {
+                byte[] data = c.getBlob(0);
+                Bitmap icon = BitmapFactory.decodeByteArray(data, 0, data.length);
+                if (icon != null) {
+                    mHitCount++;
+                    Entry entry = new Entry(icon, c.getInt(1), c.getInt(2) != 0);
+                    entry.activityLabel = c.getString(3);
+                    entry.appLabel = c.getString(4);
+                    entry.badgedAppLabel = c.getString(5);
+                    return entry;
+                }
+            }
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to read task icon for " + component, e);
+        }
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * Writes the entry for the given component, replacing any previous one.
+     */
+    @WorkerThread
+    public void put(ComponentName component, int userId, int primaryColor, String systemState,
+            Entry entry) {
+        long lastUpdateTime = getLastUpdateTime(component.getPackageName(), userId);
+        byte[] data = GraphicsUtils.flattenBitmap(entry.icon);
+        if (lastUpdateTime < 0 || data == null) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_COMPONENT, component.flattenToString());
+        values.put(COLUMN_PACKAGE, component.getPackageName());
+        values.put(COLUMN_USER, userId);
+        values.put(COLUMN_PRIMARY_COLOR, primaryColor);
+        values.put(COLUMN_LAST_UPDATED, lastUpdateTime);
+        values.put(COLUMN_SYSTEM_STATE, systemState);
+        values.put(COLUMN_ICON, data);
+        values.put(COLUMN_ICON_COLOR, entry.color);
+        values.put(COLUMN_INSTANT_APP, entry.isInstantApp ? 1 : 0);
+        values.put(COLUMN_ACTIVITY_LABEL, entry.activityLabel);
+        values.put(COLUMN_APP_LABEL, entry.appLabel);
+        values.put(COLUMN_BADGED_APP_LABEL, entry.badgedAppLabel);
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.insertWithOnConflict(TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            // Replaced rows get a new rowid, so the oldest rowids were the least recently written
+            db.delete(TABLE_NAME, COLUMN_ROWID + " NOT IN (SELECT " + COLUMN_ROWID + " FROM "
+                    + TABLE_NAME + " ORDER BY " + COLUMN_ROWID + " DESC LIMIT " + MAX_ENTRIES
+                    + ")", null);
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to write task icon for " + component, e);
+        }
+    }
+
+    /**
+     * Removes the entries of the given package
+     */
+    @WorkerThread
+    public void remove(String pkg, int userId) {
+        delete(COLUMN_PACKAGE + " = ? AND " + COLUMN_USER + " = ?",
+                new String[] {pkg, Integer.toString(userId)});
+    }
+
+    /**
+     * Removes all the entries
+     */
+    @WorkerThread
+    public void clear() {
+        delete(null, null);
+    }
+
+    private void delete(@Nullable String selection, @Nullable String[] args) {
+        try {
+            mInvalidatedCount += getWritableDatabase().delete(TABLE_NAME, selection, args);
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Failed to delete task icons", e);
+        }
+    }
+
+    private long getLastUpdateTime(String pkg, int userId) {
+        try {
+            return mContext.createContextAsUser(UserHandle.of(userId), 0).getPackageManager()
+                    .getPackageInfo(pkg, 0).lastUpdateTime;
+        } catch (NameNotFoundException e) {
+            return -1;
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskIconDiskCache:"
+                + " hits=" + mHitCount
+                + " misses=" + mMissCount
+                + " invalidated=" + mInvalidatedCount);
+    }
+
+    /**
+     * The icon and labels of a task component
+     */
+    public static class Entry {
+
+        public final Bitmap icon;
+        public final int color;
+        public final boolean isInstantApp;
+
+        // Only loaded when content descriptions are needed
+        @Nullable public String activityLabel;
+        @Nullable public String appLabel;
+        @Nullable public String badgedAppLabel;
+
+        public Entry(Bitmap icon, int color, boolean isInstantApp) {
+            this.icon = icon;
+            this.color = color;
+            this.isInstantApp = isInstantApp;
+        }
+
+        public boolean hasLabels() {
+            return appLabel != null && badgedAppLabel != null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache for task key entries
+ * @param <V> The type of the value
+ */
+public interface TaskKeyCache<V> {
+
+    /**
+     * Removes all entries from the cache
+     */
+    void evictAll();
+
+    /**
+     * Removes a particular entry from the cache
+     */
+    void remove(TaskKey key);
+
+    /**
+     * Removes all entries matching keyCheck
+     */
+    void removeAll(Predicate<TaskKey> keyCheck);
+
+    /**
+     * Gets the entry if it is still valid
+     */
+    V getAndInvalidateIfModified(TaskKey key);
+
+    /**
+     * Adds an entry to the cache, optionally evicting an entry that was not recently accessed
+     */
+    void put(TaskKey key, V value);
+
+    /**
+     * Updates the cache entry if it is already present in the cache
+     */
+    void updateIfAlreadyInCache(int taskId, V data);
+}
@@ -27,7 +27,7 @@ import java.util.function.Predicate;
  * A simple LRU cache for task key entries
  * @param <V> The type of the value
  */
-public class TaskKeyLruCache<V> {
+public class TaskKeyLruCache<V> implements TaskKeyCache<V> {
 
     private final MyLinkedHashMap<V> mMap;
 
@@ -38,6 +38,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Removes all entries from the cache
      */
+    @Override
     public synchronized void evictAll() {
         mMap.clear();
     }
@@ -45,6 +46,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Removes a particular entry from the cache
      */
+    @Override
     public synchronized void remove(TaskKey key) {
         mMap.remove(key.id);
     }
@@ -52,6 +54,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Removes all entries matching keyCheck
      */
+    @Override
     public synchronized void removeAll(Predicate<TaskKey> keyCheck) {
         mMap.entrySet().removeIf(e -> keyCheck.test(e.getValue().mKey));
     }
@@ -59,6 +62,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Gets the entry if it is still valid
      */
+    @Override
     public synchronized V getAndInvalidateIfModified(TaskKey key) {
         Entry<V> entry = mMap.get(key.id);
 
@@ -74,6 +78,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Adds an entry to the cache, optionally evicting the last accessed entry
      */
+    @Override
     public final synchronized void put(TaskKey key, V value) {
         if (key != null && value != null) {
             mMap.put(key.id, new Entry<>(key, value));
@@ -85,6 +90,7 @@ public class TaskKeyLruCache<V> {
     /**
      * Updates the cache entry if it is already present in the cache
      */
+    @Override
     public synchronized void updateIfAlreadyInCache(int taskId, V data) {
         Entry<V> entry = mMap.get(taskId);
         if (entry != null) {
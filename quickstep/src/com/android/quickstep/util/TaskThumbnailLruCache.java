@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+
+import android.util.Log;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A LRU cache for task thumbnails bounded by the total allocation size of the bitmaps.
+ *
+ * Low-res and high-res thumbnails are kept in separate tiers, and high-res thumbnails are evicted
+ * first as they are the most expensive and can be replaced by a low-res one.
+ */
+public class TaskThumbnailLruCache {
+
+    private static final String TAG = "TaskThumbnailLruCache";
+
+    private final long mMaxSizeBytes;
+
+    private final LinkedHashMap<Integer, Entry> mLowResEntries =
+            new LinkedHashMap<>(0, 0.75f, true /* accessOrder */);
+    private final LinkedHashMap<Integer, Entry> mHighResEntries =
+            new LinkedHashMap<>(0, 0.75f, true /* accessOrder */);
+    private long mSizeBytes;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mLowResEvictionCount;
+    private int mHighResEvictionCount;
+
+    public TaskThumbnailLruCache(long maxSizeBytes) {
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Returns the cached thumbnail of the task if it is still valid, and is high-res or
+     * {@param lowResolution} is true.
+     */
+    public synchronized ThumbnailData getAndInvalidateIfModified(TaskKey key,
+            boolean lowResolution) {
+        Entry entry = mHighResEntries.get(key.id);
+        if (entry == null && lowResolution) {
+            entry = mLowResEntries.get(key.id);
+        }
+        if (entry != null && !isValid(entry, key)) {
+            remove(key.id);
+            entry = null;
+        }
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mValue;
+    }
+
+    /**
+     * Returns the cached low-res thumbnail of the task if it is still valid. Unlike
+     * {@link #getAndInvalidateIfModified}, the lookup is not counted as a cache hit or miss.
+     */
+    public synchronized ThumbnailData getLowResIfValid(TaskKey key) {
+        Entry entry = mLowResEntries.get(key.id);
+        if (entry != null && !isValid(entry, key)) {
+            remove(key.id);
+            entry = null;
+        }
+        return entry == null ? null : entry.mValue;
+    }
+
+    /**
+     * Adds the thumbnail to the cache, replacing any previous thumbnail of the same resolution,
+     * and evicts the least recently used thumbnails if the cache is full.
+     */
+    public synchronized void put(TaskKey key, ThumbnailData value) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        LinkedHashMap<Integer, Entry> entries =
+                value.reducedResolution ? mLowResEntries : mHighResEntries;
+        Entry entry = new Entry(key, value);
+        Entry oldEntry = entries.put(key.id, entry);
+        if (oldEntry != null) {
+            mSizeBytes -= oldEntry.mSizeBytes;
+        }
+        mSizeBytes += entry.mSizeBytes;
+        trimToSize(mMaxSizeBytes);
+    }
+
+    /**
+     * Updates the cache entry if it is already present in the cache
+     */
+    public synchronized void updateIfAlreadyInCache(int taskId, ThumbnailData value) {
+        Entry entry = mHighResEntries.get(taskId);
+        if (entry == null) {
+            entry = mLowResEntries.get(taskId);
+        }
+        if (entry != null && value != null) {
+            remove(taskId);
+            put(entry.mKey, value);
+        }
+    }
+
+    /**
+     * Removes the thumbnail of a particular task from the cache
+     */
+    public synchronized void remove(TaskKey key) {
+        remove(key.id);
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public synchronized void evictAll() {
+        mLowResEntries.clear();
+        mHighResEntries.clear();
+        mSizeBytes = 0;
+    }
+
+    /**
+     * Reduces the size of the cache based on the {@param level} of
+     * {@link android.content.ComponentCallbacks2#onTrimMemory}.
+     */
+    public synchronized void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictAll();
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_LOW) {
+            // Only keep the low-res thumbnails
+            trimToSize(getLowResSizeBytes());
+        } else if (level == TRIM_MEMORY_RUNNING_MODERATE) {
+            trimToSize(mMaxSizeBytes / 2);
+        }
+    }
+
+    private void remove(int taskId) {
+        Entry entry = mHighResEntries.remove(taskId);
+        if (entry != null) {
+            mSizeBytes -= entry.mSizeBytes;
+        }
+        entry = mLowResEntries.remove(taskId);
+        if (entry != null) {
+            mSizeBytes -= entry.mSizeBytes;
+        }
+    }
+
+    private long getLowResSizeBytes() {
+        long size = 0;
+        for (Entry entry : mLowResEntries.values()) {
+            size += entry.mSizeBytes;
+        }
+        return size;
+    }
+
+    private void trimToSize(long maxSizeBytes) {
+        mHighResEvictionCount += evictEldest(mHighResEntries, maxSizeBytes);
+        mLowResEvictionCount += evictEldest(mLowResEntries, maxSizeBytes);
+    }
+
+    private int evictEldest(LinkedHashMap<Integer, Entry> entries, long maxSizeBytes) {
+        int count = 0;
+        Iterator<Entry> it = entries.values().iterator();
+        while (mSizeBytes > maxSizeBytes && it.hasNext()) {
+            mSizeBytes -= it.next().mSizeBytes;
+            it.remove();
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isValid(Entry entry, TaskKey key) {
+        return entry.mKey.windowingMode == key.windowingMode
+                && entry.mKey.lastActiveTime == key.lastActiveTime;
+    }
+
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskThumbnailLruCache:"
+                + " size=" + mSizeBytes + "/" + mMaxSizeBytes
+                + " lowRes=" + mLowResEntries.size()
+                + " highRes=" + mHighResEntries.size()
+                + " hits=" + mHitCount
+                + " misses=" + mMissCount
+                + " lowResEvictions=" + mLowResEvictionCount
+                + " highResEvictions=" + mHighResEvictionCount);
+    }
+
+    private static class Entry {
+
+        final TaskKey mKey;
+        final ThumbnailData mValue;
+        final int mSizeBytes;
+
+        Entry(TaskKey key, ThumbnailData value) {
+            mKey = key;
+            mValue = value;
+            mSizeBytes = value.thumbnail == null ? 0 : value.thumbnail.getAllocationByteCount();
+        }
+    }
+}
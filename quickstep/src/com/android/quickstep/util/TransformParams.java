@@ -205,6 +205,10 @@ public class TransformParams {
         return mTargetSet;
     }
 
+    public SurfaceTransactionApplier getSyncTransactionApplier() {
+        return mSyncTransactionApplier;
+    }
+
     public void applySurfaceParams(SurfaceParams... params) {
         if (mSyncTransactionApplier != null) {
             mSyncTransactionApplier.scheduleApply(params);
@@ -99,7 +99,7 @@ public class GroupedTaskView extends TaskView {
 
             if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
                 mThumbnailLoadRequest2 = thumbnailCache.updateThumbnailInBackground(mSecondaryTask,
-                        thumbnailData -> mSnapshotView2.setThumbnail(
+                        showLowResThumbnailFirst(), thumbnailData -> mSnapshotView2.setThumbnail(
                                 mSecondaryTask, thumbnailData
                         ));
             }
@@ -1540,6 +1540,13 @@ public abstract class RecentsView<ACTIVITY_TYPE extends StatefulActivity<STATE_T
         return mModel.isLoadingTasksInBackground();
     }
 
+    /**
+     * Returns whether a gesture from an app is in progress, see {@link #onGestureAnimationStart}
+     */
+    public boolean isGestureActive() {
+        return mGestureActive;
+    }
+
     private void removeTasksViewsAndClearAllButton() {
         for (int i = getTaskViewCount() - 1; i >= 0; i--) {
             removeView(requireTaskViewAt(i));
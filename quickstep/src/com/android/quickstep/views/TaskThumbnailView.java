@@ -156,6 +156,11 @@ public class TaskThumbnailView extends View {
         }
     }
 
+    /** Returns whether a thumbnail bitmap is set on this view. */
+    public boolean hasThumbnail() {
+        return mThumbnailData != null && mThumbnailData.thumbnail != null;
+    }
+
     /** See {@link #setThumbnail(Task, ThumbnailData, boolean)} */
     public void setThumbnail(@Nullable Task task, @Nullable ThumbnailData thumbnailData) {
         setThumbnail(task, thumbnailData, true /* refreshNow */);
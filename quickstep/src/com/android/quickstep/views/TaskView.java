@@ -796,6 +796,15 @@ public class TaskView extends FrameLayout implements Reusable {
         onTaskListVisibilityChanged(visible, FLAG_UPDATE_ALL);
     }
 
+    /**
+     * Returns whether a cached low-res thumbnail is shown until the high-res one is loaded, so
+     * that the tasks revealed by quick switch show the thumbnails preloaded for the gesture.
+     */
+    protected boolean showLowResThumbnailFirst() {
+        RecentsView recentsView = getRecentsView();
+        return recentsView != null && recentsView.isGestureActive();
+    }
+
     /**
      * See {@link TaskDataChanges}
      * @param visible If this task view will be visible to the user in overview or hidden
@@ -814,7 +823,7 @@ public class TaskView extends FrameLayout implements Reusable {
 
             if (needsUpdate(changes, FLAG_UPDATE_THUMBNAIL)) {
                 mThumbnailLoadRequest = thumbnailCache.updateThumbnailInBackground(
-                        mTask, thumbnail -> {
+                        mTask, showLowResThumbnailFirst(), thumbnail -> {
                             mSnapshotView.setThumbnail(mTask, thumbnail);
                         });
             }
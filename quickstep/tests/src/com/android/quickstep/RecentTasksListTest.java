@@ -26,10 +26,13 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.ActivityManager;
+import android.content.Intent;
 
 import androidx.test.filters.SmallTest;
 
+import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.LooperExecutor;
+import com.android.quickstep.RecentTasksList.TaskLoadResult;
 import com.android.quickstep.util.GroupTask;
 import com.android.systemui.shared.system.KeyguardManagerCompat;
 import com.android.wm.shell.util.GroupedRecentTaskInfo;
@@ -102,4 +105,89 @@ public class RecentTasksListTest {
         assertEquals(taskDescription, taskList.get(0).task1.taskDescription.getLabel());
         assertNull(taskList.get(0).task2.taskDescription.getLabel());
     }
+
+    @Test
+    public void loadTasksInBackground_unchangedTask_reusesPreviousTask() {
+        TaskLoadResult previous = loadTasks(createTaskInfo(1, "Old"), createTaskInfo(2, "Old"));
+
+        TaskLoadResult result = reloadTasks(previous, new IntSet(),
+                createTaskInfo(1, "New"), createTaskInfo(2, "New"));
+
+        assertEquals(2, result.size());
+        assertEquals("Old", result.get(0).task1.taskDescription.getLabel());
+        assertEquals("Old", result.get(1).task1.taskDescription.getLabel());
+    }
+
+    @Test
+    public void loadTasksInBackground_updatedTask_reloadsTask() {
+        TaskLoadResult previous = loadTasks(createTaskInfo(1, "Old"), createTaskInfo(2, "Old"));
+
+        TaskLoadResult result = reloadTasks(previous, IntSet.wrap(2),
+                createTaskInfo(1, "New"), createTaskInfo(2, "New"));
+
+        assertEquals("Old", result.get(0).task1.taskDescription.getLabel());
+        assertEquals("New", result.get(1).task1.taskDescription.getLabel());
+    }
+
+    @Test
+    public void loadTasksInBackground_movedTask_reloadsTaskInSystemOrder() {
+        TaskLoadResult previous = loadTasks(createTaskInfo(1, "Old"), createTaskInfo(2, "Old"),
+                createTaskInfo(3, "Old"));
+        ActivityManager.RecentTaskInfo movedTask = createTaskInfo(1, "New");
+        movedTask.lastActiveTime = 1;
+
+        // Task 3 was removed and task 1 moved to the front
+        TaskLoadResult result = reloadTasks(previous, new IntSet(),
+                createTaskInfo(2, "New"), movedTask);
+
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(0).task1.key.id);
+        assertEquals("Old", result.get(0).task1.taskDescription.getLabel());
+        assertEquals(1, result.get(1).task1.key.id);
+        assertEquals("New", result.get(1).task1.taskDescription.getLabel());
+    }
+
+    @Test
+    public void loadTasksInBackground_splitTask_reloadsTask() {
+        GroupedRecentTaskInfo splitTask = new GroupedRecentTaskInfo(
+                createTaskInfo(1, "Old"), createTaskInfo(2, "Old"), null);
+        when(mockSystemUiProxy.getRecentTasks(anyInt(), anyInt()))
+                .thenReturn(new ArrayList<>(Collections.singletonList(splitTask)));
+        TaskLoadResult previous = mRecentTasksList.loadTasksInBackground(Integer.MAX_VALUE, 1,
+                false);
+
+        splitTask = new GroupedRecentTaskInfo(
+                createTaskInfo(1, "New"), createTaskInfo(2, "New"), null);
+        when(mockSystemUiProxy.getRecentTasks(anyInt(), anyInt()))
+                .thenReturn(new ArrayList<>(Collections.singletonList(splitTask)));
+        TaskLoadResult result = mRecentTasksList.loadTasksInBackground(Integer.MAX_VALUE, 2,
+                false, previous, new IntSet());
+
+        assertEquals("New", result.get(0).task1.taskDescription.getLabel());
+        assertEquals("New", result.get(0).task2.taskDescription.getLabel());
+    }
+
+    private TaskLoadResult loadTasks(ActivityManager.RecentTaskInfo... taskInfos) {
+        return reloadTasks(null, new IntSet(), taskInfos);
+    }
+
+    private TaskLoadResult reloadTasks(TaskLoadResult previous, IntSet updatedTaskIds,
+            ActivityManager.RecentTaskInfo... taskInfos) {
+        ArrayList<GroupedRecentTaskInfo> rawTasks = new ArrayList<>();
+        // The raw tasks are given in most-recent to least-recent order
+        for (int i = taskInfos.length - 1; i >= 0; i--) {
+            rawTasks.add(new GroupedRecentTaskInfo(taskInfos[i], null, null));
+        }
+        when(mockSystemUiProxy.getRecentTasks(anyInt(), anyInt())).thenReturn(rawTasks);
+        return mRecentTasksList.loadTasksInBackground(Integer.MAX_VALUE, 1, false, previous,
+                updatedTaskIds);
+    }
+
+    private static ActivityManager.RecentTaskInfo createTaskInfo(int taskId, String label) {
+        ActivityManager.RecentTaskInfo taskInfo = new ActivityManager.RecentTaskInfo();
+        taskInfo.taskId = taskId;
+        taskInfo.baseIntent = new Intent();
+        taskInfo.taskDescription = new ActivityManager.TaskDescription(label);
+        return taskInfo;
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ConcurrentTaskKeyCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentTaskKeyCacheTest {
+
+    private static final String TAG = "ConcurrentTaskKeyCacheTest";
+
+    private static final int CACHE_SIZE = 12;
+    private static final int TASK_COUNT = 20;
+    private static final int BG_THREAD_COUNT = 2;
+    private static final int OPERATION_COUNT = 200_000;
+
+    @Test
+    public void modifiedTask_invalidatesEntry() {
+        ConcurrentTaskKeyCache<String> cache = new ConcurrentTaskKeyCache<>(CACHE_SIZE);
+        cache.put(createKey(1, 0), "1");
+
+        assertEquals("1", cache.getAndInvalidateIfModified(createKey(1, 0)));
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 1)));
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 0)));
+    }
+
+    @Test
+    public void fullCache_keepsReferencedEntries() {
+        ConcurrentTaskKeyCache<String> cache = new ConcurrentTaskKeyCache<>(2);
+        cache.put(createKey(1, 0), "1");
+        cache.put(createKey(2, 0), "2");
+        cache.getAndInvalidateIfModified(createKey(1, 0));
+        cache.put(createKey(3, 0), "3");
+
+        assertEquals("1", cache.getAndInvalidateIfModified(createKey(1, 0)));
+        assertNull(cache.getAndInvalidateIfModified(createKey(2, 0)));
+        assertEquals("3", cache.getAndInvalidateIfModified(createKey(3, 0)));
+    }
+
+    @Test
+    public void fullCache_evictsOldestWhenNothingReferenced() {
+        ConcurrentTaskKeyCache<String> cache = new ConcurrentTaskKeyCache<>(2);
+        cache.put(createKey(1, 0), "1");
+        cache.put(createKey(2, 0), "2");
+        cache.put(createKey(3, 0), "3");
+
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 0)));
+        assertEquals("2", cache.getAndInvalidateIfModified(createKey(2, 0)));
+    }
+
+    @Test
+    public void removedEntries_doNotCountTowardsSize() {
+        ConcurrentTaskKeyCache<String> cache = new ConcurrentTaskKeyCache<>(2);
+        cache.put(createKey(1, 0), "1");
+        cache.put(createKey(2, 0), "2");
+        cache.removeAll(key -> key.id == 1);
+        cache.put(createKey(3, 0), "3");
+
+        assertEquals("2", cache.getAndInvalidateIfModified(createKey(2, 0)));
+        assertEquals("3", cache.getAndInvalidateIfModified(createKey(3, 0)));
+    }
+
+    @Test
+    public void updateIfAlreadyInCache_onlyUpdatesPresentEntries() {
+        ConcurrentTaskKeyCache<String> cache = new ConcurrentTaskKeyCache<>(CACHE_SIZE);
+        cache.put(createKey(1, 0), "1");
+        cache.updateIfAlreadyInCache(1, "updated");
+        cache.updateIfAlreadyInCache(2, "updated");
+
+        assertEquals("updated", cache.getAndInvalidateIfModified(createKey(1, 0)));
+        assertNull(cache.getAndInvalidateIfModified(createKey(2, 0)));
+    }
+
+    /**
+     * Compares the time taken by the UI thread to read the cache while background threads are
+     * loading entries, as happens when overview is scrolled.
+     */
+    @Test
+    @LargeTest
+    public void mixedUiAndBgAccess_comparesContention() throws Exception {
+        long lruNanos = measureUiReads(new TaskKeyLruCache<>(CACHE_SIZE));
+        long concurrentNanos = measureUiReads(new ConcurrentTaskKeyCache<>(CACHE_SIZE));
+        Log.d(TAG, "UI reads: TaskKeyLruCache=" + lruNanos / OPERATION_COUNT + "ns/op"
+                + " ConcurrentTaskKeyCache=" + concurrentNanos / OPERATION_COUNT + "ns/op");
+    }
+
+    private static long measureUiReads(TaskKeyCache<String> cache) throws Exception {
+        TaskKey[] keys = new TaskKey[TASK_COUNT];
+        for (int i = 0; i < TASK_COUNT; i++) {
+            keys[i] = createKey(i, 0);
+        }
+        AtomicInteger invalidValues = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] bgThreads = new Thread[BG_THREAD_COUNT];
+        for (int t = 0; t < BG_THREAD_COUNT; t++) {
+            int offset = t;
+            bgThreads[t] = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < OPERATION_COUNT; i++) {
+                    TaskKey key = keys[(i * 7 + offset) % TASK_COUNT];
+                    if (cache.getAndInvalidateIfModified(key) == null) {
+                        cache.put(key, Integer.toString(key.id));
+                    }
+                }
+            });
+            bgThreads[t].start();
+        }
+
+        start.countDown();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            TaskKey key = keys[i % TASK_COUNT];
+            String value = cache.getAndInvalidateIfModified(key);
+            if (value != null && !value.equals(Integer.toString(key.id))) {
+                invalidValues.incrementAndGet();
+            }
+        }
+        long duration = System.nanoTime() - startTime;
+
+        for (Thread thread : bgThreads) {
+            thread.join();
+        }
+        assertEquals(0, invalidValues.get());
+        for (TaskKey key : keys) {
+            String value = cache.getAndInvalidateIfModified(key);
+            assertTrue(value == null || value.equals(Integer.toString(key.id)));
+        }
+        return duration;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TaskKey createKey(int id, long lastActiveTime) {
+        return new TaskKey(id, 0, new Intent(), null, 0, lastActiveTime);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.Intent;
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task.TaskKey;
+import com.android.systemui.shared.recents.model.ThumbnailData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link TaskThumbnailLruCache}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class TaskThumbnailLruCacheTest {
+
+    // Size of a 10x10 ARGB_8888 bitmap
+    private static final int THUMBNAIL_SIZE_BYTES = 400;
+
+    @Test
+    public void highResRequest_ignoresLowResThumbnail() {
+        TaskThumbnailLruCache cache = new TaskThumbnailLruCache(10 * THUMBNAIL_SIZE_BYTES);
+        TaskKey key = createKey(1, 0);
+        ThumbnailData lowRes = createThumbnail(true);
+        cache.put(key, lowRes);
+
+        assertSame(lowRes, cache.getAndInvalidateIfModified(key, true /* lowResolution */));
+        assertNull(cache.getAndInvalidateIfModified(key, false /* lowResolution */));
+
+        ThumbnailData highRes = createThumbnail(false);
+        cache.put(key, highRes);
+        assertSame(highRes, cache.getAndInvalidateIfModified(key, true /* lowResolution */));
+        assertSame(highRes, cache.getAndInvalidateIfModified(key, false /* lowResolution */));
+    }
+
+    @Test
+    public void modifiedTask_invalidatesThumbnail() {
+        TaskThumbnailLruCache cache = new TaskThumbnailLruCache(10 * THUMBNAIL_SIZE_BYTES);
+        cache.put(createKey(1, 0), createThumbnail(false));
+
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 1), true /* lowResolution */));
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 0), true /* lowResolution */));
+    }
+
+    @Test
+    public void fullCache_evictsHighResFirst() {
+        TaskThumbnailLruCache cache = new TaskThumbnailLruCache(2 * THUMBNAIL_SIZE_BYTES);
+        TaskKey key1 = createKey(1, 0);
+        TaskKey key2 = createKey(2, 0);
+        TaskKey key3 = createKey(3, 0);
+        ThumbnailData lowRes1 = createThumbnail(true);
+        ThumbnailData lowRes3 = createThumbnail(true);
+        cache.put(key1, lowRes1);
+        cache.put(key2, createThumbnail(false));
+        cache.put(key3, lowRes3);
+
+        assertSame(lowRes1, cache.getAndInvalidateIfModified(key1, true /* lowResolution */));
+        assertNull(cache.getAndInvalidateIfModified(key2, true /* lowResolution */));
+        assertSame(lowRes3, cache.getAndInvalidateIfModified(key3, true /* lowResolution */));
+    }
+
+    @Test
+    public void fullCache_evictsLeastRecentlyUsed() {
+        TaskThumbnailLruCache cache = new TaskThumbnailLruCache(2 * THUMBNAIL_SIZE_BYTES);
+        TaskKey key1 = createKey(1, 0);
+        TaskKey key2 = createKey(2, 0);
+        TaskKey key3 = createKey(3, 0);
+        cache.put(key1, createThumbnail(true));
+        cache.put(key2, createThumbnail(true));
+        cache.getAndInvalidateIfModified(key1, true /* lowResolution */);
+        cache.put(key3, createThumbnail(true));
+
+        assertNull(cache.getAndInvalidateIfModified(key2, true /* lowResolution */));
+    }
+
+    @Test
+    public void trimMemory_uiHidden_keepsLowResOnly() {
+        TaskThumbnailLruCache cache = new TaskThumbnailLruCache(10 * THUMBNAIL_SIZE_BYTES);
+        TaskKey key1 = createKey(1, 0);
+        TaskKey key2 = createKey(2, 0);
+        ThumbnailData lowRes = createThumbnail(true);
+        cache.put(key1, lowRes);
+        cache.put(key2, createThumbnail(false));
+
+        cache.onTrimMemory(TRIM_MEMORY_UI_HIDDEN);
+        assertSame(lowRes, cache.getAndInvalidateIfModified(key1, true /* lowResolution */));
+        assertNull(cache.getAndInvalidateIfModified(key2, true /* lowResolution */));
+
+        cache.onTrimMemory(TRIM_MEMORY_COMPLETE);
+        assertNull(cache.getAndInvalidateIfModified(key1, true /* lowResolution */));
+    }
+
+    private static TaskKey createKey(int id, long lastActiveTime) {
+        return new TaskKey(id, 0, new Intent(), null, 0, lastActiveTime);
+    }
+
+    private static ThumbnailData createThumbnail(boolean reducedResolution) {
+        ThumbnailData data = new ThumbnailData();
+        data.thumbnail = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        data.reducedResolution = reducedResolution;
+        return data;
+    }
+}
@@ -57,6 +57,7 @@ import androidx.annotation.UiThread;
 
 import com.android.launcher3.accessibility.BaseAccessibilityDelegate;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragOptions.PreDragCondition;
 import com.android.launcher3.dragndrop.DraggableView;
 import com.android.launcher3.folder.FolderIcon;
@@ -73,6 +74,7 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.popup.PopupContainerWithArrow;
+import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SafeCloseable;
 import com.android.launcher3.util.ShortcutUtil;
 import com.android.launcher3.views.ActivityContext;
@@ -163,6 +165,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
 
     @ViewDebug.ExportedProperty(category = "launcher")
     private DotInfo mDotInfo;
+    // The key this icon is registered with in the DotViewIndex, if any
+    @Nullable
+    private PackageUserKey mDotIndexKey;
     private DotRenderer mDotRenderer;
     @ViewDebug.ExportedProperty(category = "launcher", deepExport = true)
     protected DotRenderer.DrawParams mDotParams;
@@ -261,6 +266,53 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         super.onFocusChanged(focused, direction, previouslyFocusedRect);
     }
 
+    @Override
+    public void setTag(Object tag) {
+        super.setTag(tag);
+        if (isAttachedToWindow()) {
+            updateDotIndex();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateDotIndex();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeFromDotIndex();
+    }
+
+    private void updateDotIndex() {
+        removeFromDotIndex();
+        DotViewIndex dotViewIndex = mActivity.getDotViewIndex();
+        if (dotViewIndex != null && canShowNotificationDot() && getTag() instanceof ItemInfo) {
+            mDotIndexKey = dotViewIndex.addIcon(this, (ItemInfo) getTag());
+        }
+    }
+
+    private void removeFromDotIndex() {
+        if (mDotIndexKey != null) {
+            mActivity.getDotViewIndex().removeIcon(this, mDotIndexKey);
+            mDotIndexKey = null;
+        }
+    }
+
+    /**
+     * Returns whether this icon is shown in a container which reflects notification dot updates.
+     */
+    private boolean canShowNotificationDot() {
+        return mDisplay == DISPLAY_WORKSPACE
+                || mDisplay == DISPLAY_ALL_APPS
+                || mDisplay == DISPLAY_FOLDER
+                || mDisplay == DISPLAY_TASKBAR
+                || mDisplay == DISPLAY_SEARCH_RESULT
+                || mDisplay == DISPLAY_SEARCH_RESULT_SMALL;
+    }
+
     public void setHideBadge(boolean hideBadge) {
         mHideBadge = hideBadge;
     }
@@ -135,6 +135,7 @@ import com.android.launcher3.anim.PropertyListBuilder;
 import com.android.launcher3.compat.AccessibilityManagerCompat;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragController;
 import com.android.launcher3.dragndrop.DragLayer;
 import com.android.launcher3.dragndrop.DragOptions;
@@ -187,6 +188,7 @@ import com.android.launcher3.util.ActivityTracker;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.OnboardingPrefs;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
@@ -213,8 +215,10 @@ import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 import com.android.launcher3.widget.WidgetAddFlowHandler;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 import com.android.launcher3.widget.picker.WidgetsFullSheet;
 import com.android.systemui.plugins.LauncherOverlayPlugin;
 import com.android.systemui.plugins.PluginListener;
@@ -350,6 +354,7 @@ public class Launcher extends StatefulActivity<LauncherState>
     private LauncherAccessibilityDelegate mAccessibilityDelegate;
 
     private PopupDataProvider mPopupDataProvider;
+    private final DotViewIndex mDotViewIndex = new DotViewIndex();
 
     private IntSet mSynchronouslyBoundPages = new IntSet();
     @NonNull private IntSet mPagesToBindSynchronously = new IntSet();
@@ -484,7 +489,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         inflateRootView(R.layout.launcher);
         setupViews();
         crossFadeWithPreviousAppearance();
-        mPopupDataProvider = new PopupDataProvider(this::updateNotificationDots);
+        mPopupDataProvider = new PopupDataProvider(mDotViewIndex::updateNotificationDots);
 
         boolean internalStateHandled = ACTIVITY_TRACKER.handleCreate(this);
         if (internalStateHandled) {
@@ -714,6 +719,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         return mPopupDataProvider.getDotInfoForItem(info);
     }
 
+    @Override
+    public DotViewIndex getDotViewIndex() {
+        return mDotViewIndex;
+    }
+
     @Override
     public void invalidateParent(ItemInfo info) {
         if (info.container >= 0) {
@@ -1486,11 +1496,6 @@ public class Launcher extends StatefulActivity<LauncherState>
         }
     };
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        mWorkspace.updateNotificationDots(updatedDots);
-        mAppsView.getAppsStore().updateNotificationDots(updatedDots);
-    }
-
     @Override
     public void onAttachedToWindow() {
         super.onAttachedToWindow();
@@ -2284,6 +2289,24 @@ public class Launcher extends StatefulActivity<LauncherState>
         TraceHelper.INSTANCE.endSection(traceToken);
     }
 
+    @Override
+    public boolean supportsSnapshotBind() {
+        return true;
+    }
+
+    @Override
+    public void bindItemsOverSnapshot(IntSparseArrayMap<ItemInfo> replacements) {
+        mWorkspace.removeItemsByMatcher(info -> info != null && replacements.get(info.id) == null);
+        // The views need to be bound to the loaded items for the model updates to find them
+        mWorkspace.mapOverItems((info, view) -> {
+            ItemInfo replacement = info != null ? replacements.get(info.id) : null;
+            if (view instanceof BubbleTextView && replacement instanceof WorkspaceItemInfo) {
+                ((BubbleTextView) view).applyFromWorkspaceItem((WorkspaceItemInfo) replacement);
+            }
+            return false;
+        });
+    }
+
     @Override
     public void bindScreens(IntArray orderedScreenIds) {
         int firstScreenPosition = 0;
@@ -2957,6 +2980,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         mPopupDataProvider.setAllWidgets(allWidgets);
     }
 
+    @Override
+    public void bindWidgetsChanged(WidgetsListDiff diff) {
+        mPopupDataProvider.updateWidgets(diff);
+    }
+
     @Override
     public void bindStringCache(StringCache cache) {
         mStringCache = cache;
@@ -3019,6 +3047,10 @@ public class Launcher extends StatefulActivity<LauncherState>
         mStateManager.dump(prefix, writer);
         mPopupDataProvider.dump(prefix, writer);
         mDeviceProfile.dump(prefix, writer);
+        WidgetPreviewCache previewCache = WidgetPreviewCache.INSTANCE.getNoCreate();
+        if (previewCache != null) {
+            previewCache.dump(prefix, writer);
+        }
 
         try {
             FileLog.flushAll(writer);
@@ -35,6 +35,8 @@ public class LauncherFiles {
 
     public static final String WIDGET_PREVIEWS_DB = "widgetpreviews.db";
     public static final String APP_ICONS_DB = "app_icons.db";
+    public static final String TASK_ICONS_DB = "task_icons.db";
+    public static final String MODEL_SNAPSHOT = "model_snapshot.bin";
 
     public static final List<String> GRID_DB_FILES = Collections.unmodifiableList(Arrays.asList(
             LAUNCHER_DB,
@@ -55,7 +57,9 @@ public class LauncherFiles {
             WIDGET_PREVIEWS_DB,
             MANAGED_USER_PREFERENCES_KEY + XML,
             DEVICE_PREFERENCES_KEY + XML,
-            APP_ICONS_DB));
+            APP_ICONS_DB,
+            TASK_ICONS_DB,
+            MODEL_SNAPSHOT));
 
     public static final List<String> ALL_FILES = Collections.unmodifiableList(
             new ArrayList<String>() {{
@@ -48,6 +48,7 @@ import com.android.launcher3.model.CacheDataUpdatedTask;
 import com.android.launcher3.model.ItemInstallQueue;
 import com.android.launcher3.model.LoaderResults;
 import com.android.launcher3.model.LoaderTask;
+import com.android.launcher3.model.ModelDbUpdateQueue;
 import com.android.launcher3.model.ModelDelegate;
 import com.android.launcher3.model.ModelWriter;
 import com.android.launcher3.model.PackageIncrementalDownloadUpdatedTask;
@@ -120,6 +121,9 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
 
     private final ModelDelegate mModelDelegate;
 
+    // < only access in worker thread >
+    private final ModelDbUpdateQueue mDbUpdateQueue;
+
     // Runnable to check if the shortcuts permission has changed.
     private final Runnable mDataValidationCheck = new Runnable() {
         @Override
@@ -134,6 +138,7 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
             boolean isPrimaryInstance) {
         mApp = app;
         mBgAllAppsList = new AllAppsList(iconCache, appFilter, app.getTrustData());
+        mDbUpdateQueue = new ModelDbUpdateQueue(context);
         mModelDelegate = ModelDelegate.newInstance(context, app, mBgAllAppsList, mBgDataModel,
                 isPrimaryInstance);
     }
@@ -154,7 +159,7 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
 
     public ModelWriter getWriter(boolean hasVerticalHotseat, boolean verifyChanges,
             @Nullable Callbacks owner) {
-        return new ModelWriter(mApp.getContext(), this, mBgDataModel,
+        return new ModelWriter(mApp.getContext(), this, mBgDataModel, mDbUpdateQueue,
                 hasVerticalHotseat, verifyChanges, owner);
     }
 
@@ -253,6 +258,7 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
      */
     public void destroy() {
         mModelDestroyed = true;
+        MODEL_EXECUTOR.execute(mDbUpdateQueue::flush);
         MODEL_EXECUTOR.execute(mModelDelegate::destroy);
     }
 
@@ -464,15 +470,13 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
             @Override
             public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
                 final IntSet removedIds = new IntSet();
-                synchronized (dataModel) {
-                    for (ItemInfo info : dataModel.itemsIdMap) {
-                        if (info instanceof WorkspaceItemInfo
-                                && ((WorkspaceItemInfo) info).hasPromiseIconUi()
-                                && user.equals(info.user)
-                                && info.getIntent() != null
-                                && TextUtils.equals(packageName, info.getIntent().getPackage())) {
-                            removedIds.add(info.id);
-                        }
+                for (ItemInfo info : dataModel.getSnapshot().getAllItems()) {
+                    if (info instanceof WorkspaceItemInfo
+                            && ((WorkspaceItemInfo) info).hasPromiseIconUi()
+                            && user.equals(info.user)
+                            && info.getIntent() != null
+                            && TextUtils.equals(packageName, info.getIntent().getPackage())) {
+                        removedIds.add(info.id);
                     }
                 }
 
@@ -538,6 +542,8 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
     }
 
     public LoaderTransaction beginLoader(LoaderTask task) throws CancellationException {
+        // Make sure the loader reads all the updates written so far
+        mDbUpdateQueue.flush();
         return new LoaderTransaction(task);
     }
 
@@ -649,6 +655,7 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
             writer.println();
         }
         mModelDelegate.dump(prefix, fd, writer, args);
+        mDbUpdateQueue.dump(prefix, writer);
         mBgDataModel.dump(prefix, fd, writer, args);
     }
 
@@ -101,13 +101,13 @@ public class ActivityAllAppsContainerView<T extends Context & AppLauncher
      * Sets results list for search
      */
     public void setSearchResults(ArrayList<AdapterItem> results) {
-        if (getSearchResultList().setSearchResults(results)) {
+        getSearchResultList().setSearchResults(results, () -> {
             for (int i = 0; i < mAH.size(); i++) {
                 if (mAH.get(i).mRecyclerView != null) {
                     mAH.get(i).mRecyclerView.onSearchResultsChanged();
                 }
             }
-        }
+        });
     }
 
     @Override
@@ -26,16 +26,13 @@ import androidx.annotation.Nullable;
 
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.model.data.AppInfo;
-import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.util.ComponentKey;
-import com.android.launcher3.util.PackageUserKey;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 /**
  * A utility class to maintain the collection of all apps.
@@ -47,7 +44,6 @@ public class AllAppsStore {
     // Defer updates flag used to defer all apps updates by a test's request.
     public static final int DEFER_UPDATES_TEST = 1 << 1;
 
-    private PackageUserKey mTempKey = new PackageUserKey(null, null);
     private AppInfo mTempInfo = new AppInfo();
 
     private AppInfo[] mApps = EMPTY_ARRAY;
@@ -141,17 +137,6 @@ public class AllAppsStore {
         mIconContainers.remove(container);
     }
 
-    public void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        updateAllIcons((child) -> {
-            if (child.getTag() instanceof ItemInfo) {
-                ItemInfo info = (ItemInfo) child.getTag();
-                if (mTempKey.updateFromItemInfo(info) && updatedDots.test(mTempKey)) {
-                    child.applyDotState(info, true /* animate */);
-                }
-            }
-        });
-    }
-
     /**
      * Sets the AppInfo's associated icon's progress bar.
      *
@@ -18,6 +18,8 @@ package com.android.launcher3.allapps;
 import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_ALL_APPS_DIVIDER;
 import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_EMPTY_SEARCH;
 import static com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_SEARCH_MARKET;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.content.Context;
 
@@ -32,13 +34,15 @@ import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.views.ActivityContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The alphabetically sorted list of applications.
@@ -73,6 +77,12 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
 
     // The set of apps from the system
     private final List<AppInfo> mApps = new ArrayList<>();
+    // The set of apps from the system sorted by title, before being grouped by sections
+    private final ArrayList<AppInfo> mSortedApps = new ArrayList<>();
+    // The keys the apps of mSortedApps were sorted with. The key cached on the AppInfo can be
+    // refreshed by other lists sorting the same apps, so it can't tell if the title changed.
+    private final IdentityHashMap<AppInfo, LabelComparator.SortKey> mSortKeys =
+            new IdentityHashMap<>();
     @Nullable
     private final AllAppsStore mAllAppsStore;
 
@@ -90,6 +100,9 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private final int mNumAppsPerRowAllApps;
     private int mNumAppRowsInAdapter;
     private Predicate<ItemInfo> mItemFilter;
+    // Incremented for every update of the adapter items, so that stale updates can be dropped
+    private volatile int mUpdateGeneration;
+    private final ArrayList<Runnable> mOnItemsUpdatedCallbacks = new ArrayList<>();
 
     public AlphabeticalAppsList(Context context, @Nullable AllAppsStore appsStore,
             WorkAdapterProvider adapterProvider) {
@@ -183,6 +196,16 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      * Sets results list for search
      */
     public boolean setSearchResults(ArrayList<AdapterItem> results) {
+        return setSearchResults(results, null);
+    }
+
+    /**
+     * Sets results list for search
+     *
+     * @param onItemsUpdated Called once the adapter items include the results
+     */
+    public boolean setSearchResults(ArrayList<AdapterItem> results,
+            @Nullable Runnable onItemsUpdated) {
         if (Objects.equals(results, mSearchResults)) {
             return false;
         }
@@ -190,7 +213,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         if (results != null) {
             mSearchResults.addAll(results);
         }
-        updateAdapterItems();
+        updateAdapterItems(onItemsUpdated);
         return true;
     }
 
@@ -202,113 +225,270 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         if (mAllAppsStore == null) {
             return;
         }
-        // Sort the list of apps
-        mApps.clear();
-
-        Stream<AppInfo> appSteam = Stream.of(mAllAppsStore.getApps());
-        if (!hasSearchResults() && mItemFilter != null) {
-            appSteam = appSteam.filter(mItemFilter);
-        }
-        appSteam = appSteam.sorted(mAppNameComparator);
+        sortApps();
 
         // As a special case for some languages (currently only Simplified Chinese), we may need to
         // coalesce sections
+        mApps.clear();
         Locale curLocale = mActivityContext.getResources().getConfiguration().locale;
         boolean localeRequiresSectionSorting = curLocale.equals(Locale.SIMPLIFIED_CHINESE);
         if (localeRequiresSectionSorting) {
             // Compute the section headers. We use a TreeMap with the section name comparator to
             // ensure that the sections are ordered when we iterate over it later
-            appSteam = appSteam.collect(Collectors.groupingBy(
+            mSortedApps.stream().collect(Collectors.groupingBy(
                     info -> info.sectionName,
                     () -> new TreeMap<>(new LabelComparator()),
                     Collectors.toCollection(ArrayList::new)))
                     .values()
-                    .stream()
-                    .flatMap(ArrayList::stream);
+                    .forEach(mApps::addAll);
+        } else {
+            mApps.addAll(mSortedApps);
         }
 
-        appSteam.forEachOrdered(mApps::add);
         // Recompose the set of adapter items from the current set of apps
         if (mSearchResults.isEmpty()) {
             updateAdapterItems();
         }
     }
 
+    /**
+     * Updates {@link #mSortedApps} with the filtered apps from the store. Apps which were already
+     * sorted and whose title did not change keep their relative order, so only the changed apps
+     * are sorted and then merged with them.
+     */
+    private void sortApps() {
+        Set<AppInfo> changedApps = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (AppInfo info : mAllAppsStore.getApps()) {
+            if (hasSearchResults() || mItemFilter == null || mItemFilter.test(info)) {
+                changedApps.add(info);
+            }
+        }
+
+        ArrayList<AppInfo> unchanged = new ArrayList<>(mSortedApps.size());
+        for (AppInfo info : mSortedApps) {
+            if (changedApps.contains(info)
+                    && mAppNameComparator.isSortKeyValid(mSortKeys.get(info), info)) {
+                changedApps.remove(info);
+                unchanged.add(info);
+            }
+        }
+        ArrayList<AppInfo> changed = new ArrayList<>(changedApps);
+        changed.sort(mAppNameComparator);
+
+        mSortedApps.clear();
+        int i = 0;
+        int j = 0;
+        while (i < unchanged.size() && j < changed.size()) {
+            if (mAppNameComparator.compare(unchanged.get(i), changed.get(j)) <= 0) {
+                mSortedApps.add(unchanged.get(i++));
+            } else {
+                mSortedApps.add(changed.get(j++));
+            }
+        }
+        mSortedApps.addAll(unchanged.subList(i, unchanged.size()));
+        mSortedApps.addAll(changed.subList(j, changed.size()));
+
+        mSortKeys.clear();
+        for (AppInfo info : mSortedApps) {
+            mSortKeys.put(info, mAppNameComparator.getSortKey(info));
+        }
+    }
+
     /**
      * Updates the set of filtered apps with the current filter. At this point, we expect
      * mCachedSectionNames to have been calculated for the set of all apps in mApps.
+     *
+     * The adapter items are composed and diffed against the current ones on a background thread,
+     * and are only applied if no other update was requested in the meantime.
      */
     public void updateAdapterItems() {
-        List<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
-        // Prepare to update the list of sections, filtered apps, etc.
-        mFastScrollerSections.clear();
-        mAdapterItems.clear();
-        mAccessibilityResultsCount = 0;
-
-        // Recreate the filtered and sectioned apps (for convenience for the grid layout) from the
-        // ordered set of sections
-        if (hasSearchResults()) {
-            mAdapterItems.addAll(mSearchResults);
-            if (!FeatureFlags.ENABLE_DEVICE_SEARCH.get()) {
-                // Append the search market item
-                if (hasNoFilteredResults()) {
-                    mAdapterItems.add(new AdapterItem(VIEW_TYPE_EMPTY_SEARCH));
-                } else {
-                    mAdapterItems.add(new AdapterItem(VIEW_TYPE_ALL_APPS_DIVIDER));
-                }
-                mAdapterItems.add(new AdapterItem(VIEW_TYPE_SEARCH_MARKET));
+        updateAdapterItems(null);
+    }
+
+    private void updateAdapterItems(@Nullable Runnable onItemsUpdated) {
+        if (onItemsUpdated != null) {
+            mOnItemsUpdatedCallbacks.add(onItemsUpdated);
+        }
+        int generation = ++mUpdateGeneration;
+        ArrayList<AdapterItem> workItems = new ArrayList<>();
+        boolean showApps = true;
+        if (mWorkAdapterProvider != null) {
+            mWorkAdapterProvider.addWorkItems(workItems);
+            showApps = mWorkAdapterProvider.shouldShowWorkApps();
+        }
+        AdapterItemsUpdate update = new AdapterItemsUpdate(new ArrayList<>(mAdapterItems),
+                showApps ? new ArrayList<>(mApps) : Collections.emptyList(),
+                new ArrayList<>(mSearchResults), workItems);
+
+        if (mAdapter == null || mAdapterItems.isEmpty()) {
+            // Nothing is shown yet, so apply the items right away to avoid an empty frame
+            update.compose(mNumAppsPerRowAllApps, false /* calculateDiff */);
+            applyUpdate(update);
+            return;
+        }
+        UI_HELPER_EXECUTOR.execute(() -> {
+            if (generation != mUpdateGeneration) {
+                return;
             }
-        } else {
-            int position = 0;
-            if (mWorkAdapterProvider != null) {
-                position += mWorkAdapterProvider.addWorkItems(mAdapterItems);
-                if (!mWorkAdapterProvider.shouldShowWorkApps()) {
-                    return;
+            update.compose(mNumAppsPerRowAllApps, true /* calculateDiff */);
+            MAIN_EXECUTOR.execute(() -> {
+                if (generation == mUpdateGeneration) {
+                    applyUpdate(update);
                 }
+            });
+        });
+    }
+
+    private void applyUpdate(AdapterItemsUpdate update) {
+        // The diff is only valid if the items were not modified since it was calculated
+        boolean diffValid = update.diffResult != null
+                && isSameItems(update.oldItems, mAdapterItems);
+
+        update.assignRows();
+        mAdapterItems.clear();
+        mAdapterItems.addAll(update.items);
+        mFastScrollerSections.clear();
+        mFastScrollerSections.addAll(update.fastScrollerSections);
+        mAccessibilityResultsCount = update.accessibilityResultsCount;
+        if (mNumAppsPerRowAllApps != 0) {
+            mNumAppRowsInAdapter = update.numAppRows;
+        }
+
+        if (mAdapter != null) {
+            if (diffValid) {
+                update.diffResult.dispatchUpdatesTo(mAdapter);
+            } else if (update.diffResult != null || !update.oldItems.isEmpty()) {
+                mAdapter.notifyDataSetChanged();
+            } else {
+                mAdapter.notifyItemRangeInserted(0, mAdapterItems.size());
             }
-            String lastSectionName = null;
-            for (AppInfo info : mApps) {
-                mAdapterItems.add(AdapterItem.asApp(info));
-
-                String sectionName = info.sectionName;
-                // Create a new section if the section names do not match
-                if (!sectionName.equals(lastSectionName)) {
-                    lastSectionName = sectionName;
-                    mFastScrollerSections.add(new FastScrollSectionInfo(sectionName, position));
-                }
-                position++;
+        }
+
+        // Callbacks of dropped updates are also run, as their changes are included in this one
+        ArrayList<Runnable> callbacks = new ArrayList<>(mOnItemsUpdatedCallbacks);
+        mOnItemsUpdatedCallbacks.clear();
+        callbacks.forEach(Runnable::run);
+    }
+
+    private static boolean isSameItems(List<AdapterItem> a, List<AdapterItem> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
             }
         }
-        mAccessibilityResultsCount = (int) mAdapterItems.stream()
-                .filter(AdapterItem::isCountedForAccessibility).count();
+        return true;
+    }
 
-        if (mNumAppsPerRowAllApps != 0) {
-            // Update the number of rows in the adapter after we do all the merging (otherwise, we
-            // would have to shift the values again)
-            int numAppsInSection = 0;
-            int numAppsInRow = 0;
-            int rowIndex = -1;
-            for (AdapterItem item : mAdapterItems) {
-                item.rowIndex = 0;
-                if (BaseAllAppsAdapter.isDividerViewType(item.viewType)) {
-                    numAppsInSection = 0;
-                } else if (BaseAllAppsAdapter.isIconViewType(item.viewType)) {
-                    if (numAppsInSection % mNumAppsPerRowAllApps == 0) {
-                        numAppsInRow = 0;
-                        rowIndex++;
+    /**
+     * The adapter items composed from a snapshot of the apps and search results, which can be
+     * computed off the main thread.
+     */
+    private static class AdapterItemsUpdate {
+
+        final List<AdapterItem> oldItems;
+        final List<AppInfo> apps;
+        final List<AdapterItem> searchResults;
+
+        final ArrayList<AdapterItem> items;
+        final ArrayList<FastScrollSectionInfo> fastScrollerSections = new ArrayList<>();
+        int accessibilityResultsCount = 0;
+        int numAppRows;
+        // The row of each item, only assigned to the items on the main thread by assignRows()
+        // as the search results and work items are shared with the current adapter items.
+        @Nullable int[] rowIndices;
+        @Nullable int[] rowAppIndices;
+        @Nullable DiffUtil.DiffResult diffResult;
+
+        AdapterItemsUpdate(List<AdapterItem> oldItems, List<AppInfo> apps,
+                List<AdapterItem> searchResults, ArrayList<AdapterItem> workItems) {
+            this.oldItems = oldItems;
+            this.apps = apps;
+            this.searchResults = searchResults;
+            this.items = searchResults.isEmpty() ? workItems : new ArrayList<>();
+        }
+
+        void compose(int numAppsPerRow, boolean calculateDiff) {
+            // Recreate the filtered and sectioned apps (for convenience for the grid layout) from
+            // the ordered set of sections
+            if (!searchResults.isEmpty()) {
+                items.addAll(searchResults);
+                if (!FeatureFlags.ENABLE_DEVICE_SEARCH.get()) {
+                    // Append the search market item
+                    if (accessibilityResultsCount == 0) {
+                        items.add(new AdapterItem(VIEW_TYPE_EMPTY_SEARCH));
+                    } else {
+                        items.add(new AdapterItem(VIEW_TYPE_ALL_APPS_DIVIDER));
+                    }
+                    items.add(new AdapterItem(VIEW_TYPE_SEARCH_MARKET));
+                }
+            } else {
+                // Work items were already added at the top of the list
+                int position = items.size();
+                String lastSectionName = null;
+                for (AppInfo info : apps) {
+                    items.add(AdapterItem.asApp(info));
+
+                    String sectionName = info.sectionName;
+                    // Create a new section if the section names do not match
+                    if (!sectionName.equals(lastSectionName)) {
+                        lastSectionName = sectionName;
+                        fastScrollerSections.add(new FastScrollSectionInfo(sectionName, position));
+                    }
+                    position++;
+                }
+            }
+            accessibilityResultsCount = (int) items.stream()
+                    .filter(AdapterItem::isCountedForAccessibility).count();
+
+            if (numAppsPerRow != 0) {
+                // Update the number of rows in the adapter after we do all the merging (otherwise,
+                // we would have to shift the values again)
+                int numAppsInSection = 0;
+                int numAppsInRow = 0;
+                int rowIndex = -1;
+                rowIndices = new int[items.size()];
+                rowAppIndices = new int[items.size()];
+                for (int i = 0; i < items.size(); i++) {
+                    AdapterItem item = items.get(i);
+                    if (BaseAllAppsAdapter.isDividerViewType(item.viewType)) {
+                        numAppsInSection = 0;
+                    } else if (BaseAllAppsAdapter.isIconViewType(item.viewType)) {
+                        if (numAppsInSection % numAppsPerRow == 0) {
+                            numAppsInRow = 0;
+                            rowIndex++;
+                        }
+                        rowIndices[i] = rowIndex;
+                        rowAppIndices[i] = numAppsInRow;
+                        numAppsInSection++;
+                        numAppsInRow++;
                     }
-                    item.rowIndex = rowIndex;
-                    item.rowAppIndex = numAppsInRow;
-                    numAppsInSection++;
-                    numAppsInRow++;
                 }
+                numAppRows = rowIndex + 1;
+            }
+
+            if (calculateDiff) {
+                diffResult = DiffUtil.calculateDiff(new MyDiffCallback(oldItems, items), false);
             }
-            mNumAppRowsInAdapter = rowIndex + 1;
         }
 
-        if (mAdapter != null) {
-            DiffUtil.calculateDiff(new MyDiffCallback(oldItems, mAdapterItems), false)
-                    .dispatchUpdatesTo(mAdapter);
+        /**
+         * Assigns the rows computed by {@link #compose} to the items. Must be called on the main
+         * thread, before the items are published to the adapter.
+         */
+        void assignRows() {
+            if (rowIndices == null) {
+                return;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                AdapterItem item = items.get(i);
+                item.rowIndex = rowIndices[i];
+                if (BaseAllAppsAdapter.isIconViewType(item.viewType)) {
+                    item.rowAppIndex = rowAppIndices[i];
+                }
+            }
         }
     }
 
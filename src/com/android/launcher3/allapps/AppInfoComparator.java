@@ -19,6 +19,8 @@ import android.content.Context;
 import android.os.Process;
 import android.os.UserHandle;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.util.LabelComparator;
@@ -43,9 +45,7 @@ public class AppInfoComparator implements Comparator<AppInfo> {
     @Override
     public int compare(AppInfo a, AppInfo b) {
         // Order by the title in the current locale
-        int result = mLabelComparator.compare(
-                a.title == null ? "" : a.title.toString(),
-                b.title == null ? "" : b.title.toString());
+        int result = getSortKey(a).compareTo(getSortKey(b));
         if (result != 0) {
             return result;
         }
@@ -64,4 +64,24 @@ public class AppInfoComparator implements Comparator<AppInfo> {
             return aUserSerial.compareTo(bUserSerial);
         }
     }
+
+    /**
+     * Returns the key {@param info} is sorted with, which is recomputed if its title changed.
+     * The key is shared with the other comparators which sort the same app.
+     */
+    public LabelComparator.SortKey getSortKey(AppInfo info) {
+        if (!mLabelComparator.isSortKeyValid(info.sortKey, info.title)) {
+            info.sortKey = mLabelComparator.getSortKey(info.title);
+        }
+        return info.sortKey;
+    }
+
+    /**
+     * Returns true if {@param key}, previously returned by {@link #getSortKey} for
+     * {@param info}, is still up to date with its title, meaning that its position relative to
+     * other apps did not change since it was sorted with that key.
+     */
+    public boolean isSortKeyValid(@Nullable LabelComparator.SortKey key, AppInfo info) {
+        return mLabelComparator.isSortKeyValid(key, info.title);
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps.search;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.search.SearchRequestQueue;
+import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Search index over app titles used by {@link DefaultAppSearchAlgorithm}.
+ *
+ * The normalized title and word breaks of each app are computed once when the apps change.
+ * When a query extends the previous one (eg, the user typed another character), only the apps
+ * which matched the previous query are checked again.
+ */
+public class AppSearchIndex {
+
+    private static final Entry[] EMPTY_ENTRIES = new Entry[0];
+
+    // Number of apps checked between two checks for cancellation
+    private static final int CANCELLATION_CHECK_INTERVAL = 32;
+
+    // Apps whose title starts with the query rank above apps matching on a later word
+    private static final Comparator<Match> RANK_COMPARATOR =
+            (a, b) -> Boolean.compare(a.index != 0, b.index != 0);
+
+    private final StringMatcher mMatcher = StringMatcher.getInstance();
+
+    private Entry[] mEntries = EMPTY_ENTRIES;
+
+    // Matches for the last query, used to narrow down the next query if it extends this one
+    private String mLastQuery;
+    private Entry[] mLastMatches;
+
+    /**
+     * Rebuilds the index for the provided apps
+     */
+    @WorkerThread
+    public synchronized void setApps(@NonNull AppInfo[] apps) {
+        ArrayList<Entry> entries = new ArrayList<>(apps.length);
+        for (AppInfo app : apps) {
+            if (app.title != null) {
+                entries.add(new Entry(app));
+            }
+        }
+        mEntries = entries.toArray(EMPTY_ENTRIES);
+        mLastQuery = null;
+        mLastMatches = null;
+    }
+
+    /**
+     * Returns up to {@param maxResults} apps whose title matches the {@param query}, ranked by
+     * how well they match. Partial results are delivered to the {@param request} while the
+     * index is scanned.
+     *
+     * @return the results, or null if the request was cancelled before completion.
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized ArrayList<AdapterItem> search(@NonNull String query, int maxResults,
+            @NonNull SearchRequestQueue<AdapterItem>.Request request) {
+        final String queryTextLower = query.toLowerCase();
+
+        Entry[] candidates = mEntries;
+        if (mLastQuery != null && queryTextLower.startsWith(mLastQuery)
+                && StringMatcherUtility.requestSimpleFuzzySearch(mLastQuery)
+                        == StringMatcherUtility.requestSimpleFuzzySearch(queryTextLower)) {
+            candidates = mLastMatches;
+        }
+
+        ArrayList<Match> matches = new ArrayList<>();
+        for (int i = 0; i < candidates.length; i++) {
+            if (i % CANCELLATION_CHECK_INTERVAL == 0 && i > 0) {
+                if (request.isCancelled()) {
+                    return null;
+                }
+                if (request.shouldDeliverPartialResult()) {
+                    request.deliver(getRankedResults(matches, maxResults));
+                }
+            }
+
+            Entry entry = candidates[i];
+            int index = StringMatcherUtility.getMatchIndex(queryTextLower, entry.title,
+                    entry.titleLower, entry.wordBreaks, mMatcher);
+            if (index >= 0) {
+                matches.add(new Match(entry, index));
+            }
+        }
+
+        Entry[] matchedEntries = new Entry[matches.size()];
+        for (int i = 0; i < matchedEntries.length; i++) {
+            matchedEntries[i] = matches.get(i).entry;
+        }
+        mLastQuery = queryTextLower;
+        mLastMatches = matchedEntries;
+
+        return getRankedResults(matches, maxResults);
+    }
+
+    private static ArrayList<AdapterItem> getRankedResults(
+            ArrayList<Match> matches, int maxResults) {
+        ArrayList<Match> ranked = new ArrayList<>(matches);
+        // List.sort is stable, so apps with the same rank keep their order
+        ranked.sort(RANK_COMPARATOR);
+
+        int count = Math.min(maxResults, ranked.size());
+        ArrayList<AdapterItem> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(AdapterItem.asApp(ranked.get(i).entry.app));
+        }
+        return result;
+    }
+
+    private static class Entry {
+
+        final AppInfo app;
+        final String title;
+        final String titleLower;
+        final int[] wordBreaks;
+
+        Entry(AppInfo app) {
+            this.app = app;
+            title = app.title.toString();
+            titleLower = title.toLowerCase();
+            wordBreaks = StringMatcherUtility.getWordBreaks(title);
+        }
+    }
+
+    private static class Match {
+
+        final Entry entry;
+        // Index in the title where the query matched
+        final int index;
+
+        Match(Entry entry, int index) {
+            this.entry = entry;
+            this.index = index;
+        }
+    }
+}
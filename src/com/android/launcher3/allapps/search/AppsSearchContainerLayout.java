@@ -57,6 +57,7 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     private final SpannableStringBuilder mSearchQueryBuilder;
 
     private ActivityAllAppsContainerView<?> mAppsView;
+    private DefaultAppSearchAlgorithm mSearchAlgorithm;
 
     // The amount of pixels to shift down and overlap with the rest of the content.
     private final int mContentOverlap;
@@ -85,8 +86,11 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if(mAppsView != null)
+        if(mAppsView != null) {
             mAppsView.getAppsStore().addUpdateListener(this);
+            // The apps may have changed while detached
+            mSearchAlgorithm.onAppsUpdated();
+        }
     }
 
     @Override
@@ -131,13 +135,13 @@ public class AppsSearchContainerLayout extends ExtendedEditText
     @Override
     public void initializeSearch(ActivityAllAppsContainerView<?> appsView) {
         mAppsView = appsView;
-        mSearchBarController.initialize(
-                new DefaultAppSearchAlgorithm(getContext()),
-                this, mLauncher, this);
+        mSearchAlgorithm = new DefaultAppSearchAlgorithm(appsView.getAppsStore());
+        mSearchBarController.initialize(mSearchAlgorithm, this, mLauncher, this);
     }
 
     @Override
     public void onAppsUpdated() {
+        mSearchAlgorithm.onAppsUpdated();
         mSearchBarController.refreshSearchResult();
     }
 
@@ -15,21 +15,16 @@
  */
 package com.android.launcher3.allapps.search;
 
-import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
-
-import android.content.Context;
-import android.os.Handler;
+import static com.android.launcher3.util.Executors.SEARCH_EXECUTOR;
 
 import androidx.annotation.AnyThread;
 
-import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.allapps.AllAppsStore;
 import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
-import com.android.launcher3.model.AllAppsList;
-import com.android.launcher3.model.BaseModelUpdateTask;
-import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.search.SearchAlgorithm;
 import com.android.launcher3.search.SearchCallback;
+import com.android.launcher3.search.SearchRequestQueue;
 import com.android.launcher3.search.StringMatcherUtility;
 
 import java.util.ArrayList;
@@ -42,30 +37,39 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
 
     private static final int MAX_RESULTS_COUNT = 5;
 
-    private final LauncherAppState mAppState;
-    private final Handler mResultHandler;
+    private final AllAppsStore mAppsStore;
+    private final SearchRequestQueue<AdapterItem> mRequestQueue = new SearchRequestQueue<>();
+    private final AppSearchIndex mIndex = new AppSearchIndex();
+
+    public DefaultAppSearchAlgorithm(AllAppsStore appsStore) {
+        mAppsStore = appsStore;
+        onAppsUpdated();
+    }
 
-    public DefaultAppSearchAlgorithm(Context context) {
-        mAppState = LauncherAppState.getInstance(context);
-        mResultHandler = new Handler(MAIN_EXECUTOR.getLooper());
+    /**
+     * Rebuilds the index from the apps in the store. Must be called by the owner whenever the
+     * apps in the store change.
+     */
+    public void onAppsUpdated() {
+        AppInfo[] apps = mAppsStore.getApps();
+        SEARCH_EXECUTOR.post(() -> mIndex.setApps(apps));
     }
 
     @Override
     public void cancel(boolean interruptActiveRequests) {
+        // A new query supersedes the active one, so it only needs to be cancelled explicitly
+        // when no new query follows.
         if (interruptActiveRequests) {
-            mResultHandler.removeCallbacksAndMessages(null);
+            mRequestQueue.cancel();
         }
     }
 
     @Override
     public void doSearch(String query, SearchCallback<AdapterItem> callback) {
-        mAppState.getModel().enqueueModelUpdateTask(new BaseModelUpdateTask() {
-            @Override
-            public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
-                ArrayList<AdapterItem> result = getTitleMatchResult(apps.data, query);
-                mResultHandler.post(() -> callback.onSearchResult(query, result));
-            }
-        });
+        // The index is updated on the same executor, so any pending app updates are applied
+        // before the search runs.
+        mRequestQueue.submit(query, callback,
+                request -> mIndex.search(query, MAX_RESULTS_COUNT, request));
     }
 
     /**
@@ -142,6 +142,16 @@ public final class FeatureFlags {
             true,
             "Enable loading workspace icons in bulk.");
 
+    public static final BooleanFlag ENABLE_STREAMING_WORKSPACE_LOADING = getDebugFlag(
+            "ENABLE_STREAMING_WORKSPACE_LOADING",
+            false,
+            "Load and bind the hotseat and the first pages before the rest of the workspace.");
+
+    public static final BooleanFlag ENABLE_MODEL_SNAPSHOT = getDebugFlag(
+            "ENABLE_MODEL_SNAPSHOT",
+            false,
+            "Bind a snapshot of the last loaded model on cold start, while the model is loaded.");
+
     public static final BooleanFlag ENABLE_BULK_ALL_APPS_ICON_LOADING = getDebugFlag(
             "ENABLE_BULK_ALL_APPS_ICON_LOADING",
             true,
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.dot;
+
+import android.util.ArraySet;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.util.PackageUserKey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Index of the attached icons which can show a notification dot, by the package and user of their
+ * item, so that a dot update only visits the icons of the updated packages instead of every
+ * bound item.
+ */
+@UiThread
+public class DotViewIndex {
+
+    private final HashMap<PackageUserKey, ArraySet<BubbleTextView>> mIcons = new HashMap<>();
+    // Folder dots depend on all their contents, which can change while attached
+    private final ArraySet<FolderIcon> mFolderIcons = new ArraySet<>();
+
+    private final PackageUserKey mTempKey = new PackageUserKey(null, null);
+
+    /**
+     * Adds an icon bound to {@param info}.
+     *
+     * @return the key the icon was added with, to be used with {@link #removeIcon}, or null if the
+     *         item cannot have a dot
+     */
+    @Nullable
+    public PackageUserKey addIcon(BubbleTextView icon, ItemInfo info) {
+        PackageUserKey key = new PackageUserKey(null, null);
+        if (!key.updateFromItemInfo(info)) {
+            return null;
+        }
+        mIcons.computeIfAbsent(key, k -> new ArraySet<>(1)).add(icon);
+        return key;
+    }
+
+    /**
+     * Removes an icon previously added with the given key.
+     */
+    public void removeIcon(BubbleTextView icon, PackageUserKey key) {
+        ArraySet<BubbleTextView> icons = mIcons.get(key);
+        if (icons != null && icons.remove(icon) && icons.isEmpty()) {
+            mIcons.remove(key);
+        }
+    }
+
+    public void addFolderIcon(FolderIcon icon) {
+        mFolderIcons.add(icon);
+    }
+
+    public void removeFolderIcon(FolderIcon icon) {
+        mFolderIcons.remove(icon);
+    }
+
+    /**
+     * Reapplies the dot state of the icons whose package and user match {@param updatedDots}.
+     */
+    public void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
+        for (Map.Entry<PackageUserKey, ArraySet<BubbleTextView>> entry : mIcons.entrySet()) {
+            if (updatedDots.test(entry.getKey())) {
+                ArraySet<BubbleTextView> icons = entry.getValue();
+                for (int i = icons.size() - 1; i >= 0; i--) {
+                    BubbleTextView icon = icons.valueAt(i);
+                    icon.applyDotState((ItemInfo) icon.getTag(), true /* animate */);
+                }
+            }
+        }
+
+        Predicate<ItemInfo> matcher = info -> !mTempKey.updateFromItemInfo(info)
+                || updatedDots.test(mTempKey);
+        for (int i = mFolderIcons.size() - 1; i >= 0; i--) {
+            FolderIcon folderIcon = mFolderIcons.valueAt(i);
+            if (folderIcon.mInfo.contents.stream().anyMatch(matcher)) {
+                folderIcon.updateDotInfo();
+            }
+        }
+    }
+}
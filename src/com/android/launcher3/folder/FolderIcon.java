@@ -58,6 +58,7 @@ import com.android.launcher3.Workspace;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.anim.Interpolators;
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dot.FolderDotInfo;
 import com.android.launcher3.dragndrop.BaseItemDragListener;
 import com.android.launcher3.dragndrop.DragLayer;
@@ -213,11 +214,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         icon.setContentDescription(icon.getAccessiblityTitle(folderInfo.title));
 
         // Keep the notification dot up to date with the sum of all the content's dots.
-        FolderDotInfo folderDotInfo = new FolderDotInfo();
-        for (WorkspaceItemInfo si : folderInfo.contents) {
-            folderDotInfo.addDotInfo(activity.getDotInfoForItem(si));
-        }
-        icon.setDotInfo(folderDotInfo);
+        icon.updateDotInfo();
 
         icon.setAccessibilityDelegate(activity.getAccessibilityDelegate());
 
@@ -509,6 +506,35 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         mDotInfo = dotInfo;
     }
 
+    /**
+     * Recomputes the dot from the dots of all the folder contents.
+     */
+    public void updateDotInfo() {
+        FolderDotInfo folderDotInfo = new FolderDotInfo();
+        for (WorkspaceItemInfo si : mInfo.contents) {
+            folderDotInfo.addDotInfo(mActivity.getDotInfoForItem(si));
+        }
+        setDotInfo(folderDotInfo);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        DotViewIndex dotViewIndex = mActivity == null ? null : mActivity.getDotViewIndex();
+        if (dotViewIndex != null) {
+            dotViewIndex.addFolderIcon(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        DotViewIndex dotViewIndex = mActivity == null ? null : mActivity.getDotViewIndex();
+        if (dotViewIndex != null) {
+            dotViewIndex.removeFolderIcon(this);
+        }
+    }
+
     public ClippedFolderIconLayoutRule getLayoutRule() {
         return mPreviewLayoutRule;
     }
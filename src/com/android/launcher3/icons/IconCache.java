@@ -19,6 +19,7 @@ package com.android.launcher3.icons;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 import static com.android.launcher3.widget.WidgetSections.NO_CATEGORY;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -41,6 +42,7 @@ import android.os.Process;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -70,10 +72,14 @@ import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.WidgetSections.WidgetSection;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -85,6 +91,9 @@ public class IconCache extends BaseIconCache {
 
     private static final String TAG = "Launcher.IconCache";
 
+    // Number of locks used to render fallback icons in parallel, see #getFallbackRenderLock
+    private static final int FALLBACK_RENDER_LOCK_COUNT = 16;
+
     private final Predicate<ItemInfoWithIcon> mIsUsingFallbackOrNonDefaultIconCheck = w ->
             w.bitmap != null && (w.bitmap.isNullOrLowRes() || !isDefaultIcon(w.bitmap, w.user));
 
@@ -99,6 +108,8 @@ public class IconCache extends BaseIconCache {
 
     private final SparseArray<BitmapInfo> mWidgetCategoryBitmapInfos;
 
+    private final Object[] mFallbackRenderLocks = new Object[FALLBACK_RENDER_LOCK_COUNT];
+
     private int mPendingIconRequestCount = 0;
 
     public IconCache(Context context, InvariantDeviceProfile idp) {
@@ -117,6 +128,9 @@ public class IconCache extends BaseIconCache {
         mInstantAppResolver = InstantAppResolver.newInstance(mContext);
         mIconProvider = IconProvider;
         mWidgetCategoryBitmapInfos = new SparseArray<>();
+        for (int i = 0; i < FALLBACK_RENDER_LOCK_COUNT; i++) {
+            mFallbackRenderLocks[i] = new Object();
+        }
     }
 
     @Override
@@ -341,9 +355,103 @@ public class IconCache extends BaseIconCache {
 
     /**
      * Load and fill icons requested in iconRequestInfos using a single bulk sql query.
+     *
+     * Icons missing from the database are then rendered in parallel on
+     * {@link com.android.launcher3.util.Executors#THREAD_POOL_EXECUTOR}, outside of the cache
+     * lock.
      */
-    public synchronized <T extends ItemInfoWithIcon> void getTitlesAndIconsInBulk(
+    public <T extends ItemInfoWithIcon> void getTitlesAndIconsInBulk(
             List<IconRequestInfo<T>> iconRequestInfos) {
+        List<FallbackRequest<T>> fallbackRequests = new ArrayList<>();
+        synchronized (this) {
+            loadTitlesAndIconsInBulkLocked(iconRequestInfos, fallbackRequests);
+        }
+        if (fallbackRequests.isEmpty()) {
+            return;
+        }
+
+        Trace.beginSection("loadFallbackIconsInParallel");
+        try {
+            List<Callable<Void>> renderTasks = new ArrayList<>(fallbackRequests.size());
+            for (FallbackRequest<T> request : fallbackRequests) {
+                renderTasks.add(() -> {
+                    renderFallback(request);
+                    return null;
+                });
+            }
+            for (Future<Void> future : THREAD_POOL_EXECUTOR.invokeAll(renderTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Error loading fallback icons", e);
+        } finally {
+            Trace.endSection();
+        }
+
+        // Apply on the calling thread, once all the icons are available
+        for (FallbackRequest<T> request : fallbackRequests) {
+            for (IconRequestInfo<T> iconRequest : request.iconRequests) {
+                applyCacheEntry(request.entry, iconRequest.itemInfo);
+            }
+        }
+    }
+
+    /**
+     * Fills in the titles and icons of {@param items} which are present in the icon database,
+     * without querying the package manager.
+     *
+     * @return the items which could not be loaded, those are left unchanged
+     */
+    public synchronized <T extends ItemInfoWithIcon> List<T> getCachedTitlesAndIconsInBulk(
+            List<T> items, boolean useLowResIcons) {
+        List<T> missingItems = new ArrayList<>();
+        Map<UserHandle, List<IconRequestInfo<T>>> requestsByUser = new ArrayMap<>();
+        for (T item : items) {
+            if (item.getTargetComponent() == null || item.itemType == ITEM_TYPE_DEEP_SHORTCUT) {
+                missingItems.add(item);
+            } else {
+                requestsByUser.computeIfAbsent(item.user, u -> new ArrayList<>())
+                        .add(new IconRequestInfo<>(item, null, useLowResIcons));
+            }
+        }
+
+        Trace.beginSection("loadCachedIconsInBulk");
+        requestsByUser.forEach((user, requests) -> {
+            Map<ComponentName, List<IconRequestInfo<T>>> requestsByComponent = requests.stream()
+                    .collect(groupingBy(request -> request.itemInfo.getTargetComponent()));
+            try (Cursor c = createBulkQueryCursor(requests, user, useLowResIcons)) {
+                int componentNameColumnIndex = c.getColumnIndexOrThrow(IconDB.COLUMN_COMPONENT);
+                while (c.moveToNext()) {
+                    ComponentName cn = ComponentName.unflattenFromString(
+                            c.getString(componentNameColumnIndex));
+                    List<IconRequestInfo<T>> componentRequests =
+                            cn == null ? null : requestsByComponent.remove(cn);
+                    if (componentRequests == null) {
+                        continue;
+                    }
+                    CacheEntry entry = cacheLocked(cn, user, () -> null,
+                            mLauncherActivityInfoCachingLogic, c,
+                            /* usePackageIcon= */ false, useLowResIcons);
+                    if (entry.bitmap == null || isDefaultIcon(entry.bitmap, user)) {
+                        requestsByComponent.put(cn, componentRequests);
+                        continue;
+                    }
+                    for (IconRequestInfo<T> request : componentRequests) {
+                        applyCacheEntry(entry, request.itemInfo);
+                    }
+                }
+            } catch (SQLiteException e) {
+                Log.d(TAG, "Error reading icon cache", e);
+            }
+            requestsByComponent.values().forEach(componentRequests ->
+                    componentRequests.forEach(request -> missingItems.add(request.itemInfo)));
+        });
+        Trace.endSection();
+        return missingItems;
+    }
+
+    private <T extends ItemInfoWithIcon> void loadTitlesAndIconsInBulkLocked(
+            List<IconRequestInfo<T>> iconRequestInfos, List<FallbackRequest<T>> fallbackOut) {
         Map<Pair<UserHandle, Boolean>, List<IconRequestInfo<T>>> iconLoadSubsectionsMap =
                 iconRequestInfos.stream()
                         .filter(iconRequest -> {
@@ -379,7 +487,7 @@ public class IconCache extends BaseIconCache {
                                     iconRequest.itemInfo.getTargetComponent()));
 
             Trace.beginSection("loadIconSubsectionInBulk");
-            loadIconSubsection(sectionKey, filteredList, duplicateIconRequestsMap);
+            loadIconSubsection(sectionKey, filteredList, duplicateIconRequestsMap, fallbackOut);
             Trace.endSection();
         });
         Trace.endSection();
@@ -388,7 +496,8 @@ public class IconCache extends BaseIconCache {
     private <T extends ItemInfoWithIcon> void loadIconSubsection(
             Pair<UserHandle, Boolean> sectionKey,
             List<IconRequestInfo<T>> filteredList,
-            Map<ComponentName, List<IconRequestInfo<T>>> duplicateIconRequestsMap) {
+            Map<ComponentName, List<IconRequestInfo<T>>> duplicateIconRequestsMap,
+            List<FallbackRequest<T>> fallbackOut) {
         Trace.beginSection("loadIconSubsectionWithDatabase");
         try (Cursor c = createBulkQueryCursor(
                 filteredList,
@@ -423,8 +532,7 @@ public class IconCache extends BaseIconCache {
             Trace.endSection();
         }
 
-        Trace.beginSection("loadIconSubsectionWithFallback");
-        // Fallback title and icon loading
+        // Fallback title and icon loading, which is done later outside of the lock
         for (ComponentName cn : duplicateIconRequestsMap.keySet()) {
             IconRequestInfo<T> iconRequestInfo = duplicateIconRequestsMap.get(cn).get(0);
             ItemInfoWithIcon itemInfo = iconRequestInfo.itemInfo;
@@ -439,7 +547,6 @@ public class IconCache extends BaseIconCache {
                         "Database bulk icon loading failed, using fallback bulk icon loading "
                                 + "for: " + cn);
                 CacheEntry entry = new CacheEntry();
-                LauncherActivityInfo lai = iconRequestInfo.launcherActivityInfo;
 
                 // Fill fields that are not updated below so they are not subsequently
                 // deleted.
@@ -449,30 +556,57 @@ public class IconCache extends BaseIconCache {
                 }
                 entry.contentDescription = itemInfo.contentDescription;
 
-                if (loadFallbackIcon) {
-                    loadFallbackIcon(
-                            lai,
-                            entry,
-                            mLauncherActivityInfoCachingLogic,
-                            /* usePackageIcon= */ false,
-                            /* usePackageTitle= */ loadFallbackTitle,
-                            cn,
-                            sectionKey.first);
-                }
-                if (loadFallbackTitle && TextUtils.isEmpty(entry.title) && lai != null) {
-                    loadFallbackTitle(
-                            lai,
-                            entry,
-                            mLauncherActivityInfoCachingLogic,
-                            sectionKey.first);
-                }
+                fallbackOut.add(new FallbackRequest<>(cn, sectionKey.first,
+                        iconRequestInfo.launcherActivityInfo, duplicateIconRequestsMap.get(cn),
+                        entry, loadFallbackTitle, loadFallbackIcon));
+            }
+        }
+    }
 
-                for (IconRequestInfo<T> iconRequest : duplicateIconRequestsMap.get(cn)) {
-                    applyCacheEntry(entry, iconRequest.itemInfo);
-                }
+    /**
+     * Renders the title and icon of a bulk request missing from the database. This doesn't
+     * hold the cache lock: with a non-null activity info, the fallback only goes through the
+     * caching logic. Requests for the same component are serialized using a striped lock.
+     */
+    private <T extends ItemInfoWithIcon> void renderFallback(FallbackRequest<T> request) {
+        LauncherActivityInfo lai = request.launcherActivityInfo;
+        if (lai == null) {
+            // Without an activity info, the fallback may need to look up the package entry
+            // which requires the cache lock.
+            synchronized (this) {
+                renderFallbackLocked(request);
             }
+            return;
+        }
+        synchronized (getFallbackRenderLock(request.cn, request.user)) {
+            renderFallbackLocked(request);
+        }
+    }
+
+    private <T extends ItemInfoWithIcon> void renderFallbackLocked(FallbackRequest<T> request) {
+        if (request.loadFallbackIcon) {
+            loadFallbackIcon(
+                    request.launcherActivityInfo,
+                    request.entry,
+                    mLauncherActivityInfoCachingLogic,
+                    /* usePackageIcon= */ false,
+                    /* usePackageTitle= */ request.loadFallbackTitle,
+                    request.cn,
+                    request.user);
+        }
+        if (request.loadFallbackTitle && TextUtils.isEmpty(request.entry.title)
+                && request.launcherActivityInfo != null) {
+            loadFallbackTitle(
+                    request.launcherActivityInfo,
+                    request.entry,
+                    mLauncherActivityInfoCachingLogic,
+                    request.user);
         }
-        Trace.endSection();
+    }
+
+    private Object getFallbackRenderLock(ComponentName cn, UserHandle user) {
+        return mFallbackRenderLocks[
+                Math.floorMod(Objects.hash(cn, user), FALLBACK_RENDER_LOCK_COUNT)];
     }
 
     /**
@@ -518,6 +652,34 @@ public class IconCache extends BaseIconCache {
         return bitmap.withFlags(getUserFlagOpLocked(user));
     }
 
+    /**
+     * Title and icon of a bulk request which could not be loaded from the database
+     */
+    private static class FallbackRequest<T extends ItemInfoWithIcon> {
+
+        final ComponentName cn;
+        final UserHandle user;
+        @Nullable
+        final LauncherActivityInfo launcherActivityInfo;
+        final List<IconRequestInfo<T>> iconRequests;
+        final CacheEntry entry;
+        final boolean loadFallbackTitle;
+        final boolean loadFallbackIcon;
+
+        FallbackRequest(ComponentName cn, UserHandle user,
+                @Nullable LauncherActivityInfo launcherActivityInfo,
+                List<IconRequestInfo<T>> iconRequests, CacheEntry entry,
+                boolean loadFallbackTitle, boolean loadFallbackIcon) {
+            this.cn = cn;
+            this.user = user;
+            this.launcherActivityInfo = launcherActivityInfo;
+            this.iconRequests = iconRequests;
+            this.entry = entry;
+            this.loadFallbackTitle = loadFallbackTitle;
+            this.loadFallbackIcon = loadFallbackIcon;
+        }
+    }
+
     protected void applyCacheEntry(CacheEntry entry, ItemInfoWithIcon info) {
         info.title = Utilities.trim(entry.title);
         info.contentDescription = entry.contentDescription;
@@ -534,7 +696,7 @@ public class IconCache extends BaseIconCache {
     }
 
     @Override
-    protected String getIconSystemState(String packageName) {
+    public String getIconSystemState(String packageName) {
         return mIconProvider.getSystemStateForPackage(mSystemState, packageName);
     }
 
@@ -2,12 +2,16 @@ package com.android.launcher3.icons.pack;
 
 import android.content.ComponentName;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.util.SparseArray;
 
+import com.android.launcher3.Utilities;
+
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -20,12 +24,14 @@ import java.util.Map;
 class IconPack {
     private final ApplicationInfo mAi;
     private final CharSequence mPackageLabel;
+    private final File mFilesDir;
     private Data mData;
     private Resources mRes;
 
-    IconPack(ApplicationInfo ai, CharSequence label) {
+    IconPack(ApplicationInfo ai, CharSequence label, File filesDir) {
         mAi = ai;
         mPackageLabel = label;
+        mFilesDir = filesDir;
     }
 
     ApplicationInfo getAi() {
@@ -40,20 +46,46 @@ class IconPack {
         return mPackageLabel;
     }
 
-    Data getData(PackageManager pm)
+    /**
+     * Returns the icon pack data, read from the index of this version of the pack if available
+     * or parsed from the appfilter otherwise.
+     */
+    synchronized Data getData(PackageManager pm)
             throws PackageManager.NameNotFoundException, XmlPullParserException, IOException {
         if (mData == null) {
-            mData = IconPackParser.parsePackage(pm, getResources(pm), getPackage());
+            File indexFile = getIndexFile(pm);
+            Data data = IconPackIndex.read(indexFile);
+            if (data == null) {
+                data = IconPackParser.parsePackage(pm, getResources(pm), getPackage());
+                IconPackIndex.deleteFiles(mFilesDir, getPackage(), indexFile);
+                IconPackIndex.write(indexFile, data);
+            }
+            mData = data;
         }
         return mData;
     }
 
+    /**
+     * Deletes the index files of the other versions of the pack, e.g. after it was updated.
+     */
+    void deleteStaleIndexFiles(PackageManager pm) {
+        try {
+            IconPackIndex.deleteFiles(mFilesDir, getPackage(), getIndexFile(pm));
+        } catch (PackageManager.NameNotFoundException e) {
+            IconPackIndex.deleteFiles(mFilesDir, getPackage(), null);
+        }
+    }
+
+    private File getIndexFile(PackageManager pm) throws PackageManager.NameNotFoundException {
+        PackageInfo pi = pm.getPackageInfo(getPackage(), 0);
+        long versionCode = Utilities.ATLEAST_P ? pi.getLongVersionCode() : pi.versionCode;
+        return IconPackIndex.getFile(mFilesDir, getPackage(), versionCode);
+    }
+
     int getDrawableId(PackageManager pm, ComponentName name)
             throws PackageManager.NameNotFoundException, IOException, XmlPullParserException {
-        Data data = getData(pm);
-        Resources res = getResources(pm);
-        String pkg = getPackage();
-        return res.getIdentifier(data.drawables.get(name), "drawable", pkg);
+        Integer drawableId = getData(pm).drawables.get(name);
+        return drawableId == null ? 0 : drawableId;
     }
 
     private Resources getResources(PackageManager pm) throws PackageManager.NameNotFoundException {
@@ -64,7 +96,7 @@ class IconPack {
     }
 
     static class Data {
-        final Map<ComponentName, String> drawables = new HashMap<>();
+        final Map<ComponentName, Integer> drawables = new HashMap<>();
         final Map<ComponentName, String> calendarPrefix = new HashMap<>();
         final SparseArray<Clock> clockMetadata = new SparseArray<>();
         final List<Integer> iconBacks = new ArrayList<>();
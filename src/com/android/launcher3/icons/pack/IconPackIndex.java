@@ -0,0 +1,187 @@
+package com.android.launcher3.icons.pack;
+
+import android.content.ComponentName;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Binary index of the parsed appfilter of an icon pack, with all drawable names already
+ * resolved to resource ids. As resource ids only change with a new build of the icon pack,
+ * the index is stored per package and version code and reused until the pack is updated.
+ */
+class IconPackIndex {
+    private static final String TAG = "IconPackIndex";
+
+    private static final String DIR_NAME = "icon_pack_index";
+    private static final int MAGIC = 0x49504958;
+    private static final int FORMAT_VERSION = 1;
+    // Suffix of the files of a package, see #getFile and #write
+    private static final Pattern FILE_SUFFIX = Pattern.compile("_-?\\d+(\\.tmp)?");
+
+    static File getFile(File filesDir, String pkg, long versionCode) {
+        return new File(new File(filesDir, DIR_NAME), pkg + "_" + versionCode);
+    }
+
+    /**
+     * Deletes the index files of the given icon pack package, except {@param keep}. Files of
+     * other packages whose name starts with {@param pkg} are not matched.
+     */
+    static void deleteFiles(File filesDir, String pkg, File keep) {
+        File[] files = new File(filesDir, DIR_NAME).listFiles(
+                (dir, name) -> name.startsWith(pkg)
+                        && FILE_SUFFIX.matcher(name.substring(pkg.length())).matches());
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.equals(keep)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the index from the memory-mapped file.
+     * @return The icon pack data, or null if the file is missing or invalid.
+     */
+    static IconPack.Data read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            IconPack.Data data = new IconPack.Data();
+            data.scale = buffer.getFloat();
+            readIds(buffer, data.iconBacks);
+            readIds(buffer, data.iconMasks);
+            readIds(buffer, data.iconUpons);
+
+            int drawableCount = buffer.getInt();
+            for (int i = 0; i < drawableCount; i++) {
+                ComponentName cn = ComponentName.unflattenFromString(readString(buffer));
+                int drawableId = buffer.getInt();
+                if (cn != null) {
+                    data.drawables.put(cn, drawableId);
+                }
+            }
+
+            int calendarCount = buffer.getInt();
+            for (int i = 0; i < calendarCount; i++) {
+                ComponentName cn = ComponentName.unflattenFromString(readString(buffer));
+                String prefix = readString(buffer);
+                if (cn != null) {
+                    data.calendarPrefix.put(cn, prefix);
+                }
+            }
+
+            int clockCount = buffer.getInt();
+            for (int i = 0; i < clockCount; i++) {
+                int drawableId = buffer.getInt();
+                data.clockMetadata.put(drawableId, new IconPack.Clock(buffer.getInt(),
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                        buffer.getInt()));
+            }
+            return data;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to read icon pack index " + file, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to the file, replacing any previous content.
+     */
+    static void write(File file, IconPack.Data data) {
+        File dir = file.getParentFile();
+        if (dir == null || (!dir.isDirectory() && !dir.mkdirs())) {
+            return;
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeFloat(data.scale);
+            writeIds(out, data.iconBacks);
+            writeIds(out, data.iconMasks);
+            writeIds(out, data.iconUpons);
+
+            out.writeInt(data.drawables.size());
+            for (Map.Entry<ComponentName, Integer> entry : data.drawables.entrySet()) {
+                writeString(out, entry.getKey().flattenToString());
+                out.writeInt(entry.getValue());
+            }
+
+            out.writeInt(data.calendarPrefix.size());
+            for (Map.Entry<ComponentName, String> entry : data.calendarPrefix.entrySet()) {
+                writeString(out, entry.getKey().flattenToString());
+                writeString(out, entry.getValue());
+            }
+
+            out.writeInt(data.clockMetadata.size());
+            for (int i = 0; i < data.clockMetadata.size(); i++) {
+                IconPack.Clock clock = data.clockMetadata.valueAt(i);
+                out.writeInt(data.clockMetadata.keyAt(i));
+                out.writeInt(clock.hourLayerIndex);
+                out.writeInt(clock.minuteLayerIndex);
+                out.writeInt(clock.secondLayerIndex);
+                out.writeInt(clock.defaultHour);
+                out.writeInt(clock.defaultMinute);
+                out.writeInt(clock.defaultSecond);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write icon pack index " + file, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static void readIds(ByteBuffer buffer, List<Integer> ids) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            ids.add(buffer.getInt());
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, List<Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
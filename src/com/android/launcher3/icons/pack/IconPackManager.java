@@ -74,6 +74,20 @@ public class IconPackManager extends BroadcastReceiver {
 
         // Called when any app has been installed, enabled, disabled, updated or deleted.
         context.getApplicationContext().registerReceiver(this, filter, null, mHandler);
+
+        // Load the index of the global icon pack ahead of the first icon request.
+        mHandler.post(this::preloadGlobalPack);
+    }
+
+    private void preloadGlobalPack() {
+        IconPack pack = mProviders.get(IconDatabase.getGlobal(mContext));
+        if (pack != null) {
+            try {
+                pack.getData(mContext.getPackageManager());
+            } catch (PackageManager.NameNotFoundException | XmlPullParserException | IOException e) {
+                Log.w(TAG, "Unable to preload icon pack " + pack.getPackage(), e);
+            }
+        }
     }
 
     @Override
@@ -94,6 +108,15 @@ public class IconPackManager extends BroadcastReceiver {
                 // This can reset the global preference, so do this after creating the list.
                 reloadProviders();
 
+                // Drop the index files of a removed pack, or of the previous version of an
+                // updated one, which reloadProviders() can't see as the pack was removed above.
+                IconPack pack = mProviders.get(pkg);
+                if (pack != null) {
+                    pack.deleteStaleIndexFiles(mContext.getPackageManager());
+                } else {
+                    IconPackIndex.deleteFiles(mContext.getFilesDir(), pkg, null);
+                }
+
                 // Ensure all icons are up-to-date after this icon pack change.
                 // Calendar and clock information will automatically be reloaded by this call.
                 appReloader.reload(updateKeys);
@@ -119,6 +142,7 @@ public class IconPackManager extends BroadcastReceiver {
             }
             if (!foundPackageName) {
                 mProviders.remove(packageName);
+                IconPackIndex.deleteFiles(mContext.getFilesDir(), packageName, null);
             }
         }
 
@@ -128,7 +152,7 @@ public class IconPackManager extends BroadcastReceiver {
             if (!mProviders.containsKey(packageName)) {
                 ApplicationInfo ai = ri.activityInfo.applicationInfo;
                 CharSequence label = ai.loadLabel(pm);
-                mProviders.put(packageName, new IconPack(ai, label));
+                mProviders.put(packageName, new IconPack(ai, label, mContext.getFilesDir()));
             }
         }
 
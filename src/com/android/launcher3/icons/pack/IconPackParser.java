@@ -10,7 +10,9 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 class IconPackParser {
     private static final String TAG = "IconPackParser";
@@ -18,6 +20,8 @@ class IconPackParser {
     static IconPack.Data parsePackage(PackageManager pm, Resources res, String pkg)
             throws IOException, XmlPullParserException {
         IconPack.Data iconPack = new IconPack.Data();
+        // Many components usually share the same drawable, only look each name up once.
+        Map<String, Integer> drawableIds = new HashMap<>();
 
         int resId = res.getIdentifier("appfilter", "xml", pkg);
         if (resId != 0) {
@@ -26,7 +30,7 @@ class IconPackParser {
                 if (parseXml.getEventType() == XmlPullParser.START_TAG) {
                     switch (parseXml.getName()) {
                         case "item":
-                            addItem(parseXml, iconPack);
+                            addItem(res, pkg, parseXml, iconPack, drawableIds);
                             break;
                         case "calendar":
                             addCalendar(parseXml, iconPack);
@@ -54,14 +58,15 @@ class IconPackParser {
         return iconPack;
     }
 
-    private static void addItem(XmlResourceParser parseXml,
-                                IconPack.Data iconPack) {
+    private static void addItem(Resources res, String pkg, XmlResourceParser parseXml,
+                                IconPack.Data iconPack, Map<String, Integer> drawableIds) {
         String component = parseXml.getAttributeValue(null, "component");
         String drawable = parseXml.getAttributeValue(null, "drawable");
         if (component != null && drawable != null) {
             ComponentName componentName = parseComponent(component);
             if (componentName != null) {
-                iconPack.drawables.put(componentName, drawable);
+                iconPack.drawables.put(componentName, drawableIds.computeIfAbsent(drawable,
+                        name -> res.getIdentifier(name, "drawable", pkg)));
             }
         }
     }
@@ -21,9 +21,13 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public class TrustDatabaseHelper extends SQLiteOpenHelper {
     private static final int DATABASE_VERSION = 1;
     private static final String DATABASE_NAME = "trust_apps_db";
@@ -36,6 +40,15 @@ public class TrustDatabaseHelper extends SQLiteOpenHelper {
     @Nullable
     private static TrustDatabaseHelper sSingleton;
 
+    /**
+     * Write-through copy of the hidden packages, so that lookups on the loader path don't
+     * need to hit the database.
+     */
+    @GuardedBy("this")
+    private final Set<String> mHiddenPackages = new HashSet<>();
+    @GuardedBy("this")
+    private boolean mHiddenPackagesLoaded = false;
+
     private TrustDatabaseHelper(@NonNull Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -76,7 +89,7 @@ public class TrustDatabaseHelper extends SQLiteOpenHelper {
             values.put(KEY_PKGNAME, packageName);
             values.put(KEY_HIDDEN, 1);
 
-            int rows = db.update(TABLE_NAME, values, KEY_PKGNAME + " = ?", new String[]{KEY_PKGNAME});
+            int rows = db.update(TABLE_NAME, values, KEY_PKGNAME + " = ?", new String[]{packageName});
             if (rows != 1) {
                 // Entry doesn't exist, create a new one
                 db.insertOrThrow(TABLE_NAME, null, values);
@@ -84,9 +97,14 @@ public class TrustDatabaseHelper extends SQLiteOpenHelper {
             db.setTransactionSuccessful();
         } catch (Exception e) {
             // Ignored
+            return;
         } finally {
             db.endTransaction();
         }
+
+        synchronized (this) {
+            mHiddenPackages.add(packageName);
+        }
     }
 
     public void removeHiddenApp(@NonNull String packageName) {
@@ -105,36 +123,42 @@ public class TrustDatabaseHelper extends SQLiteOpenHelper {
             db.setTransactionSuccessful();
         } catch (Exception e) {
             // Ignored
+            return;
         } finally {
             db.endTransaction();
         }
-    }
 
-    public boolean isPackageHidden(@NonNull String packageName) {
-        String query = String.format("SELECT * FROM %s WHERE %s = ? AND %s = ?", TABLE_NAME, KEY_PKGNAME, KEY_HIDDEN);
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{packageName, String.valueOf(1)});
-        boolean result = false;
-        try {
-            result = cursor.getCount() != 0;
-        } catch (Exception e) {
-            // Ignored
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
-            }
+        synchronized (this) {
+            mHiddenPackages.remove(packageName);
         }
+    }
+
+    public synchronized boolean isPackageHidden(@NonNull String packageName) {
+        loadHiddenPackagesIfNeeded();
+        return mHiddenPackages.contains(packageName);
+    }
 
-        return result;
+    public synchronized int getTotalPackageHidden() {
+        loadHiddenPackagesIfNeeded();
+        return mHiddenPackages.size();
     }
 
-    public int getTotalPackageHidden() {
-        String query = String.format("SELECT * FROM %s WHERE %s = ?", TABLE_NAME, KEY_HIDDEN);
-        SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{ });
-        int result = 0;
+    @GuardedBy("this")
+    private void loadHiddenPackagesIfNeeded() {
+        if (mHiddenPackagesLoaded) {
+            return;
+        }
+
+        String query = String.format("SELECT %s FROM %s WHERE %s = ?",
+                KEY_PKGNAME, TABLE_NAME, KEY_HIDDEN);
+        Cursor cursor = null;
         try {
-            result = cursor.getCount();
+            SQLiteDatabase db = getReadableDatabase();
+            cursor = db.rawQuery(query, new String[]{String.valueOf(1)});
+            while (cursor.moveToNext()) {
+                mHiddenPackages.add(cursor.getString(0));
+            }
+            mHiddenPackagesLoaded = true;
         } catch (Exception e) {
             // Ignored
         } finally {
@@ -142,7 +166,5 @@ public class TrustDatabaseHelper extends SQLiteOpenHelper {
                 cursor.close();
             }
         }
-
-        return result;
     }
 }
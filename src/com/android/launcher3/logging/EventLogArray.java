@@ -17,16 +17,25 @@ package com.android.launcher3.logging;
 
 
 import android.util.Log;
+
+import androidx.annotation.Nullable;
+
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Random;
+import java.util.function.IntFunction;
 
 /**
  * A utility class to record and log events. Events are stored in a fixed size array and old logs
  * are purged as new events come.
+ *
+ * Events can either be logged as strings, or as ids returned by {@link #registerEvent} along
+ * with primitive extras. The latter does not allocate while logging, as the events are only
+ * formatted when dumped.
  */
 public class EventLogArray {
 
@@ -35,49 +44,130 @@ public class EventLogArray {
     private static final int TYPE_INTEGER = 2;
     private static final int TYPE_BOOL_TRUE = 3;
     private static final int TYPE_BOOL_FALSE = 4;
+    private static final int TYPE_INT_PAIR = 5;
+
+    private static final int NO_EVENT_ID = -1;
+
+    // Registered events, shared by all the logs
+    private static final ArrayList<String> sEventNames = new ArrayList<>();
+    private static final ArrayList<IntFunction<String>> sExtrasFormatters = new ArrayList<>();
 
     private final String name;
-    private final EventEntry[] logs;
+    private final Random mRandom = new Random();
+
+    // Entries are stored in parallel arrays, so that logging does not create any object
+    private final int[] mTypes;
+    private final int[] mEventIds;
+    private final String[] mEvents;
+    private final long[] mExtras;
+    private final long[] mTimes;
+    private final int[] mDuplicateCounts;
+    private final int[] mTraceIds;
+
     private int nextIndex;
+    private int mSize;
     private int mLogId;
 
     public EventLogArray(String name, int size) {
         this.name = name;
-        logs = new EventEntry[size];
+        mTypes = new int[size];
+        mEventIds = new int[size];
+        mEvents = new String[size];
+        mExtras = new long[size];
+        mTimes = new long[size];
+        mDuplicateCounts = new int[size];
+        mTraceIds = new int[size];
         nextIndex = 0;
     }
 
+    /**
+     * Returns the id to log the event with the given name, registering it if needed.
+     */
+    public static int registerEvent(String event) {
+        return registerEvent(event, null);
+    }
+
+    /**
+     * Returns the id to log the event with the given name, registering it if needed.
+     *
+     * @param extrasFormatter Used to format the integer extras of the event when dumped
+     */
+    public static synchronized int registerEvent(
+            String event, @Nullable IntFunction<String> extrasFormatter) {
+        int id = sEventNames.indexOf(event);
+        if (id < 0) {
+            id = sEventNames.size();
+            sEventNames.add(event);
+            sExtrasFormatters.add(extrasFormatter);
+        }
+        return id;
+    }
+
     public void addLog(String event) {
-        addLog(TYPE_ONE_OFF, event, 0);
+        addLog(TYPE_ONE_OFF, NO_EVENT_ID, event, 0);
     }
 
     public void addLog(String event, int extras) {
-        addLog(TYPE_INTEGER, event, extras);
+        addLog(TYPE_INTEGER, NO_EVENT_ID, event, extras);
     }
 
     public void addLog(String event, boolean extras) {
-        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, event, 0);
+        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, NO_EVENT_ID, event, 0);
+    }
+
+    public void addLog(int eventId) {
+        addLog(TYPE_ONE_OFF, eventId, null, 0);
+    }
+
+    public void addLog(int eventId, int extras) {
+        addLog(TYPE_INTEGER, eventId, null, extras);
     }
 
-    private void addLog(int type, String event, float extras) {
+    public void addLog(int eventId, boolean extras) {
+        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, eventId, null, 0);
+    }
+
+    public void addLog(int eventId, float extras) {
+        addLog(TYPE_FLOAT, eventId, null, Float.floatToRawIntBits(extras));
+    }
+
+    /**
+     * Logs the event with a pair of integer extras, like the coordinates of a touch.
+     */
+    public void addLog(int eventId, int first, int second) {
+        addLog(TYPE_INT_PAIR, eventId, null, ((long) first << 32) | (second & 0xFFFFFFFFL));
+    }
+
+    private void addLog(int type, int eventId, @Nullable String event, long extras) {
         // Merge the logs if its a duplicate
-        int last = (nextIndex + logs.length - 1) % logs.length;
-        int secondLast = (nextIndex + logs.length - 2) % logs.length;
-        if (isEntrySame(logs[last], type, event) && isEntrySame(logs[secondLast], type, event)) {
-            logs[last].update(type, event, extras, mLogId);
-            logs[secondLast].duplicateCount++;
+        int last = (nextIndex + mTypes.length - 1) % mTypes.length;
+        int secondLast = (nextIndex + mTypes.length - 2) % mTypes.length;
+        if (mSize >= 2 && isEntrySame(last, type, eventId, event)
+                && isEntrySame(secondLast, type, eventId, event)) {
+            update(last, type, eventId, event, extras);
+            mDuplicateCounts[secondLast]++;
             return;
         }
 
-        if (logs[nextIndex] == null) {
-            logs[nextIndex] = new EventEntry();
-        }
-        logs[nextIndex].update(type, event, extras, mLogId);
-        nextIndex = (nextIndex + 1) % logs.length;
+        update(nextIndex, type, eventId, event, extras);
+        nextIndex = (nextIndex + 1) % mTypes.length;
+        mSize = Math.min(mSize + 1, mTypes.length);
+    }
+
+    private void update(int index, int type, int eventId, @Nullable String event, long extras) {
+        mTypes[index] = type;
+        mEventIds[index] = eventId;
+        mEvents[index] = event;
+        mExtras[index] = extras;
+        mTraceIds[index] = mLogId;
+        mTimes[index] = System.currentTimeMillis();
+        mDuplicateCounts[index] = 0;
     }
 
     public void clear() {
-        Arrays.setAll(logs, (i) -> null);
+        mSize = 0;
+        nextIndex = 0;
+        Arrays.fill(mEvents, null);
     }
 
     public void dump(String prefix, PrintWriter writer) {
@@ -85,16 +175,23 @@ public class EventLogArray {
         SimpleDateFormat sdf = new SimpleDateFormat("  HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
 
-        for (int i = 0; i < logs.length; i++) {
-            EventEntry log = logs[(nextIndex + logs.length - i - 1) % logs.length];
-            if (log == null) {
-                continue;
+        for (int i = 0; i < mSize; i++) {
+            int index = (nextIndex + mTypes.length - i - 1) % mTypes.length;
+            date.setTime(mTimes[index]);
+
+            int eventId = mEventIds[index];
+            IntFunction<String> extrasFormatter = null;
+            StringBuilder msg = new StringBuilder(prefix).append(sdf.format(date));
+            if (eventId == NO_EVENT_ID) {
+                msg.append(mEvents[index]);
+            } else {
+                synchronized (EventLogArray.class) {
+                    msg.append(sEventNames.get(eventId));
+                    extrasFormatter = sExtrasFormatters.get(eventId);
+                }
             }
-            date.setTime(log.time);
-
-            StringBuilder msg = new StringBuilder(prefix).append(sdf.format(date))
-                    .append(log.event);
-            switch (log.type) {
+            long extras = mExtras[index];
+            switch (mTypes[index]) {
                 case TYPE_BOOL_FALSE:
                     msg.append(": false");
                     break;
@@ -102,49 +199,34 @@ public class EventLogArray {
                     msg.append(": true");
                     break;
                 case TYPE_FLOAT:
-                    msg.append(": ").append(log.extras);
+                    msg.append(": ").append(Float.intBitsToFloat((int) extras));
                     break;
                 case TYPE_INTEGER:
-                    msg.append(": ").append((int) log.extras);
+                    msg.append(": ").append(extrasFormatter != null
+                            ? extrasFormatter.apply((int) extras) : (int) extras);
+                    break;
+                case TYPE_INT_PAIR:
+                    msg.append(": (").append((int) (extras >> 32))
+                            .append(", ").append((int) extras).append(")");
                     break;
                 default: // fall out
             }
-            if (log.duplicateCount > 0) {
-                msg.append(" & ").append(log.duplicateCount).append(" similar events");
+            if (mDuplicateCounts[index] > 0) {
+                msg.append(" & ").append(mDuplicateCounts[index]).append(" similar events");
             }
-            msg.append(" traceId: ").append(log.traceId);
+            msg.append(" traceId: ").append(mTraceIds[index]);
             writer.println(msg);
         }
     }
 
     /** Returns a 3 digit random number between 100-999 */
     public int generateAndSetLogId() {
-        Random r = new Random();
-        mLogId = r.nextInt(900) + 100;
+        mLogId = mRandom.nextInt(900) + 100;
         return mLogId;
     }
 
-    private boolean isEntrySame(EventEntry entry, int type, String event) {
-        return entry != null && entry.type == type && entry.event.equals(event);
-    }
-
-    /** A single event entry. */
-    private static class EventEntry {
-
-        private int type;
-        private String event;
-        private float extras;
-        private long time;
-        private int duplicateCount;
-        private int traceId;
-
-        public void update(int type, String event, float extras, int traceId) {
-            this.type = type;
-            this.event = event;
-            this.extras = extras;
-            this.traceId = traceId;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
-        }
+    private boolean isEntrySame(int index, int type, int eventId, @Nullable String event) {
+        return mTypes[index] == type && mEventIds[index] == eventId
+                && (event == null || event.equals(mEvents[index]));
     }
 }
@@ -267,27 +267,25 @@ public class AddWorkspaceItemsTask extends BaseModelUpdateTask {
         }
 
         boolean isLauncherAppTarget = PackageManagerHelper.isLauncherAppTarget(intent);
-        synchronized (dataModel) {
-            for (ItemInfo item : dataModel.itemsIdMap) {
-                if (item instanceof WorkspaceItemInfo) {
-                    WorkspaceItemInfo info = (WorkspaceItemInfo) item;
-                    if (item.getIntent() != null && info.user.equals(user)) {
-                        Intent copyIntent = new Intent(item.getIntent());
-                        copyIntent.setSourceBounds(intent.getSourceBounds());
-                        String s = copyIntent.toUri(0);
-                        if (intentWithPkg.equals(s) || intentWithoutPkg.equals(s)) {
-                            return true;
-                        }
+        for (ItemInfo item : dataModel.getSnapshot().getAllItems()) {
+            if (item instanceof WorkspaceItemInfo) {
+                WorkspaceItemInfo info = (WorkspaceItemInfo) item;
+                if (item.getIntent() != null && info.user.equals(user)) {
+                    Intent copyIntent = new Intent(item.getIntent());
+                    copyIntent.setSourceBounds(intent.getSourceBounds());
+                    String s = copyIntent.toUri(0);
+                    if (intentWithPkg.equals(s) || intentWithoutPkg.equals(s)) {
+                        return true;
+                    }
 
-                        // checking for existing promise icon with same package name
-                        if (isLauncherAppTarget
-                                && info.isPromise()
-                                && info.hasStatusFlag(WorkspaceItemInfo.FLAG_AUTOINSTALL_ICON)
-                                && info.getTargetComponent() != null
-                                && compPkgName != null
-                                && compPkgName.equals(info.getTargetComponent().getPackageName())) {
-                            return true;
-                        }
+                    // checking for existing promise icon with same package name
+                    if (isLauncherAppTarget
+                            && info.isPromise()
+                            && info.hasStatusFlag(WorkspaceItemInfo.FLAG_AUTOINSTALL_ICON)
+                            && info.getTargetComponent() != null
+                            && compPkgName != null
+                            && compPkgName.equals(info.getTargetComponent().getPackageName())) {
+                        return true;
                     }
                 }
             }
@@ -39,12 +39,16 @@ import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.PackageManagerHelper;
+import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SafeCloseable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Consumer;
@@ -65,6 +69,16 @@ public class AllAppsList {
     /** The list off all apps. */
     public final ArrayList<AppInfo> data = new ArrayList<>(DEFAULT_APPLICATIONS_NUMBER);
 
+    /** Index of {@link #data} by component and user, kept in sync with the list. */
+    private final HashMap<ComponentKey, AppInfo> mComponentIndex =
+            new HashMap<>(DEFAULT_APPLICATIONS_NUMBER);
+    /** Index of {@link #data} by package and user, kept in sync with the list. */
+    private final HashMap<PackageUserKey, ArrayList<AppInfo>> mPackageIndex =
+            new HashMap<>(DEFAULT_APPLICATIONS_NUMBER);
+    /** Sorted copy of {@link #data}, cleared whenever an app is added or removed. */
+    @Nullable
+    private AppInfo[] mSortedData;
+
     private IconCache mIconCache;
     private AppFilter mAppFilter;
 
@@ -154,7 +168,7 @@ public class AllAppsList {
             info.title = "";
         }
 
-        data.add(info);
+        addToData(info);
         mDataChanged = true;
     }
 
@@ -180,7 +194,7 @@ public class AllAppsList {
             promiseAppInfo.title = "";
         }
 
-        data.add(promiseAppInfo);
+        addToData(promiseAppInfo);
         mDataChanged = true;
 
         return promiseAppInfo;
@@ -194,40 +208,68 @@ public class AllAppsList {
     /** Updates the given PackageInstallInfo's associated AppInfo's installation info. */
     public List<AppInfo> updatePromiseInstallInfo(PackageInstallInfo installInfo) {
         List<AppInfo> updatedAppInfos = new ArrayList<>();
-        UserHandle user = installInfo.user;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            final AppInfo appInfo = data.get(i);
-            final ComponentName tgtComp = appInfo.getTargetComponent();
-            if (tgtComp != null && tgtComp.getPackageName().equals(installInfo.packageName)
-                    && appInfo.user.equals(user)) {
-                if (installInfo.state == PackageInstallInfo.STATUS_INSTALLED_DOWNLOADING
-                        || installInfo.state == PackageInstallInfo.STATUS_INSTALLING) {
-                    if (appInfo.isAppStartable()
-                            && installInfo.state == PackageInstallInfo.STATUS_INSTALLING) {
-                        continue;
-                    }
-                    appInfo.setProgressLevel(installInfo);
-
-                    updatedAppInfos.add(appInfo);
-                } else if (installInfo.state == PackageInstallInfo.STATUS_FAILED
-                        && !appInfo.isAppStartable()) {
-                    removeApp(i);
+        List<AppInfo> packageApps = getPackageApps(installInfo.packageName, installInfo.user);
+        for (int i = packageApps.size() - 1; i >= 0; i--) {
+            final AppInfo appInfo = packageApps.get(i);
+            if (installInfo.state == PackageInstallInfo.STATUS_INSTALLED_DOWNLOADING
+                    || installInfo.state == PackageInstallInfo.STATUS_INSTALLING) {
+                if (appInfo.isAppStartable()
+                        && installInfo.state == PackageInstallInfo.STATUS_INSTALLING) {
+                    continue;
                 }
+                appInfo.setProgressLevel(installInfo);
+
+                updatedAppInfos.add(appInfo);
+            } else if (installInfo.state == PackageInstallInfo.STATUS_FAILED
+                    && !appInfo.isAppStartable()) {
+                removeApp(appInfo);
             }
         }
         return updatedAppInfos;
     }
 
-    private void removeApp(int index) {
-        AppInfo removed = data.remove(index);
-        if (removed != null) {
-            mDataChanged = true;
-            mRemoveListener.accept(removed);
+    private void addToData(AppInfo info) {
+        data.add(info);
+        mComponentIndex.put(new ComponentKey(info.componentName, info.user), info);
+        mPackageIndex.computeIfAbsent(
+                new PackageUserKey(info.componentName.getPackageName(), info.user),
+                k -> new ArrayList<>(1)).add(info);
+        mSortedData = null;
+    }
+
+    private void removeApp(AppInfo info) {
+        if (!data.remove(info)) {
+            return;
+        }
+        mComponentIndex.remove(new ComponentKey(info.componentName, info.user));
+        PackageUserKey packageKey =
+                new PackageUserKey(info.componentName.getPackageName(), info.user);
+        ArrayList<AppInfo> packageApps = mPackageIndex.get(packageKey);
+        if (packageApps != null) {
+            packageApps.remove(info);
+            if (packageApps.isEmpty()) {
+                mPackageIndex.remove(packageKey);
+            }
         }
+        mSortedData = null;
+        mDataChanged = true;
+        mRemoveListener.accept(info);
+    }
+
+    /**
+     * Returns a copy of the apps belonging to the given package and user
+     */
+    private List<AppInfo> getPackageApps(String packageName, UserHandle user) {
+        ArrayList<AppInfo> packageApps = mPackageIndex.get(new PackageUserKey(packageName, user));
+        return packageApps == null
+                ? Collections.emptyList() : new ArrayList<>(packageApps);
     }
 
     public void clear() {
         data.clear();
+        mComponentIndex.clear();
+        mPackageIndex.clear();
+        mSortedData = null;
         mDataChanged = false;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
@@ -252,12 +294,8 @@ public class AllAppsList {
      * Remove the apps for the given apk identified by packageName.
      */
     public void removePackage(String packageName, UserHandle user) {
-        final List<AppInfo> data = this.data;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            AppInfo info = data.get(i);
-            if (info.user.equals(user) && packageName.equals(info.componentName.getPackageName())) {
-                removeApp(i);
-            }
+        for (AppInfo info : getPackageApps(packageName, user)) {
+            removeApp(info);
         }
     }
 
@@ -276,8 +314,8 @@ public class AllAppsList {
     }
 
     public void updateIconsAndLabels(HashSet<String> packages, UserHandle user) {
-        for (AppInfo info : data) {
-            if (info.user.equals(user) && packages.contains(info.componentName.getPackageName())) {
+        for (String packageName : packages) {
+            for (AppInfo info : getPackageApps(packageName, user)) {
                 mIconCache.updateTitleAndIcon(info);
                 info.sectionName = mIndex.computeSectionName(info.title);
                 mDataChanged = true;
@@ -295,14 +333,10 @@ public class AllAppsList {
         if (matches.size() > 0) {
             // Find disabled/removed activities and remove them from data and add them
             // to the removed list.
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    if (!findActivity(matches, applicationInfo.componentName)) {
-                        Log.w(TAG, "Changing shortcut target due to app component name change.");
-                        removeApp(i);
-                    }
+            for (AppInfo applicationInfo : getPackageApps(packageName, user)) {
+                if (!findActivity(matches, applicationInfo.componentName)) {
+                    Log.w(TAG, "Changing shortcut target due to app component name change.");
+                    removeApp(applicationInfo);
                 }
             }
 
@@ -327,13 +361,9 @@ public class AllAppsList {
             }
         } else {
             // Remove all data for this package.
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    mIconCache.remove(applicationInfo.componentName, user);
-                    removeApp(i);
-                }
+            for (AppInfo applicationInfo : getPackageApps(packageName, user)) {
+                mIconCache.remove(applicationInfo.componentName, user);
+                removeApp(applicationInfo);
             }
         }
 
@@ -360,18 +390,20 @@ public class AllAppsList {
      */
     public @Nullable AppInfo findAppInfo(@NonNull ComponentName componentName,
                                           @NonNull UserHandle user) {
-        for (AppInfo info: data) {
-            if (componentName.equals(info.componentName) && user.equals(info.user)) {
-                return info;
-            }
-        }
-        return null;
+        return mComponentIndex.get(new ComponentKey(componentName, user));
     }
 
+    /**
+     * Returns the apps sorted by {@link AppInfo#COMPONENT_KEY_COMPARATOR}. The returned array
+     * is shared between calls until the list is structurally modified, and must not be changed.
+     */
     public AppInfo[] copyData() {
-        AppInfo[] result = data.toArray(EMPTY_ARRAY);
-        Arrays.sort(result, COMPONENT_KEY_COMPARATOR);
-        return result;
+        if (mSortedData == null) {
+            AppInfo[] result = data.toArray(EMPTY_ARRAY);
+            Arrays.sort(result, COMPONENT_KEY_COMPARATOR);
+            mSortedData = result;
+        }
+        return mSortedData;
     }
 
     public SafeCloseable trackRemoves(Consumer<AppInfo> removeListener) {
@@ -36,6 +36,7 @@ import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.testing.TestProtocol;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
+import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.RunnableList;
@@ -65,6 +66,12 @@ public abstract class BaseLoaderResults {
 
     private int mMyBindingId;
 
+    // Binders of a workspace bound in two passes, see #bindWorkspaceFirstPages
+    private final ArrayList<WorkspaceBinder> mPendingBinders = new ArrayList<>();
+    // Binders of the callbacks which bound a snapshot, see #bindSnapshot
+    private final ArrayList<WorkspaceBinder> mSnapshotBinders = new ArrayList<>();
+    private final IntArray mSnapshotScreenIds = new IntArray();
+
     public BaseLoaderResults(LauncherAppState app, BgDataModel dataModel,
             AllAppsList allAppsList, Callbacks[] callbacksList, LooperExecutor uiExecutor) {
         mUiExecutor = uiExecutor;
@@ -84,16 +91,18 @@ public abstract class BaseLoaderResults {
         final IntArray orderedScreenIds = new IntArray();
         ArrayList<FixedContainerItems> extraItems = new ArrayList<>();
 
+        BgDataModel.Snapshot snapshot;
         synchronized (mBgDataModel) {
-            workspaceItems.addAll(mBgDataModel.workspaceItems);
-            appWidgets.addAll(mBgDataModel.appWidgets);
-            orderedScreenIds.addAll(mBgDataModel.collectWorkspaceScreens());
-            mBgDataModel.extraItems.forEach(extraItems::add);
+            snapshot = mBgDataModel.getSnapshot();
             if (incrementBindId) {
                 mBgDataModel.lastBindId++;
             }
             mMyBindingId = mBgDataModel.lastBindId;
         }
+        workspaceItems.addAll(snapshot.workspaceItems);
+        appWidgets.addAll(snapshot.appWidgets);
+        orderedScreenIds.addAll(snapshot.collectWorkspaceScreens());
+        snapshot.getAllExtraItems().forEach(extraItems::add);
 
         for (Callbacks cb : mCallbacksList) {
             new WorkspaceBinder(cb, mUiExecutor, mApp, mBgDataModel, mMyBindingId,
@@ -101,6 +110,135 @@ public abstract class BaseLoaderResults {
         }
     }
 
+    /**
+     * Returns the pages bound synchronously by any of the callbacks
+     */
+    public IntSet getPagesToBindSynchronously(IntArray orderedScreenIds) {
+        IntSet result = new IntSet();
+        for (Callbacks cb : mCallbacksList) {
+            IntSet pages = cb.getPagesToBindSynchronously(orderedScreenIds);
+            Objects.requireNonNull(pages, "Null screen ids provided by " + cb);
+            result.addAll(pages);
+        }
+        return result;
+    }
+
+    /**
+     * Binds the hotseat and the pages bound synchronously, when only those have been loaded.
+     * The rest of the workspace is bound by {@link #bindWorkspaceRemainingPages()} once loaded.
+     *
+     * @param orderedScreenIds All the page ids of the workspace, including the ones not loaded
+     */
+    public void bindWorkspaceFirstPages(IntArray orderedScreenIds) {
+        ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+        ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
+        ArrayList<FixedContainerItems> extraItems = new ArrayList<>();
+
+        BgDataModel.Snapshot snapshot;
+        synchronized (mBgDataModel) {
+            snapshot = mBgDataModel.getSnapshot();
+            mBgDataModel.lastBindId++;
+            mMyBindingId = mBgDataModel.lastBindId;
+        }
+        workspaceItems.addAll(snapshot.workspaceItems);
+        appWidgets.addAll(snapshot.appWidgets);
+        snapshot.getAllExtraItems().forEach(extraItems::add);
+
+        mPendingBinders.clear();
+        for (Callbacks cb : mCallbacksList) {
+            WorkspaceBinder binder = new WorkspaceBinder(cb, mUiExecutor, mApp, mBgDataModel,
+                    mMyBindingId, workspaceItems, appWidgets, extraItems, orderedScreenIds);
+            binder.bindCurrentPages();
+            mPendingBinders.add(binder);
+        }
+    }
+
+    /**
+     * Binds the items loaded since {@link #bindWorkspaceFirstPages(IntArray)}.
+     */
+    public void bindWorkspaceRemainingPages() {
+        ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+        ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
+
+        BgDataModel.Snapshot snapshot = mBgDataModel.getSnapshot();
+        workspaceItems.addAll(snapshot.workspaceItems);
+        appWidgets.addAll(snapshot.appWidgets);
+
+        for (WorkspaceBinder binder : mPendingBinders) {
+            binder.bindOtherPages(workspaceItems, appWidgets);
+        }
+        mPendingBinders.clear();
+    }
+
+    /**
+     * Binds the items of {@param snapshot} to the callbacks which support it, until the model is
+     * loaded and bound by {@link #bindWorkspaceOverSnapshot()}.
+     *
+     * @return true if any callbacks bound the snapshot
+     */
+    public boolean bindSnapshot(ModelSnapshot snapshot) {
+        synchronized (mBgDataModel) {
+            mBgDataModel.lastBindId++;
+            mMyBindingId = mBgDataModel.lastBindId;
+        }
+
+        mSnapshotBinders.clear();
+        mSnapshotScreenIds.copyFrom(snapshot.orderedScreenIds);
+        for (Callbacks cb : mCallbacksList) {
+            if (cb.supportsSnapshotBind()) {
+                WorkspaceBinder binder = new WorkspaceBinder(cb, mUiExecutor, mApp, mBgDataModel,
+                        mMyBindingId, snapshot.workspaceItems, new ArrayList<>(),
+                        new ArrayList<>(), snapshot.orderedScreenIds.clone());
+                binder.bindSnapshot(snapshot);
+                mSnapshotBinders.add(binder);
+            }
+        }
+        return !mSnapshotBinders.isEmpty();
+    }
+
+    /**
+     * Binds all loaded data after {@link #bindSnapshot}. Callbacks which bound the snapshot only
+     * rebind the items which changed, if the pages are the same.
+     */
+    public void bindWorkspaceOverSnapshot() {
+        ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+        ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
+        final IntArray orderedScreenIds = new IntArray();
+        ArrayList<FixedContainerItems> extraItems = new ArrayList<>();
+
+        BgDataModel.Snapshot modelSnapshot;
+        boolean isSnapshotBound;
+        synchronized (mBgDataModel) {
+            modelSnapshot = mBgDataModel.getSnapshot();
+            isSnapshotBound = mMyBindingId == mBgDataModel.lastBindId;
+        }
+        workspaceItems.addAll(modelSnapshot.workspaceItems);
+        appWidgets.addAll(modelSnapshot.appWidgets);
+        orderedScreenIds.addAll(modelSnapshot.collectWorkspaceScreens());
+        modelSnapshot.getAllExtraItems().forEach(extraItems::add);
+        if (!isSnapshotBound || !mSnapshotScreenIds.equals(orderedScreenIds)) {
+            mSnapshotBinders.clear();
+            bindWorkspace(true /* incrementBindId */);
+            return;
+        }
+
+        for (Callbacks cb : mCallbacksList) {
+            WorkspaceBinder snapshotBinder = null;
+            for (WorkspaceBinder binder : mSnapshotBinders) {
+                if (binder.mCallbacks == cb) {
+                    snapshotBinder = binder;
+                }
+            }
+            if (snapshotBinder != null) {
+                snapshotBinder.bindOverSnapshot(workspaceItems, appWidgets, extraItems);
+            } else {
+                new WorkspaceBinder(cb, mUiExecutor, mApp, mBgDataModel, mMyBindingId,
+                        workspaceItems, appWidgets, extraItems, orderedScreenIds.clone()).bind();
+            }
+        }
+        mSnapshotBinders.clear();
+    }
+
     public abstract void bindDeepShortcuts();
 
     public void bindAllApps() {
@@ -183,6 +321,11 @@ public abstract class BaseLoaderResults {
         private final IntArray mOrderedScreenIds;
         private final ArrayList<FixedContainerItems> mExtraItems;
 
+        // Pages bound by bindCurrentPages or bindSnapshot
+        private IntSet mCurrentScreenIds;
+        // Snapshot bound by bindSnapshot
+        private ModelSnapshot mSnapshot;
+
         WorkspaceBinder(Callbacks callbacks,
                 Executor uiExecutor,
                 LauncherAppState app,
@@ -270,6 +413,148 @@ public abstract class BaseLoaderResults {
             mCallbacks.bindStringCache(mBgDataModel.stringCache.clone());
         }
 
+        /**
+         * Binds the items on the current pages, leaving the workspace in the loading state until
+         * {@link #bindOtherPages} is called.
+         */
+        private void bindCurrentPages() {
+            mCurrentScreenIds = mCallbacks.getPagesToBindSynchronously(mOrderedScreenIds);
+            Objects.requireNonNull(mCurrentScreenIds, "Null screen ids provided by " + mCallbacks);
+            final IntSet currentScreenIds = mCurrentScreenIds;
+
+            ArrayList<ItemInfo> currentWorkspaceItems = new ArrayList<>();
+            ArrayList<LauncherAppWidgetInfo> currentAppWidgets = new ArrayList<>();
+            // Items on the other pages loaded so far are bound along with the remaining pages
+            filterCurrentWorkspaceItems(currentScreenIds, mWorkspaceItems, currentWorkspaceItems,
+                    new ArrayList<>());
+            filterCurrentWorkspaceItems(currentScreenIds, mAppWidgets, currentAppWidgets,
+                    new ArrayList<>());
+            sortWorkspaceItemsSpatially(mApp.getInvariantDeviceProfile(), currentWorkspaceItems);
+
+            executeCallbacksTask(c -> {
+                c.clearPendingBinds();
+                c.startBinding();
+            }, mUiExecutor);
+            executeCallbacksTask(c -> c.bindScreens(mOrderedScreenIds), mUiExecutor);
+
+            bindWorkspaceItems(currentWorkspaceItems, mUiExecutor);
+            bindAppWidgets(currentAppWidgets, mUiExecutor);
+            mExtraItems.forEach(item ->
+                    executeCallbacksTask(c -> c.bindExtraContainerItems(item), mUiExecutor));
+
+            RunnableList pendingTasks = new RunnableList();
+            pendingTasks.add(() ->
+                    MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT));
+            executeCallbacksTask(
+                    c -> {
+                        MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        c.onInitialBindComplete(currentScreenIds, pendingTasks);
+                    }, mUiExecutor);
+
+            mCallbacks.bindStringCache(mBgDataModel.stringCache.clone());
+        }
+
+        /**
+         * Binds all the items not on the pages bound by {@link #bindCurrentPages()}, and
+         * finishes the bind.
+         */
+        private void bindOtherPages(ArrayList<ItemInfo> workspaceItems,
+                ArrayList<LauncherAppWidgetInfo> appWidgets) {
+            final IntSet currentScreenIds = mCurrentScreenIds;
+
+            ArrayList<ItemInfo> otherWorkspaceItems = new ArrayList<>();
+            ArrayList<LauncherAppWidgetInfo> otherAppWidgets = new ArrayList<>();
+            filterCurrentWorkspaceItems(currentScreenIds, workspaceItems, new ArrayList<>(),
+                    otherWorkspaceItems);
+            filterCurrentWorkspaceItems(currentScreenIds, appWidgets, new ArrayList<>(),
+                    otherAppWidgets);
+            sortWorkspaceItemsSpatially(mApp.getInvariantDeviceProfile(), otherWorkspaceItems);
+
+            bindWorkspaceItems(otherWorkspaceItems, mUiExecutor);
+            bindAppWidgets(otherAppWidgets, mUiExecutor);
+            executeCallbacksTask(c -> c.finishBindingItems(currentScreenIds), mUiExecutor);
+            mUiExecutor.execute(() -> ItemInstallQueue.INSTANCE.get(mApp.getContext())
+                    .resumeModelPush(FLAG_LOADER_RUNNING));
+        }
+
+        /**
+         * Binds the items and the apps of {@param snapshot}, leaving the workspace in the loading
+         * state until {@link #bindOverSnapshot} is called.
+         */
+        private void bindSnapshot(ModelSnapshot snapshot) {
+            mSnapshot = snapshot;
+            mCurrentScreenIds = mCallbacks.getPagesToBindSynchronously(mOrderedScreenIds);
+            Objects.requireNonNull(mCurrentScreenIds, "Null screen ids provided by " + mCallbacks);
+            final IntSet currentScreenIds = mCurrentScreenIds;
+
+            ArrayList<ItemInfo> currentWorkspaceItems = new ArrayList<>();
+            ArrayList<ItemInfo> otherWorkspaceItems = new ArrayList<>();
+            filterCurrentWorkspaceItems(currentScreenIds, mWorkspaceItems, currentWorkspaceItems,
+                    otherWorkspaceItems);
+            final InvariantDeviceProfile idp = mApp.getInvariantDeviceProfile();
+            sortWorkspaceItemsSpatially(idp, currentWorkspaceItems);
+            sortWorkspaceItemsSpatially(idp, otherWorkspaceItems);
+
+            executeCallbacksTask(c -> {
+                c.clearPendingBinds();
+                c.startBinding();
+            }, mUiExecutor);
+            executeCallbacksTask(c -> c.bindScreens(mOrderedScreenIds), mUiExecutor);
+            bindWorkspaceItems(currentWorkspaceItems, mUiExecutor);
+
+            RunnableList pendingTasks = new RunnableList();
+            pendingTasks.add(() ->
+                    MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT));
+            executeCallbacksTask(
+                    c -> {
+                        MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        c.onInitialBindComplete(currentScreenIds, pendingTasks);
+                    }, mUiExecutor);
+
+            // The other items are not deferred, as bindOverSnapshot expects all of them bound
+            bindWorkspaceItems(otherWorkspaceItems, mUiExecutor);
+            executeCallbacksTask(
+                    c -> c.bindAllApplications(snapshot.apps, snapshot.appsFlags), mUiExecutor);
+
+            mCallbacks.bindStringCache(mBgDataModel.stringCache.clone());
+        }
+
+        /**
+         * Binds the loaded items over the items bound by {@link #bindSnapshot}: the items at the
+         * same position are bound in place, and the other ones are replaced.
+         */
+        private void bindOverSnapshot(ArrayList<ItemInfo> workspaceItems,
+                ArrayList<LauncherAppWidgetInfo> appWidgets,
+                ArrayList<FixedContainerItems> extraItems) {
+            final IntSet currentScreenIds = mCurrentScreenIds;
+
+            IntSparseArrayMap<ItemInfo> replacements = new IntSparseArrayMap<>();
+            ArrayList<ItemInfo> addedItems = new ArrayList<>();
+            for (ItemInfo item : workspaceItems) {
+                ItemInfo boundItem = mSnapshot.itemsIdMap.get(item.id);
+                if (boundItem != null && ModelSnapshot.canRebindInPlace(boundItem, item)) {
+                    replacements.put(item.id, item);
+                } else {
+                    addedItems.add(item);
+                }
+            }
+            sortWorkspaceItemsSpatially(mApp.getInvariantDeviceProfile(), addedItems);
+            Log.d(TAG, "Binding over snapshot, bound in place: " + replacements.size()
+                    + ", replaced: " + (mSnapshot.workspaceItems.size() - replacements.size())
+                    + ", added: " + addedItems.size());
+
+            executeCallbacksTask(c -> c.bindItemsOverSnapshot(replacements), mUiExecutor);
+            bindWorkspaceItems(addedItems, mUiExecutor);
+            bindAppWidgets(appWidgets, mUiExecutor);
+            extraItems.forEach(item ->
+                    executeCallbacksTask(c -> c.bindExtraContainerItems(item), mUiExecutor));
+            executeCallbacksTask(c -> c.finishBindingItems(currentScreenIds), mUiExecutor);
+            mUiExecutor.execute(() -> ItemInstallQueue.INSTANCE.get(mApp.getContext())
+                    .resumeModelPush(FLAG_LOADER_RUNNING));
+
+            mCallbacks.bindStringCache(mBgDataModel.stringCache.clone());
+        }
+
         private void bindWorkspaceItems(
                 final ArrayList<ItemInfo> workspaceItems, final Executor executor) {
             // Bind the workspace items
@@ -30,6 +30,7 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -125,6 +126,12 @@ public abstract class BaseModelUpdateTask implements ModelUpdateTask {
     }
 
     public void bindUpdatedWidgets(BgDataModel dataModel) {
+        final WidgetsListDiff diff =
+                dataModel.widgetsModel.getWidgetsListDiffForPicker(mApp.getContext());
+        if (diff != null) {
+            scheduleCallbackTask(c -> c.bindWidgetsChanged(diff));
+            return;
+        }
         final ArrayList<WidgetsListBaseEntry> widgets =
                 dataModel.widgetsModel.getWidgetsListForPicker(mApp.getContext());
         scheduleCallbackTask(c -> c.bindAllWidgets(widgets));
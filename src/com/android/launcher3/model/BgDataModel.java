@@ -53,6 +53,7 @@ import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.RunnableList;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
@@ -65,6 +66,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -124,6 +126,10 @@ public class BgDataModel {
      */
     public int lastBindId = 0;
 
+    // Version of the items, incremented on every structural change, see #getSnapshot
+    private final AtomicInteger mVersion = new AtomicInteger();
+    private volatile Snapshot mSnapshot = new Snapshot(this, -1);
+
     /**
      * Clears all the data
      */
@@ -134,22 +140,43 @@ public class BgDataModel {
         itemsIdMap.clear();
         deepShortcutMap.clear();
         extraItems.clear();
+        invalidateSnapshot();
     }
 
     /**
-     * Creates an array of valid workspace screens based on current items in the model.
+     * Marks the items of the model as changed. This must be called, while holding the lock of the
+     * model, by any code which changes {@link #itemsIdMap}, {@link #workspaceItems},
+     * {@link #appWidgets}, {@link #folders} or {@link #extraItems} directly.
      */
-    public synchronized IntArray collectWorkspaceScreens() {
-        IntSet screenSet = new IntSet();
-        for (ItemInfo item: itemsIdMap) {
-            if (item.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-                screenSet.add(item.screenId);
-            }
+    public void invalidateSnapshot() {
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns an immutable view of the items of the model. The snapshot is only rebuilt after
+     * the model has changed, so readers do not lock the model as long as it doesn't change.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = mSnapshot;
+        if (snapshot.version == mVersion.get()) {
+            return snapshot;
         }
-        if (FeatureFlags.QSB_ON_FIRST_SCREEN || screenSet.isEmpty()) {
-            screenSet.add(Workspace.FIRST_SCREEN_ID);
+        synchronized (this) {
+            int version = mVersion.get();
+            snapshot = mSnapshot;
+            if (snapshot.version != version) {
+                snapshot = new Snapshot(this, version);
+                mSnapshot = snapshot;
+            }
+            return snapshot;
         }
-        return screenSet.getArray();
+    }
+
+    /**
+     * Creates an array of valid workspace screens based on current items in the model.
+     */
+    public IntArray collectWorkspaceScreens() {
+        return getSnapshot().collectWorkspaceScreens();
     }
 
     public synchronized void dump(String prefix, FileDescriptor fd, PrintWriter writer,
@@ -219,6 +246,7 @@ public class BgDataModel {
             }
             itemsIdMap.remove(item.id);
         }
+        invalidateSnapshot();
         updatedDeepShortcuts.forEach(user -> updateShortcutPinnedState(context, user));
     }
 
@@ -266,6 +294,7 @@ public class BgDataModel {
                 appWidgets.add((LauncherAppWidgetInfo) item);
                 break;
         }
+        invalidateSnapshot();
         if (newItem && item.itemType == LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT) {
             updateShortcutPinnedState(context, item.user);
         }
@@ -359,10 +388,19 @@ public class BgDataModel {
             // No placeholder -- create a new instance
             folderInfo = new FolderInfo();
             folders.put(id, folderInfo);
+            invalidateSnapshot();
         }
         return folderInfo;
     }
 
+    /**
+     * Replaces the items of the fixed container {@link FixedContainerItems#containerId}
+     */
+    public synchronized void putExtraItems(FixedContainerItems items) {
+        extraItems.put(items.containerId, items);
+        invalidateSnapshot();
+    }
+
     /**
      * Clear all the deep shortcut counts for the given package, and re-add the new shortcut counts.
      */
@@ -397,11 +435,8 @@ public class BgDataModel {
     /**
      * Returns a list containing all workspace items including widgets.
      */
-    public synchronized ArrayList<ItemInfo> getAllWorkspaceItems() {
-        ArrayList<ItemInfo> items = new ArrayList<>(workspaceItems.size() + appWidgets.size());
-        items.addAll(workspaceItems);
-        items.addAll(appWidgets);
-        return items;
+    public ArrayList<ItemInfo> getAllWorkspaceItems() {
+        return getSnapshot().getAllWorkspaceItems();
     }
 
     /**
@@ -457,6 +492,100 @@ public class BgDataModel {
     }
 
 
+    /**
+     * Immutable copy of the items of the model at a given version, see {@link #getSnapshot()}.
+     * Only the structure of the model is copied, the items themselves are shared with the model.
+     */
+    public static final class Snapshot {
+
+        public final int version;
+
+        private final IntSparseArrayMap<ItemInfo> mItemsIdMap;
+        private final IntSparseArrayMap<FolderInfo> mFolders;
+        private final IntSparseArrayMap<FixedContainerItems> mExtraItems;
+
+        public final List<ItemInfo> workspaceItems;
+        public final List<LauncherAppWidgetInfo> appWidgets;
+
+        private Snapshot(BgDataModel dataModel, int version) {
+            this.version = version;
+            mItemsIdMap = dataModel.itemsIdMap.clone();
+            mFolders = dataModel.folders.clone();
+            mExtraItems = new IntSparseArrayMap<>();
+            for (FixedContainerItems items : dataModel.extraItems) {
+                mExtraItems.put(items.containerId, new FixedContainerItems(items.containerId,
+                        Collections.unmodifiableList(new ArrayList<>(items.items))));
+            }
+            workspaceItems = Collections.unmodifiableList(
+                    new ArrayList<>(dataModel.workspaceItems));
+            appWidgets = Collections.unmodifiableList(new ArrayList<>(dataModel.appWidgets));
+        }
+
+        /**
+         * Returns the item with the given id, or null if there is no such item
+         */
+        @Nullable
+        public ItemInfo getItem(int id) {
+            return mItemsIdMap.get(id);
+        }
+
+        /**
+         * Returns the folder with the given id, or null if there is no such folder
+         */
+        @Nullable
+        public FolderInfo getFolder(int id) {
+            return mFolders.get(id);
+        }
+
+        /**
+         * Returns the items of the fixed container with the given id, or null if there are none
+         */
+        @Nullable
+        public FixedContainerItems getExtraItems(int containerId) {
+            return mExtraItems.get(containerId);
+        }
+
+        /**
+         * Returns the items of all the fixed containers
+         */
+        public Iterable<FixedContainerItems> getAllExtraItems() {
+            return mExtraItems;
+        }
+
+        /**
+         * Returns all the items of the model
+         */
+        public Iterable<ItemInfo> getAllItems() {
+            return mItemsIdMap;
+        }
+
+        /**
+         * Returns a list containing all workspace items including widgets.
+         */
+        public ArrayList<ItemInfo> getAllWorkspaceItems() {
+            ArrayList<ItemInfo> items = new ArrayList<>(workspaceItems.size() + appWidgets.size());
+            items.addAll(workspaceItems);
+            items.addAll(appWidgets);
+            return items;
+        }
+
+        /**
+         * Creates an array of valid workspace screens based on the items in the snapshot.
+         */
+        public IntArray collectWorkspaceScreens() {
+            IntSet screenSet = new IntSet();
+            for (ItemInfo item: mItemsIdMap) {
+                if (item.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+                    screenSet.add(item.screenId);
+                }
+            }
+            if (FeatureFlags.QSB_ON_FIRST_SCREEN || screenSet.isEmpty()) {
+                screenSet.add(Workspace.FIRST_SCREEN_ID);
+            }
+            return screenSet.getArray();
+        }
+    }
+
     public interface Callbacks {
         // If the launcher has permission to access deep shortcuts.
         int FLAG_HAS_SHORTCUT_PERMISSION = 1 << 0;
@@ -478,6 +607,21 @@ public class BgDataModel {
         default void clearPendingBinds() { }
         default void startBinding() { }
 
+        /**
+         * Returns true if the items of a {@link ModelSnapshot} can be bound before the model is
+         * loaded, see {@link #bindItemsOverSnapshot}
+         */
+        default boolean supportsSnapshotBind() {
+            return false;
+        }
+
+        /**
+         * Called once the model is loaded, when the items of a {@link ModelSnapshot} are bound.
+         * The views of the bound items which are in {@param replacements} are bound to the
+         * loaded item with the same id, the views of the other bound items are removed.
+         */
+        default void bindItemsOverSnapshot(IntSparseArrayMap<ItemInfo> replacements) { }
+
         default void bindItems(List<ItemInfo> shortcuts, boolean forceAnimateIcons) { }
         default void bindScreens(IntArray orderedScreenIds) { }
         default void finishBindingItems(IntSet pagesBoundFirst) { }
@@ -499,6 +643,7 @@ public class BgDataModel {
         default void bindRestoreItemsChange(HashSet<ItemInfo> updates) { }
         default void bindWorkspaceComponentsRemoved(Predicate<ItemInfo> matcher) { }
         default void bindAllWidgets(List<WidgetsListBaseEntry> widgets) { }
+        default void bindWidgetsChanged(WidgetsListDiff diff) { }
 
         default void onInitialBindComplete(IntSet boundPages, RunnableList pendingTasks) {
             pendingTasks.executeAllAndDestroy();
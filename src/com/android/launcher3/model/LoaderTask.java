@@ -40,9 +40,11 @@ import android.content.pm.PackageInstaller;
 import android.content.pm.PackageInstaller.SessionInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ShortcutInfo;
+import android.database.Cursor;
 import android.graphics.Point;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -60,6 +62,7 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.Workspace;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderGridOrganizer;
@@ -143,6 +146,8 @@ public class LoaderTask implements Runnable {
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private boolean mItemsDeleted = false;
     private String mDbName;
+    // Whether the items of a ModelSnapshot were bound before loading, see #bindModelSnapshot
+    private boolean mSnapshotBound = false;
 
     public LoaderTask(LauncherAppState app, AllAppsList bgAllAppsList, BgDataModel dataModel,
             ModelDelegate modelDelegate, LoaderResults results) {
@@ -202,28 +207,13 @@ public class LoaderTask implements Runnable {
         LoaderMemoryLogger memoryLogger = new LoaderMemoryLogger();
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
             List<ShortcutInfo> allShortcuts = new ArrayList<>();
-            Trace.beginSection("LoadWorkspace");
-            try {
-                loadWorkspace(allShortcuts, memoryLogger);
-            } finally {
-                Trace.endSection();
-            }
-            logASplit(logger, "loadWorkspace");
-
-            // Sanitize data re-syncs widgets/shortcuts based on the workspace loaded from db.
-            // sanitizeData should not be invoked if the workspace is loaded from a db different
-            // from the main db as defined in the invariant device profile.
-            // (e.g. both grid preview and minimal device mode uses a different db)
-            if (mApp.getInvariantDeviceProfile().dbFile.equals(mDbName)) {
-                verifyNotStopped();
-                sanitizeData();
-                logASplit(logger, "sanitizeData");
+            mSnapshotBound = bindModelSnapshot(logger);
+            if (FeatureFlags.ENABLE_STREAMING_WORKSPACE_LOADING.get() && !mSnapshotBound) {
+                loadAndBindWorkspaceInPasses(allShortcuts, memoryLogger, logger);
+            } else {
+                loadAndBindWorkspace(allShortcuts, memoryLogger, logger);
             }
 
-            verifyNotStopped();
-            mResults.bindWorkspace(true /* incrementBindId */);
-            logASplit(logger, "bindWorkspace");
-
             mModelDelegate.workspaceLoadComplete();
             // Notify the installer packages of packages with active installs on the first screen.
             sendFirstScreenActiveInstallsBroadcast();
@@ -313,6 +303,13 @@ public class LoaderTask implements Runnable {
             logASplit(logger, "finish icon update");
 
             mModelDelegate.modelLoadComplete();
+            if (FeatureFlags.ENABLE_MODEL_SNAPSHOT.get()
+                    && mApp.getInvariantDeviceProfile().dbFile.equals(mDbName)) {
+                verifyNotStopped();
+                ModelSnapshot.write(mApp.getContext(), mDbName, mBgDataModel.getSnapshot(),
+                        mBgAllAppsList.copyData(), mBgAllAppsList.getFlags());
+                logASplit(logger, "writeModelSnapshot");
+            }
             transaction.commit();
             memoryLogger.clearLogs();
         } catch (CancellationException e) {
@@ -327,6 +324,164 @@ public class LoaderTask implements Runnable {
         TraceHelper.INSTANCE.endSection(traceToken);
     }
 
+    private void loadAndBindWorkspace(List<ShortcutInfo> allShortcuts,
+            LoaderMemoryLogger memoryLogger, TimingLogger logger) {
+        Trace.beginSection("LoadWorkspace");
+        try {
+            loadWorkspace(allShortcuts, memoryLogger);
+        } finally {
+            Trace.endSection();
+        }
+        logASplit(logger, "loadWorkspace");
+
+        // Sanitize data re-syncs widgets/shortcuts based on the workspace loaded from db.
+        // sanitizeData should not be invoked if the workspace is loaded from a db different
+        // from the main db as defined in the invariant device profile.
+        // (e.g. both grid preview and minimal device mode uses a different db)
+        if (mApp.getInvariantDeviceProfile().dbFile.equals(mDbName)) {
+            verifyNotStopped();
+            sanitizeData();
+            logASplit(logger, "sanitizeData");
+        }
+
+        verifyNotStopped();
+        if (mSnapshotBound) {
+            mResults.bindWorkspaceOverSnapshot();
+            logASplit(logger, "bindWorkspaceOverSnapshot");
+        } else {
+            mResults.bindWorkspace(true /* incrementBindId */);
+            logASplit(logger, "bindWorkspace");
+        }
+    }
+
+    /**
+     * Binds the snapshot of the model written by the last successful load, if this is the first
+     * load of the process. The loaded model is then bound over it.
+     *
+     * @return true if the snapshot was bound
+     */
+    private boolean bindModelSnapshot(TimingLogger logger) {
+        if (!FeatureFlags.ENABLE_MODEL_SNAPSHOT.get() || mBgDataModel.lastBindId != 0) {
+            return false;
+        }
+        ModelSnapshot snapshot = ModelSnapshot.read(mApp.getContext(), mIconCache,
+                mApp.getInvariantDeviceProfile().dbFile);
+        logASplit(logger, "readModelSnapshot");
+        if (snapshot == null) {
+            return false;
+        }
+
+        // Bound along with the snapshot, see BaseLoaderResults#bindSnapshot
+        mModelDelegate.loadStringCache(mBgDataModel.stringCache);
+        verifyNotStopped();
+        boolean bound = mResults.bindSnapshot(snapshot);
+        logASplit(logger, "bindSnapshot");
+        return bound;
+    }
+
+    /**
+     * Loads and binds the hotseat and the pages bound synchronously before the rest of the
+     * workspace, so that the time to the first frame does not depend on the number of pages.
+     */
+    private void loadAndBindWorkspaceInPasses(List<ShortcutInfo> allShortcuts,
+            LoaderMemoryLogger memoryLogger, TimingLogger logger) {
+        final long startTime = SystemClock.uptimeMillis();
+        prepareWorkspaceDb();
+        IntArray orderedScreenIds = loadWorkspaceScreenIds();
+        IntSet firstPages = mResults.getPagesToBindSynchronously(orderedScreenIds);
+        if (firstPages.isEmpty()) {
+            loadAndBindWorkspace(allShortcuts, memoryLogger, logger);
+            return;
+        }
+        logASplit(logger, "loadWorkspaceScreenIds");
+
+        String firstPagesSelection = getFirstPagesSelection(firstPages);
+        Trace.beginSection("LoadWorkspaceFirstPages");
+        try {
+            loadWorkspaceItems(allShortcuts, LauncherSettings.Favorites.CONTENT_URI,
+                    firstPagesSelection, memoryLogger, true /* isFirstPass */);
+        } finally {
+            Trace.endSection();
+        }
+        logASplit(logger, "loadWorkspaceFirstPages");
+
+        // See loadAndBindWorkspace
+        boolean isMainDb = mApp.getInvariantDeviceProfile().dbFile.equals(mDbName);
+        if (isMainDb && mItemsDeleted) {
+            // Empty folders would otherwise be bound and removed only after the second pass
+            verifyNotStopped();
+            removeEmptyFolders();
+        }
+
+        verifyNotStopped();
+        mResults.bindWorkspaceFirstPages(orderedScreenIds);
+        logASplit(logger, "bindWorkspaceFirstPages");
+        memoryLogger.addLog(Log.DEBUG, TAG, "First pages " + firstPages + " of "
+                + orderedScreenIds.size() + " bound after "
+                + (SystemClock.uptimeMillis() - startTime) + "ms");
+
+        verifyNotStopped();
+        Trace.beginSection("LoadWorkspaceRemainingPages");
+        try {
+            loadWorkspaceItems(allShortcuts, LauncherSettings.Favorites.CONTENT_URI,
+                    "NOT (" + firstPagesSelection + ")", memoryLogger, false /* isFirstPass */);
+        } finally {
+            Trace.endSection();
+        }
+        logASplit(logger, "loadWorkspaceRemainingPages");
+
+        if (isMainDb) {
+            verifyNotStopped();
+            sanitizeData();
+            logASplit(logger, "sanitizeData");
+        }
+
+        verifyNotStopped();
+        mResults.bindWorkspaceRemainingPages();
+        logASplit(logger, "bindWorkspaceRemainingPages");
+        memoryLogger.addLog(Log.DEBUG, TAG, "Remaining pages bound after "
+                + (SystemClock.uptimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Returns the ids of the workspace screens which have at least one item, in the same order
+     * as {@link BgDataModel#collectWorkspaceScreens()}.
+     */
+    private IntArray loadWorkspaceScreenIds() {
+        IntSet screenSet = new IntSet();
+        try (Cursor c = mApp.getContext().getContentResolver().query(
+                LauncherSettings.Favorites.CONTENT_URI,
+                new String[] {LauncherSettings.Favorites.SCREEN},
+                LauncherSettings.Favorites.CONTAINER + " = "
+                        + LauncherSettings.Favorites.CONTAINER_DESKTOP,
+                null, null)) {
+            while (c != null && c.moveToNext()) {
+                screenSet.add(c.getInt(0));
+            }
+        }
+        if (FeatureFlags.QSB_ON_FIRST_SCREEN || screenSet.isEmpty()) {
+            screenSet.add(Workspace.FIRST_SCREEN_ID);
+        }
+        return screenSet.getArray();
+    }
+
+    /**
+     * Returns the selection for the hotseat, the items on the provided pages, and the contents
+     * of the folders on those pages.
+     */
+    private static String getFirstPagesSelection(IntSet pages) {
+        String itemsSelection = LauncherSettings.Favorites.CONTAINER + " = "
+                + LauncherSettings.Favorites.CONTAINER_HOTSEAT
+                + " OR (" + LauncherSettings.Favorites.CONTAINER + " = "
+                + LauncherSettings.Favorites.CONTAINER_DESKTOP
+                + " AND " + LauncherSettings.Favorites.SCREEN + " IN ("
+                + pages.getArray().toConcatString() + "))";
+        return itemsSelection + " OR " + LauncherSettings.Favorites.CONTAINER + " IN (SELECT "
+                + LauncherSettings.Favorites._ID + " FROM " + LauncherSettings.Favorites.TABLE_NAME
+                + " WHERE " + LauncherSettings.Favorites.ITEM_TYPE + " = "
+                + LauncherSettings.Favorites.ITEM_TYPE_FOLDER + " AND (" + itemsSelection + "))";
+    }
+
     public synchronized void stopLocked() {
         mStopped = true;
         this.notify();
@@ -347,13 +502,17 @@ public class LoaderTask implements Runnable {
             Uri contentUri,
             String selection,
             @Nullable LoaderMemoryLogger logger) {
+        prepareWorkspaceDb();
+        loadWorkspaceItems(allDeepShortcuts, contentUri, selection, logger,
+                true /* isFirstPass */);
+    }
+
+    /**
+     * Migrates the grid if needed and loads the default favorites into an empty database.
+     */
+    private void prepareWorkspaceDb() {
         final Context context = mApp.getContext();
         final ContentResolver contentResolver = context.getContentResolver();
-        final PackageManagerHelper pmHelper = new PackageManagerHelper(context);
-        final boolean isSafeMode = pmHelper.isSafeMode();
-        final boolean isSdCardReady = Utilities.isBootCompleted();
-        final WidgetManagerHelper widgetHelper = new WidgetManagerHelper(context);
-
         boolean clearDb = false;
         if (!GridSizeMigrationTaskV2.migrateGridIfNeeded(context)) {
             // Migration failed. Clear workspace.
@@ -369,17 +528,44 @@ public class LoaderTask implements Runnable {
         Log.d(TAG, "loadWorkspace: loading default favorites");
         LauncherSettings.Settings.call(contentResolver,
                 LauncherSettings.Settings.METHOD_LOAD_DEFAULT_FAVORITES);
+    }
+
+    /**
+     * Loads the workspace items matching the {@param selection} into the model.
+     * @param isFirstPass true if the model should be cleared before loading the items. Otherwise
+     *                    the items are added to the ones loaded by a previous pass.
+     */
+    private void loadWorkspaceItems(
+            List<ShortcutInfo> allDeepShortcuts,
+            Uri contentUri,
+            String selection,
+            @Nullable LoaderMemoryLogger logger,
+            boolean isFirstPass) {
+        final Context context = mApp.getContext();
+        final ContentResolver contentResolver = context.getContentResolver();
+        final PackageManagerHelper pmHelper = new PackageManagerHelper(context);
+        final boolean isSafeMode = pmHelper.isSafeMode();
+        final boolean isSdCardReady = Utilities.isBootCompleted();
+        final WidgetManagerHelper widgetHelper = new WidgetManagerHelper(context);
 
         synchronized (mBgDataModel) {
-            mBgDataModel.clear();
-            mPendingPackages.clear();
+            // Folders loaded by a previous pass may already be bound, and must not be modified
+            final IntSet previousFolderIds = new IntSet();
+            if (isFirstPass) {
+                mBgDataModel.clear();
+                mPendingPackages.clear();
+            } else {
+                mBgDataModel.folders.forEach(folder -> previousFolderIds.add(folder.id));
+            }
 
             final HashMap<PackageUserKey, SessionInfo> installingPkgs =
                     mSessionHelper.getActiveSessions();
             installingPkgs.forEach(mApp.getIconCache()::updateSessionCache);
 
             final PackageUserKey tempPackageKey = new PackageUserKey(null, null);
-            mFirstScreenBroadcast = new FirstScreenBroadcast(installingPkgs);
+            if (isFirstPass) {
+                mFirstScreenBroadcast = new FirstScreenBroadcast(installingPkgs);
+            }
 
             Map<ShortcutKey, ShortcutInfo> shortcutKeyToPinnedShortcuts = new HashMap<>();
             final LoaderCursor c = new LoaderCursor(
@@ -860,11 +1046,13 @@ public class LoaderTask implements Runnable {
                 IOUtils.closeSilently(c);
             }
 
-            // Load delegate items
-            mModelDelegate.loadItems(mUserManagerState, shortcutKeyToPinnedShortcuts);
+            if (isFirstPass) {
+                // Load delegate items
+                mModelDelegate.loadItems(mUserManagerState, shortcutKeyToPinnedShortcuts);
 
-            // Load string cache
-            mModelDelegate.loadStringCache(mBgDataModel.stringCache);
+                // Load string cache
+                mModelDelegate.loadStringCache(mBgDataModel.stringCache);
+            }
 
             // Break early if we've stopped loading
             if (mStopped) {
@@ -873,12 +1061,16 @@ public class LoaderTask implements Runnable {
             }
 
             // Remove dead items
-            mItemsDeleted = c.commitDeleted();
+            boolean itemsDeleted = c.commitDeleted();
+            mItemsDeleted = isFirstPass ? itemsDeleted : (mItemsDeleted || itemsDeleted);
 
             // Sort the folder items, update ranks, and make sure all preview items are high res.
             FolderGridOrganizer verifier =
                     new FolderGridOrganizer(mApp.getInvariantDeviceProfile());
             for (FolderInfo folder : mBgDataModel.folders) {
+                if (previousFolderIds.contains(folder.id)) {
+                    continue;
+                }
                 Collections.sort(folder.contents, Folder.ITEM_POS_COMPARATOR);
                 verifier.setFolderInfo(folder);
                 int size = folder.contents.size();
@@ -904,22 +1096,38 @@ public class LoaderTask implements Runnable {
 
     private void setIgnorePackages(IconCacheUpdateHandler updateHandler) {
         // Ignore packages which have a promise icon.
+        for (ItemInfo info : mBgDataModel.getSnapshot().getAllItems()) {
+            if (info instanceof WorkspaceItemInfo) {
+                WorkspaceItemInfo si = (WorkspaceItemInfo) info;
+                if (si.isPromise() && si.getTargetComponent() != null) {
+                    updateHandler.addPackagesToIgnore(
+                            si.user, si.getTargetComponent().getPackageName());
+                }
+            } else if (info instanceof LauncherAppWidgetInfo) {
+                LauncherAppWidgetInfo lawi = (LauncherAppWidgetInfo) info;
+                if (lawi.hasRestoreFlag(LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY)) {
+                    updateHandler.addPackagesToIgnore(
+                            lawi.user, lawi.providerName.getPackageName());
+                }
+            }
+        }
+    }
+
+    private void removeEmptyFolders() {
+        int[] deletedFolderIds = LauncherSettings.Settings
+                .call(mApp.getContext().getContentResolver(),
+                        LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS)
+                .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
         synchronized (mBgDataModel) {
-            for (ItemInfo info : mBgDataModel.itemsIdMap) {
-                if (info instanceof WorkspaceItemInfo) {
-                    WorkspaceItemInfo si = (WorkspaceItemInfo) info;
-                    if (si.isPromise() && si.getTargetComponent() != null) {
-                        updateHandler.addPackagesToIgnore(
-                                si.user, si.getTargetComponent().getPackageName());
-                    }
-                } else if (info instanceof LauncherAppWidgetInfo) {
-                    LauncherAppWidgetInfo lawi = (LauncherAppWidgetInfo) info;
-                    if (lawi.hasRestoreFlag(LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY)) {
-                        updateHandler.addPackagesToIgnore(
-                                lawi.user, lawi.providerName.getPackageName());
-                    }
+            for (int folderId : deletedFolderIds) {
+                FolderInfo folder = mBgDataModel.folders.get(folderId);
+                if (folder != null) {
+                    mBgDataModel.workspaceItems.remove(folder);
                 }
+                mBgDataModel.folders.remove(folderId);
+                mBgDataModel.itemsIdMap.remove(folderId);
             }
+            mBgDataModel.invalidateSnapshot();
         }
     }
 
@@ -927,19 +1135,7 @@ public class LoaderTask implements Runnable {
         Context context = mApp.getContext();
         ContentResolver contentResolver = context.getContentResolver();
         if (mItemsDeleted) {
-            // Remove any empty folder
-            int[] deletedFolderIds = LauncherSettings.Settings
-                    .call(contentResolver,
-                            LauncherSettings.Settings.METHOD_DELETE_EMPTY_FOLDERS)
-                    .getIntArray(LauncherSettings.Settings.EXTRA_VALUE);
-            synchronized (mBgDataModel) {
-                for (int folderId : deletedFolderIds) {
-                    mBgDataModel.workspaceItems.remove(mBgDataModel.folders.get(folderId));
-                    mBgDataModel.folders.remove(folderId);
-                    mBgDataModel.itemsIdMap.remove(folderId);
-                }
-            }
-
+            removeEmptyFolders();
         }
         // Remove any ghost widgets
         LauncherSettings.Settings.call(contentResolver,
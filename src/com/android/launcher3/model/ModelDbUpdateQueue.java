@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.MessageQueue.IdleHandler;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherProvider;
+import com.android.launcher3.LauncherSettings.Favorites;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write-behind queue for the updates of existing items in the launcher database.
+ *
+ * Updates are kept in memory until the model thread is idle, and all the updates of the same
+ * item are merged into a single operation. They are then written in a single transaction.
+ * Any other database access must call {@link #flush()} first, so that it sees the updates.
+ * All methods must be called on the model thread.
+ */
+public class ModelDbUpdateQueue {
+
+    private static final String TAG = "ModelDbUpdateQueue";
+
+    private final Context mContext;
+
+    // Pending values for each item id, in the order the items were first updated
+    private final LinkedHashMap<Integer, ContentValues> mPendingUpdates = new LinkedHashMap<>();
+    private final IdleHandler mFlushOnIdle = () -> {
+        flush();
+        return false;
+    };
+    private boolean mFlushScheduled;
+
+    private int mUpdateCount;
+    private int mCoalescedCount;
+    private int mFlushCount;
+    private int mFailedFlushCount;
+
+    public ModelDbUpdateQueue(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Schedules an update of {@param values} for the item {@param itemId}. The values are merged
+     * with any pending values of that item.
+     */
+    @WorkerThread
+    public void enqueueUpdate(int itemId, ContentValues values) {
+        mUpdateCount++;
+        ContentValues pending = mPendingUpdates.get(itemId);
+        if (pending == null) {
+            mPendingUpdates.put(itemId, new ContentValues(values));
+        } else {
+            mCoalescedCount++;
+            pending.putAll(values);
+        }
+
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            MODEL_EXECUTOR.getLooper().getQueue().addIdleHandler(mFlushOnIdle);
+        }
+    }
+
+    /**
+     * Writes all the pending updates to the database.
+     */
+    @WorkerThread
+    public void flush() {
+        if (mFlushScheduled) {
+            mFlushScheduled = false;
+            MODEL_EXECUTOR.getLooper().getQueue().removeIdleHandler(mFlushOnIdle);
+        }
+        if (mPendingUpdates.isEmpty()) {
+            return;
+        }
+
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>(mPendingUpdates.size());
+        for (Map.Entry<Integer, ContentValues> entry : mPendingUpdates.entrySet()) {
+            ops.add(ContentProviderOperation.newUpdate(Favorites.getContentUri(entry.getKey()))
+                    .withValues(entry.getValue()).build());
+        }
+        mPendingUpdates.clear();
+
+        mFlushCount++;
+        try {
+            mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY, ops);
+        } catch (Exception e) {
+            mFailedFlushCount++;
+            Log.e(TAG, "Failed to write " + ops.size() + " item updates", e);
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "ModelDbUpdateQueue:"
+                + " updates=" + mUpdateCount
+                + " coalesced=" + mCoalescedCount
+                + " flushes=" + mFlushCount
+                + " failedFlushes=" + mFailedFlushCount
+                + " pending=" + mPendingUpdates.size());
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.LocaleList;
+import android.os.UserHandle;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.compat.AlphabeticIndexCompat;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntSparseArrayMap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact binary copy of the workspace and of all apps, written after every successful load,
+ * which is bound on the next cold start while the model is loaded.
+ *
+ * Only the items which can be shown without the package manager are part of the snapshot: the
+ * app shortcuts, the folders of app shortcuts and the apps, whose icons are in the icon
+ * database. Widgets, deep shortcuts and legacy shortcuts are bound once the model is loaded.
+ */
+public class ModelSnapshot {
+
+    private static final String TAG = "ModelSnapshot";
+
+    private static final int MAGIC = 0x4c53534e;
+    // Increment when the format changes, snapshots of older versions are discarded
+    private static final int FORMAT_VERSION = 1;
+
+    /** The folders and app shortcuts on the workspace and the hotseat */
+    public final ArrayList<ItemInfo> workspaceItems = new ArrayList<>();
+    /** The items of {@link #workspaceItems} by id */
+    public final IntSparseArrayMap<ItemInfo> itemsIdMap = new IntSparseArrayMap<>();
+    public final IntArray orderedScreenIds = new IntArray();
+    public AppInfo[] apps = AppInfo.EMPTY_ARRAY;
+    /** The flags of {@link AllAppsList} */
+    public int appsFlags;
+
+    private ModelSnapshot() { }
+
+    /**
+     * Returns true if the view bound to {@param boundItem} can be bound to {@param loadedItem}
+     * without being moved or recreated.
+     */
+    public static boolean canRebindInPlace(ItemInfo boundItem, ItemInfo loadedItem) {
+        return boundItem.itemType == ITEM_TYPE_APPLICATION
+                && loadedItem.itemType == ITEM_TYPE_APPLICATION
+                && loadedItem instanceof WorkspaceItemInfo
+                && boundItem.container == loadedItem.container
+                && boundItem.screenId == loadedItem.screenId
+                && boundItem.cellX == loadedItem.cellX
+                && boundItem.cellY == loadedItem.cellY
+                && boundItem.spanX == loadedItem.spanX
+                && boundItem.spanY == loadedItem.spanY
+                && Objects.equals(boundItem.user, loadedItem.user);
+    }
+
+    /**
+     * Writes the snapshot of the items of {@param dataModel} and of {@param apps}.
+     *
+     * @param dbFile The workspace DB the items were loaded from
+     */
+    @WorkerThread
+    public static void write(Context context, String dbFile, BgDataModel.Snapshot dataModel,
+            AppInfo[] apps, int appsFlags) {
+        write(context, getFile(context), dbFile, dataModel, apps, appsFlags);
+    }
+
+    @VisibleForTesting
+    static void write(Context context, AtomicFile file, String dbFile,
+            BgDataModel.Snapshot dataModel, AppInfo[] apps, int appsFlags) {
+        FileOutputStream fos;
+        try {
+            fos = file.startWrite();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write model snapshot", e);
+            return;
+        }
+
+        UserCache userCache = UserCache.INSTANCE.get(context);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, dbFile);
+            writeString(out, Locale.getDefault().toLanguageTag());
+
+            IntArray screenIds = dataModel.collectWorkspaceScreens();
+            out.writeInt(screenIds.size());
+            for (int i = 0; i < screenIds.size(); i++) {
+                out.writeInt(screenIds.get(i));
+            }
+
+            ArrayList<ItemInfo> items = new ArrayList<>();
+            for (ItemInfo item : dataModel.workspaceItems) {
+                if ((item.container == CONTAINER_DESKTOP || item.container == CONTAINER_HOTSEAT)
+                        && (isAppShortcut(item) || isAppFolder(item))) {
+                    items.add(item);
+                }
+            }
+            out.writeInt(items.size());
+            for (ItemInfo item : items) {
+                writeItem(out, item, userCache);
+                if (item instanceof FolderInfo) {
+                    ArrayList<WorkspaceItemInfo> contents = ((FolderInfo) item).contents;
+                    out.writeInt(contents.size());
+                    for (WorkspaceItemInfo content : contents) {
+                        writeItem(out, content, userCache);
+                    }
+                }
+            }
+
+            out.writeInt(appsFlags);
+            out.writeInt(apps.length);
+            for (AppInfo app : apps) {
+                out.writeLong(userCache.getSerialNumberForUser(app.user));
+                writeString(out, app.componentName.flattenToString());
+                writeString(out, app.title);
+                out.writeInt(app.runtimeStatusFlags);
+            }
+            out.flush();
+        } catch (IOException e) {
+            file.failWrite(fos);
+            Log.e(TAG, "Unable to write model snapshot", e);
+            return;
+        }
+        file.finishWrite(fos);
+    }
+
+    /**
+     * Reads the snapshot written for {@param dbFile}, along with the icons of its items which
+     * are in the icon database. Items without cached icons are not part of the result.
+     *
+     * @return the snapshot or null if there is no valid snapshot for the DB
+     */
+    @WorkerThread
+    @Nullable
+    public static ModelSnapshot read(Context context, IconCache iconCache, String dbFile) {
+        return read(context, iconCache, getFile(context), dbFile);
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static ModelSnapshot read(Context context, IconCache iconCache, AtomicFile file,
+            String dbFile) {
+        ModelSnapshot snapshot = new ModelSnapshot();
+        ArrayList<ItemInfoWithIcon> iconItems = new ArrayList<>();
+        ArrayList<CharSequence> titles = new ArrayList<>();
+
+        // openRead() restores the backup of an interrupted write before the file is mapped
+        try (FileInputStream fis = file.openRead();
+                FileChannel channel = fis.getChannel()) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION
+                    || !dbFile.equals(readString(in))
+                    || !Locale.getDefault().toLanguageTag().equals(readString(in))) {
+                return null;
+            }
+
+            UserCache userCache = UserCache.INSTANCE.get(context);
+            int screenCount = readCount(in);
+            for (int i = 0; i < screenCount; i++) {
+                snapshot.orderedScreenIds.add(in.getInt());
+            }
+
+            int itemCount = readCount(in);
+            for (int i = 0; i < itemCount; i++) {
+                ItemInfo item = readItem(in, userCache);
+                boolean isRestored = isRestored(item);
+                if (item instanceof FolderInfo) {
+                    FolderInfo folder = (FolderInfo) item;
+                    int contentCount = readCount(in);
+                    for (int j = 0; j < contentCount; j++) {
+                        WorkspaceItemInfo content = (WorkspaceItemInfo) readItem(in, userCache);
+                        isRestored &= isRestored(content);
+                        folder.contents.add(content);
+                    }
+                }
+                if (isRestored) {
+                    snapshot.workspaceItems.add(item);
+                    List<WorkspaceItemInfo> shortcuts = item instanceof FolderInfo
+                            ? ((FolderInfo) item).contents
+                            : Collections.singletonList((WorkspaceItemInfo) item);
+                    for (WorkspaceItemInfo shortcut : shortcuts) {
+                        iconItems.add(shortcut);
+                        titles.add(shortcut.title);
+                    }
+                }
+            }
+
+            snapshot.appsFlags = in.getInt();
+            int appCount = readCount(in);
+            ArrayList<AppInfo> apps = new ArrayList<>(appCount);
+            for (int i = 0; i < appCount; i++) {
+                UserHandle user = userCache.getUserForSerialNumber(in.getLong());
+                ComponentName cn = ComponentName.unflattenFromString(readString(in));
+                String title = readString(in);
+                int runtimeStatusFlags = in.getInt();
+                if (user != null && cn != null) {
+                    AppInfo app = new AppInfo(cn, title, user, AppInfo.makeLaunchIntent(cn));
+                    app.runtimeStatusFlags = runtimeStatusFlags;
+                    apps.add(app);
+                    iconItems.add(app);
+                    titles.add(title);
+                }
+            }
+            snapshot.apps = apps.toArray(AppInfo.EMPTY_ARRAY);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Unable to read model snapshot", e);
+            file.delete();
+            return null;
+        }
+
+        // Keep the titles of the snapshot for the icons cached without titles
+        for (int i = 0; i < iconItems.size(); i++) {
+            iconItems.get(i).title = null;
+        }
+        Set<ItemInfoWithIcon> missingItems = new HashSet<>(
+                iconCache.getCachedTitlesAndIconsInBulk(iconItems, false /* useLowResIcons */));
+        for (int i = 0; i < iconItems.size(); i++) {
+            ItemInfoWithIcon item = iconItems.get(i);
+            if (TextUtils.isEmpty(item.title)) {
+                item.title = titles.get(i);
+            }
+        }
+        snapshot.removeItems(missingItems);
+
+        AlphabeticIndexCompat index = new AlphabeticIndexCompat(LocaleList.getDefault());
+        for (AppInfo app : snapshot.apps) {
+            app.sectionName = index.computeSectionName(app.title);
+        }
+        return snapshot;
+    }
+
+    private void removeItems(Set<ItemInfoWithIcon> missingItems) {
+        if (!missingItems.isEmpty()) {
+            // Folders are only bound with all their items, so that their layout is not changed
+            workspaceItems.removeIf(item -> missingItems.contains(item)
+                    || (item instanceof FolderInfo
+                            && ((FolderInfo) item).contents.stream().anyMatch(
+                                    missingItems::contains)));
+            ArrayList<AppInfo> apps = new ArrayList<>(this.apps.length);
+            for (AppInfo app : this.apps) {
+                if (!missingItems.contains(app)) {
+                    apps.add(app);
+                }
+            }
+            this.apps = apps.toArray(AppInfo.EMPTY_ARRAY);
+        }
+        for (ItemInfo item : workspaceItems) {
+            itemsIdMap.put(item.id, item);
+        }
+    }
+
+    private static boolean isAppFolder(ItemInfo item) {
+        return item instanceof FolderInfo
+                && !((FolderInfo) item).contents.isEmpty()
+                && ((FolderInfo) item).contents.stream().allMatch(ModelSnapshot::isAppShortcut);
+    }
+
+    private static boolean isAppShortcut(ItemInfo item) {
+        return item.itemType == ITEM_TYPE_APPLICATION
+                && item instanceof WorkspaceItemInfo
+                && ((WorkspaceItemInfo) item).status == WorkspaceItemInfo.DEFAULT
+                && item.getTargetComponent() != null;
+    }
+
+    private static void writeItem(DataOutputStream out, ItemInfo item, UserCache userCache)
+            throws IOException {
+        out.writeInt(item.itemType);
+        out.writeInt(item.id);
+        out.writeInt(item.container);
+        out.writeInt(item.screenId);
+        out.writeInt(item.cellX);
+        out.writeInt(item.cellY);
+        out.writeInt(item.spanX);
+        out.writeInt(item.spanY);
+        out.writeInt(item.rank);
+        out.writeLong(userCache.getSerialNumberForUser(item.user));
+        writeString(out, item.title);
+        if (item instanceof FolderInfo) {
+            out.writeInt(((FolderInfo) item).options);
+        } else {
+            WorkspaceItemInfo info = (WorkspaceItemInfo) item;
+            out.writeInt(info.options);
+            out.writeInt(info.runtimeStatusFlags);
+            writeString(out, info.intent.toUri(0));
+        }
+    }
+
+    private static boolean isRestored(ItemInfo item) {
+        return item.user != null
+                && (item instanceof FolderInfo || ((WorkspaceItemInfo) item).intent != null);
+    }
+
+    /**
+     * Reads an item written by {@link #writeItem}, see {@link #isRestored}
+     */
+    private static ItemInfo readItem(ByteBuffer in, UserCache userCache) throws IOException {
+        int itemType = in.getInt();
+        ItemInfo item;
+        if (itemType == ITEM_TYPE_FOLDER) {
+            item = new FolderInfo();
+        } else {
+            item = new WorkspaceItemInfo();
+        }
+        item.itemType = itemType;
+        item.id = in.getInt();
+        item.container = in.getInt();
+        item.screenId = in.getInt();
+        item.cellX = in.getInt();
+        item.cellY = in.getInt();
+        item.spanX = in.getInt();
+        item.spanY = in.getInt();
+        item.rank = in.getInt();
+        item.user = userCache.getUserForSerialNumber(in.getLong());
+        item.title = readString(in);
+        if (item instanceof FolderInfo) {
+            ((FolderInfo) item).options = in.getInt();
+        } else {
+            WorkspaceItemInfo info = (WorkspaceItemInfo) item;
+            info.options = in.getInt();
+            info.runtimeStatusFlags = in.getInt();
+            String uri = readString(in);
+            try {
+                info.intent = Intent.parseUri(uri, 0);
+            } catch (URISyntaxException e) {
+                Log.e(TAG, "Invalid intent in model snapshot", e);
+            }
+        }
+        return item;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable CharSequence value)
+            throws IOException {
+        byte[] bytes = (value == null ? "" : value.toString()).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the size of a string or of a list, which can't be larger than the rest of the file
+     * as every element takes at least one byte. Checked before anything is allocated with that
+     * size, so that a corrupt size doesn't run out of memory.
+     */
+    private static int readCount(ByteBuffer in) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Invalid size " + count + " in model snapshot");
+        }
+        return count;
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(context.getFileStreamPath(LauncherFiles.MODEL_SNAPSHOT));
+    }
+}
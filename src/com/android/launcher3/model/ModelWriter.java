@@ -22,7 +22,6 @@ import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
-import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -70,6 +69,7 @@ public class ModelWriter {
     private final Context mContext;
     private final LauncherModel mModel;
     private final BgDataModel mBgDataModel;
+    private final ModelDbUpdateQueue mDbUpdateQueue;
     private final LooperExecutor mUiExecutor;
 
     @Nullable
@@ -83,11 +83,12 @@ public class ModelWriter {
     private boolean mPreparingToUndo;
 
     public ModelWriter(Context context, LauncherModel model, BgDataModel dataModel,
-            boolean hasVerticalHotseat, boolean verifyChanges,
+            ModelDbUpdateQueue dbUpdateQueue, boolean hasVerticalHotseat, boolean verifyChanges,
             @Nullable Callbacks owner) {
         mContext = context;
         mModel = model;
         mBgDataModel = dataModel;
+        mDbUpdateQueue = dbUpdateQueue;
         mHasVerticalHotseat = hasVerticalHotseat;
         mVerifyChanges = verifyChanges;
         mOwner = owner;
@@ -261,6 +262,7 @@ public class ModelWriter {
             item.onAddToDatabase(writer);
             writer.put(Favorites._ID, item.id);
 
+            mDbUpdateQueue.flush();
             cr.insert(Favorites.CONTENT_URI, writer.getValues(mContext));
 
             synchronized (mBgDataModel) {
@@ -300,10 +302,20 @@ public class ModelWriter {
                 + ". Reason: [" + (TextUtils.isEmpty(reason) ? "unknown" : reason) + "]");
         notifyDelete(items);
         enqueueDeleteRunnable(() -> {
+            mDbUpdateQueue.flush();
+            // Delete all the items in a single transaction
+            ArrayList<ContentProviderOperation> ops = new ArrayList<>(items.size());
             for (ItemInfo item : items) {
-                final Uri uri = Favorites.getContentUri(item.id);
-                mContext.getContentResolver().delete(uri, null, null);
+                ops.add(ContentProviderOperation.newDelete(Favorites.getContentUri(item.id))
+                        .build());
+            }
+            try {
+                mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY, ops);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to delete items", e);
+            }
 
+            for (ItemInfo item : items) {
                 mBgDataModel.removeItem(mContext, item);
                 verifier.verifyModel();
             }
@@ -318,6 +330,7 @@ public class ModelWriter {
         notifyDelete(Collections.singleton(info));
 
         enqueueDeleteRunnable(() -> {
+            mDbUpdateQueue.flush();
             ContentResolver cr = mContext.getContentResolver();
             cr.delete(LauncherSettings.Favorites.CONTENT_URI,
                     LauncherSettings.Favorites.CONTAINER + "=" + info.id, null);
@@ -423,9 +436,7 @@ public class ModelWriter {
 
         @Override
         public void run() {
-            Uri uri = Favorites.getContentUri(mItemId);
-            mContext.getContentResolver().update(uri, mWriter.get().getValues(mContext),
-                    null, null);
+            mDbUpdateQueue.enqueueUpdate(mItemId, mWriter.get().getValues(mContext));
             updateItemArrays(mItem, mItemId);
         }
     }
@@ -441,22 +452,13 @@ public class ModelWriter {
 
         @Override
         public void run() {
-            ArrayList<ContentProviderOperation> ops = new ArrayList<>();
             int count = mItems.size();
             for (int i = 0; i < count; i++) {
                 ItemInfo item = mItems.get(i);
                 final int itemId = item.id;
-                final Uri uri = Favorites.getContentUri(itemId);
-                ContentValues values = mValues.get(i);
-
-                ops.add(ContentProviderOperation.newUpdate(uri).withValues(values).build());
+                mDbUpdateQueue.enqueueUpdate(itemId, mValues.get(i));
                 updateItemArrays(item, itemId);
             }
-            try {
-                mContext.getContentResolver().applyBatch(LauncherProvider.AUTHORITY, ops);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -507,6 +509,7 @@ public class ModelWriter {
                 } else {
                     mBgDataModel.workspaceItems.remove(modelItem);
                 }
+                mBgDataModel.invalidateSnapshot();
                 mVerifier.verifyModel();
             }
         }
@@ -35,6 +35,7 @@ import androidx.annotation.VisibleForTesting;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.pm.PackageInstallInfo;
+import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.util.PackageManagerHelper;
 
 import java.util.Comparator;
@@ -60,6 +61,10 @@ public class AppInfo extends ItemInfoWithIcon implements WorkspaceItemFactory {
     // Section name used for indexing.
     public String sectionName = "";
 
+    // Cached key used to sort the apps by title, see AppInfoComparator.
+    @Nullable
+    public LabelComparator.SortKey sortKey;
+
     public AppInfo() {
         itemType = LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
     }
@@ -93,6 +98,7 @@ public class AppInfo extends ItemInfoWithIcon implements WorkspaceItemFactory {
         componentName = info.componentName;
         title = Utilities.trim(info.title);
         intent = new Intent(info.intent);
+        sortKey = info.sortKey;
     }
 
     @VisibleForTesting
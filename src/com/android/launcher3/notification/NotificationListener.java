@@ -32,7 +32,6 @@ import android.service.notification.StatusBarNotification;
 import android.text.TextUtils;
 import android.util.ArraySet;
 import android.util.Log;
-import android.util.Pair;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
@@ -42,10 +41,12 @@ import androidx.annotation.WorkerThread;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SettingsCache;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -66,6 +67,10 @@ public class NotificationListener extends NotificationListenerService {
     private static final int MSG_NOTIFICATION_FULL_REFRESH = 3;
     private static final int MSG_CANCEL_NOTIFICATION = 4;
     private static final int MSG_RANKING_UPDATE = 5;
+    private static final int MSG_DISPATCH_CHANGES = 6;
+
+    // Changes received within this window are merged and dispatched together
+    private static final long CHANGES_BATCH_WINDOW_MS = 50;
 
     private static NotificationListener sNotificationListenerInstance = null;
     private static final ArraySet<NotificationsChangedListener> sNotificationsChangedListeners =
@@ -84,6 +89,15 @@ public class NotificationListener extends NotificationListenerService {
     /** The last notification key that was dismissed from launcher UI */
     private String mLastKeyDismissedByLauncher;
 
+    /** Changes not yet dispatched to the UI, by notification key */
+    private final Map<String, NotificationChange> mPendingChanges = new LinkedHashMap<>();
+    /** The latest ranking not yet processed */
+    private RankingMap mPendingRankingMap;
+
+    // Counters of the worker events received and of the UI updates sent for them
+    private int mEventsReceivedCount;
+    private int mUiUpdatesSentCount;
+
     private SettingsCache mSettingsCache;
     private SettingsCache.OnChangeListener mNotificationSettingsChangedListener;
 
@@ -123,16 +137,15 @@ public class NotificationListener extends NotificationListenerService {
     private boolean handleWorkerMessage(Message message) {
         switch (message.what) {
             case MSG_NOTIFICATION_POSTED: {
+                mEventsReceivedCount++;
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(notificationIsValidForUI(sbn)
-                                ? MSG_NOTIFICATION_POSTED : MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                addPendingChange(sbn, notificationIsValidForUI(sbn));
                 return true;
             }
             case MSG_NOTIFICATION_REMOVED: {
+                mEventsReceivedCount++;
                 StatusBarNotification sbn = (StatusBarNotification) message.obj;
-                mUiHandler.obtainMessage(MSG_NOTIFICATION_REMOVED,
-                        toKeyPair(sbn)).sendToTarget();
+                addPendingChange(sbn, false /* posted */);
 
                 NotificationGroup notificationGroup = mNotificationGroupMap.get(sbn.getGroupKey());
                 String key = sbn.getKey();
@@ -153,6 +166,9 @@ public class NotificationListener extends NotificationListenerService {
                 return true;
             }
             case MSG_NOTIFICATION_FULL_REFRESH:
+                mEventsReceivedCount++;
+                // The active notifications already include the effect of all pending changes
+                mPendingChanges.clear();
                 List<StatusBarNotification> activeNotifications = null;
                 if (sIsConnected) {
                     activeNotifications = Arrays.stream(getActiveNotificationsSafely(null))
@@ -162,6 +178,7 @@ public class NotificationListener extends NotificationListenerService {
                     activeNotifications = new ArrayList<>();
                 }
 
+                mUiUpdatesSentCount++;
                 mUiHandler.obtainMessage(message.what, activeNotifications).sendToTarget();
                 return true;
             case MSG_CANCEL_NOTIFICATION: {
@@ -170,9 +187,25 @@ public class NotificationListener extends NotificationListenerService {
                 return true;
             }
             case MSG_RANKING_UPDATE: {
-                String[] keys = ((RankingMap) message.obj).getOrderedKeys();
-                for (StatusBarNotification sbn : getActiveNotificationsSafely(keys)) {
-                    updateGroupKeyIfNecessary(sbn);
+                mEventsReceivedCount++;
+                // Only the latest ranking matters, so it is processed once per batch
+                mPendingRankingMap = (RankingMap) message.obj;
+                scheduleDispatchChanges();
+                return true;
+            }
+            case MSG_DISPATCH_CHANGES: {
+                if (mPendingRankingMap != null) {
+                    String[] keys = mPendingRankingMap.getOrderedKeys();
+                    mPendingRankingMap = null;
+                    for (StatusBarNotification sbn : getActiveNotificationsSafely(keys)) {
+                        updateGroupKeyIfNecessary(sbn);
+                    }
+                }
+                if (!mPendingChanges.isEmpty()) {
+                    mUiUpdatesSentCount++;
+                    mUiHandler.obtainMessage(MSG_DISPATCH_CHANGES,
+                            new ArrayList<>(mPendingChanges.values())).sendToTarget();
+                    mPendingChanges.clear();
                 }
                 return true;
             }
@@ -180,21 +213,30 @@ public class NotificationListener extends NotificationListenerService {
         return false;
     }
 
+    @WorkerThread
+    private void addPendingChange(StatusBarNotification sbn, boolean posted) {
+        // A later change of the same notification replaces the earlier one
+        String key = sbn.getKey();
+        mPendingChanges.remove(key);
+        mPendingChanges.put(key, new NotificationChange(PackageUserKey.fromNotification(sbn),
+                NotificationKeyData.fromNotification(sbn), posted));
+        scheduleDispatchChanges();
+    }
+
+    @WorkerThread
+    private void scheduleDispatchChanges() {
+        if (!mWorkerHandler.hasMessages(MSG_DISPATCH_CHANGES)) {
+            mWorkerHandler.sendEmptyMessageDelayed(MSG_DISPATCH_CHANGES, CHANGES_BATCH_WINDOW_MS);
+        }
+    }
+
     private boolean handleUiMessage(Message message) {
         switch (message.what) {
-            case MSG_NOTIFICATION_POSTED:
+            case MSG_DISPATCH_CHANGES:
                 if (sNotificationsChangedListeners.size() > 0) {
-                    Pair<PackageUserKey, NotificationKeyData> msg = (Pair) message.obj;
+                    List<NotificationChange> changes = (List<NotificationChange>) message.obj;
                     for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
-                        listener.onNotificationPosted(msg.first, msg.second);
-                    }
-                }
-                break;
-            case MSG_NOTIFICATION_REMOVED:
-                if (sNotificationsChangedListeners.size() > 0) {
-                    Pair<PackageUserKey, NotificationKeyData> msg = (Pair) message.obj;
-                    for (NotificationsChangedListener listener : sNotificationsChangedListeners) {
-                        listener.onNotificationRemoved(msg.first, msg.second);
+                        listener.onNotificationsChanged(changes);
                     }
                 }
                 break;
@@ -350,9 +392,28 @@ public class NotificationListener extends NotificationListenerService {
         return !isGroupHeader && !missingTitleAndText;
     }
 
-    private static Pair<PackageUserKey, NotificationKeyData> toKeyPair(StatusBarNotification sbn) {
-        return Pair.create(PackageUserKey.fromNotification(sbn),
-                NotificationKeyData.fromNotification(sbn));
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "NotificationListener:"
+                + " eventsReceived=" + mEventsReceivedCount
+                + " uiUpdatesSent=" + mUiUpdatesSentCount);
+    }
+
+    /**
+     * A notification which was posted or removed
+     */
+    public static class NotificationChange {
+
+        public final PackageUserKey packageUserKey;
+        public final NotificationKeyData notificationKey;
+        // False if the notification was removed, or is no longer valid for the UI
+        public final boolean posted;
+
+        public NotificationChange(PackageUserKey packageUserKey,
+                NotificationKeyData notificationKey, boolean posted) {
+            this.packageUserKey = packageUserKey;
+            this.notificationKey = notificationKey;
+            this.posted = posted;
+        }
     }
 
     public interface NotificationsChangedListener {
@@ -361,5 +422,19 @@ public class NotificationListener extends NotificationListenerService {
         void onNotificationRemoved(PackageUserKey removedPackageUserKey,
                 NotificationKeyData notificationKey);
         void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications);
+
+        /**
+         * Called with the changes received since the last update, with at most one change per
+         * notification.
+         */
+        default void onNotificationsChanged(List<NotificationChange> changes) {
+            for (NotificationChange change : changes) {
+                if (change.posted) {
+                    onNotificationPosted(change.packageUserKey, change.notificationKey);
+                } else {
+                    onNotificationRemoved(change.packageUserKey, change.notificationKey);
+                }
+            }
+        }
     }
 }
@@ -19,6 +19,8 @@ package com.android.launcher3.popup;
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -28,16 +30,20 @@ import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.notification.NotificationListener;
+import com.android.launcher3.notification.NotificationListener.NotificationChange;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.ShortcutUtil;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -67,39 +73,99 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
 
     private PopupDataChangeListener mChangeListener = PopupDataChangeListener.INSTANCE;
 
+    private final HashSet<PackageUserKey> mPendingDotUpdates = new HashSet<>();
+    private final FrameCallback mDotUpdateCallback = frameTimeNanos ->
+            dispatchNotificationDotsUpdate();
+    private boolean mDotUpdateScheduled;
+
     public PopupDataProvider(Consumer<Predicate<PackageUserKey>> notificationDotsChangeListener) {
         mNotificationDotsChangeListener = notificationDotsChangeListener;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        mNotificationDotsChangeListener.accept(updatedDots);
-        mChangeListener.onNotificationDotsUpdated(updatedDots);
+    /**
+     * Schedules a dot update for the given packages. Updates received before the next frame are
+     * coalesced, so that a burst of notifications only refreshes the icons once.
+     */
+    private void updateNotificationDots(Collection<PackageUserKey> updatedDots) {
+        mPendingDotUpdates.addAll(updatedDots);
+        if (!mDotUpdateScheduled) {
+            mDotUpdateScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mDotUpdateCallback);
+        }
+    }
+
+    private void dispatchNotificationDotsUpdate() {
+        mDotUpdateScheduled = false;
+        if (mPendingDotUpdates.isEmpty()) {
+            return;
+        }
+        HashSet<PackageUserKey> updatedDots = new HashSet<>(mPendingDotUpdates);
+        mPendingDotUpdates.clear();
+        mNotificationDotsChangeListener.accept(updatedDots::contains);
+        mChangeListener.onNotificationDotsUpdated(updatedDots::contains);
     }
 
     @Override
     public void onNotificationPosted(PackageUserKey postedPackageUserKey,
             NotificationKeyData notificationKey) {
-        DotInfo dotInfo = mPackageUserToDotInfos.get(postedPackageUserKey);
-        if (dotInfo == null) {
-            dotInfo = new DotInfo();
-            mPackageUserToDotInfos.put(postedPackageUserKey, dotInfo);
-        }
-        if (dotInfo.addOrUpdateNotificationKey(notificationKey)) {
-            updateNotificationDots(postedPackageUserKey::equals);
+        if (addNotificationKey(postedPackageUserKey, notificationKey)) {
+            updateNotificationDots(Collections.singleton(postedPackageUserKey));
         }
     }
 
     @Override
     public void onNotificationRemoved(PackageUserKey removedPackageUserKey,
             NotificationKeyData notificationKey) {
-        DotInfo oldDotInfo = mPackageUserToDotInfos.get(removedPackageUserKey);
+        if (removeNotificationKey(removedPackageUserKey, notificationKey)) {
+            updateNotificationDots(Collections.singleton(removedPackageUserKey));
+            trimNotifications(mPackageUserToDotInfos);
+        }
+    }
+
+    @Override
+    public void onNotificationsChanged(List<NotificationChange> changes) {
+        HashSet<PackageUserKey> updatedDots = new HashSet<>();
+        boolean removedNotifications = false;
+        for (NotificationChange change : changes) {
+            if (change.posted) {
+                if (addNotificationKey(change.packageUserKey, change.notificationKey)) {
+                    updatedDots.add(change.packageUserKey);
+                }
+            } else if (removeNotificationKey(change.packageUserKey, change.notificationKey)) {
+                updatedDots.add(change.packageUserKey);
+                removedNotifications = true;
+            }
+        }
+        if (!updatedDots.isEmpty()) {
+            updateNotificationDots(updatedDots);
+        }
+        if (removedNotifications) {
+            trimNotifications(mPackageUserToDotInfos);
+        }
+    }
+
+    /** Returns true if the dot of the package changed */
+    private boolean addNotificationKey(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+        if (dotInfo == null) {
+            dotInfo = new DotInfo();
+            mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+        }
+        return dotInfo.addOrUpdateNotificationKey(notificationKey);
+    }
+
+    /** Returns true if the dot of the package changed */
+    private boolean removeNotificationKey(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo oldDotInfo = mPackageUserToDotInfos.get(packageUserKey);
         if (oldDotInfo != null && oldDotInfo.removeNotificationKey(notificationKey)) {
             if (oldDotInfo.getNotificationKeys().size() == 0) {
-                mPackageUserToDotInfos.remove(removedPackageUserKey);
+                mPackageUserToDotInfos.remove(packageUserKey);
             }
-            updateNotificationDots(removedPackageUserKey::equals);
-            trimNotifications(mPackageUserToDotInfos);
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -134,7 +200,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         }
 
         if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
+            updateNotificationDots(updatedDots.keySet());
         }
         trimNotifications(updatedDots);
     }
@@ -205,6 +271,13 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         mChangeListener.onWidgetsBound();
     }
 
+    /**
+     * Updates the list of all widgets with the entries of the packages which changed.
+     */
+    public void updateWidgets(WidgetsListDiff diff) {
+        setAllWidgets(diff.applyTo(mAllWidgets));
+    }
+
     public void setChangeListener(PopupDataChangeListener listener) {
         mChangeListener = listener == null ? PopupDataChangeListener.INSTANCE : listener;
     }
@@ -262,6 +335,10 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "PopupDataProvider:");
         writer.println(prefix + "\tmPackageUserToDotInfos:" + mPackageUserToDotInfos);
+        NotificationListener notificationListener = NotificationListener.getInstanceIfConnected();
+        if (notificationListener != null) {
+            notificationListener.dump(prefix + "\t", writer);
+        }
     }
 
     /**
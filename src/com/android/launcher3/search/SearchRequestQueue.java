@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.search;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.SEARCH_EXECUTOR;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the queries of a {@link SearchAlgorithm} on {@link
+ * com.android.launcher3.util.Executors#SEARCH_EXECUTOR}.
+ *
+ * Each new query supersedes the previous one: if it has not started yet it is dropped, otherwise
+ * it is aborted the next time it checks {@link Request#isCancelled()}. Results of a superseded
+ * query are never delivered.
+ *
+ * @param <T> Search Result type
+ */
+public class SearchRequestQueue<T> {
+
+    /** Minimum interval between two partial results of the same query. */
+    private static final long PARTIAL_RESULTS_INTERVAL_MS = 32;
+
+    private final Handler mResultHandler = new Handler(MAIN_EXECUTOR.getLooper());
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    /**
+     * Schedules {@param operation} for the {@param query}, superseding any previous query.
+     */
+    public void submit(String query, SearchCallback<T> callback, SearchOperation<T> operation) {
+        Request request = new Request(mGeneration.incrementAndGet(), query, callback);
+        SEARCH_EXECUTOR.post(() -> {
+            if (request.isCancelled()) {
+                return;
+            }
+            ArrayList<T> result = operation.run(request);
+            if (result != null) {
+                request.deliver(result);
+            }
+        });
+    }
+
+    /**
+     * Cancels the active query, if any.
+     */
+    public void cancel() {
+        mGeneration.incrementAndGet();
+        mResultHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * A single query scheduled on the queue
+     */
+    public class Request {
+
+        private final int mGeneration;
+        private final String mQuery;
+        private final SearchCallback<T> mCallback;
+
+        private long mLastDeliveryTime;
+
+        private Request(int generation, String query, SearchCallback<T> callback) {
+            mGeneration = generation;
+            mQuery = query;
+            mCallback = callback;
+            mLastDeliveryTime = SystemClock.uptimeMillis();
+        }
+
+        /**
+         * Returns true if this query was superseded or cancelled and should stop its work.
+         */
+        public boolean isCancelled() {
+            return mGeneration != SearchRequestQueue.this.mGeneration.get();
+        }
+
+        /**
+         * Returns true if enough time has passed since the last results were delivered for it to
+         * be worth delivering partial results.
+         */
+        @WorkerThread
+        public boolean shouldDeliverPartialResult() {
+            return SystemClock.uptimeMillis() - mLastDeliveryTime >= PARTIAL_RESULTS_INTERVAL_MS;
+        }
+
+        /**
+         * Delivers the results found so far, which are replaced by any later results.
+         */
+        @WorkerThread
+        public void deliver(ArrayList<T> result) {
+            mLastDeliveryTime = SystemClock.uptimeMillis();
+            mResultHandler.post(() -> deliverOnMainThread(result));
+        }
+
+        @MainThread
+        private void deliverOnMainThread(ArrayList<T> result) {
+            if (!isCancelled()) {
+                mCallback.onSearchResult(mQuery, result);
+            }
+        }
+    }
+
+    /**
+     * The work done for a single query
+     */
+    public interface SearchOperation<T> {
+
+        /**
+         * Runs the query, and returns the final results or null if the request was cancelled.
+         */
+        @WorkerThread
+        @Nullable
+        ArrayList<T> run(SearchRequestQueue<T>.Request request);
+    }
+}
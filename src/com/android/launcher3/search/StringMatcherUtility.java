@@ -16,6 +16,8 @@
 
 package com.android.launcher3.search;
 
+import com.android.launcher3.util.IntArray;
+
 import java.text.Collator;
 
 /**
@@ -58,6 +60,64 @@ public class StringMatcherUtility {
         return false;
     }
 
+    /**
+     * Returns the index in {@code target} of the first match of {@code query}, or -1 if it
+     * doesn't match. Same as {@link #matches(String, String, StringMatcher)}, but uses the
+     * lower-cased target and the word breaks from {@link #getWordBreaks(String)} computed ahead
+     * of time.
+     */
+    public static int getMatchIndex(String query, String target, String targetLower,
+            int[] wordBreaks, StringMatcher matcher) {
+        int queryLength = query.length();
+
+        int targetLength = target.length();
+
+        if (targetLength < queryLength || queryLength <= 0) {
+            return -1;
+        }
+
+        if (requestSimpleFuzzySearch(query)) {
+            return targetLower.indexOf(query);
+        }
+
+        int end = targetLength - queryLength;
+        for (int i : wordBreaks) {
+            if (i > end) {
+                break;
+            }
+            if (matcher.matches(query, target.substring(i, i + queryLength))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the sorted indices in {@code target} at which a word/phrase starts, as considered
+     * by {@link #matches(String, String, StringMatcher)}.
+     */
+    public static int[] getWordBreaks(String target) {
+        int targetLength = target.length();
+        if (targetLength == 0) {
+            return new int[0];
+        }
+
+        IntArray breaks = new IntArray();
+        int lastType;
+        int thisType = Character.UNASSIGNED;
+        int nextType = Character.getType(target.codePointAt(0));
+        for (int i = 0; i < targetLength; i++) {
+            lastType = thisType;
+            thisType = nextType;
+            nextType = i < (targetLength - 1)
+                    ? Character.getType(target.codePointAt(i + 1)) : Character.UNASSIGNED;
+            if (isBreak(thisType, lastType, nextType)) {
+                breaks.add(i);
+            }
+        }
+        return breaks.toArray();
+    }
+
     /**
      * Returns true if the current point should be a break point. Following cases
      * are considered as break points:
@@ -147,7 +207,7 @@ public class StringMatcherUtility {
     /**
      * Matching optimization to search in Chinese.
      */
-    private static boolean requestSimpleFuzzySearch(String s) {
+    public static boolean requestSimpleFuzzySearch(String s) {
         for (int i = 0; i < s.length(); ) {
             int codepoint = s.codePointAt(i);
             i += Character.charCount(codepoint);
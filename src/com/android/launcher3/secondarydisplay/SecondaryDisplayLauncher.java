@@ -31,6 +31,7 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
 import com.android.launcher3.R;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.StringCache;
 import com.android.launcher3.model.data.AppInfo;
@@ -57,6 +58,7 @@ public class SecondaryDisplayLauncher extends BaseDraggingActivity
     private View mAppsButton;
 
     private PopupDataProvider mPopupDataProvider;
+    private final DotViewIndex mDotViewIndex = new DotViewIndex();
 
     private boolean mAppDrawerShown = false;
 
@@ -97,8 +99,7 @@ public class SecondaryDisplayLauncher extends BaseDraggingActivity
         mAppsView = findViewById(R.id.apps_view);
         mAppsButton = findViewById(R.id.all_apps_button);
 
-        mPopupDataProvider = new PopupDataProvider(
-                mAppsView.getAppsStore()::updateNotificationDots);
+        mPopupDataProvider = new PopupDataProvider(mDotViewIndex::updateNotificationDots);
 
         mModel.addCallbacksAndLoad(this);
     }
@@ -243,6 +244,11 @@ public class SecondaryDisplayLauncher extends BaseDraggingActivity
         return mPopupDataProvider;
     }
 
+    @Override
+    public DotViewIndex getDotViewIndex() {
+        return mDotViewIndex;
+    }
+
     @Override
     public OnClickListener getItemOnClickListener() {
         return this::onIconClicked;
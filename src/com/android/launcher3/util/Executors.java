@@ -80,6 +80,13 @@ public class Executors {
     public static final LooperExecutor MODEL_EXECUTOR =
             new LooperExecutor(createAndStartNewLooper("launcher-loader"));
 
+    /**
+     * Executor used for running search queries, so that they are not queued behind model tasks
+     */
+    public static final LooperExecutor SEARCH_EXECUTOR =
+            new LooperExecutor(
+                    createAndStartNewLooper("launcher-search", Process.THREAD_PRIORITY_FOREGROUND));
+
     /**
      * Returns and caches a single thread executor for a given package.
      *
@@ -4,20 +4,42 @@ import android.graphics.Rect;
 
 import com.android.launcher3.model.data.ItemInfo;
 
+import java.util.Arrays;
+
 /**
  * Utility object to manage the occupancy in a grid.
+ *
+ * Each row is stored as a bitmask, with bit x set if the cell (x, y) is occupied, so that
+ * regions can be checked, marked and copied one row at a time.
  */
 public class GridOccupancy extends AbsGridOccupancy {
 
+    /** Maximum number of columns of a grid */
+    public static final int MAX_COUNT_X = Long.SIZE;
+
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > MAX_COUNT_X) {
+            throw new IllegalArgumentException("Grid too wide: " + countX);
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRows = new long[Math.max(countY, 0)];
+    }
+
+    /**
+     * Returns a mask with the bits [x, x + spanX) set.
+     */
+    private static long spanMask(int x, int spanX) {
+        if (spanX <= 0) {
+            return 0;
+        }
+        long mask = spanX >= Long.SIZE ? -1L : (1L << spanX) - 1;
+        return mask << x;
     }
 
     /**
@@ -30,28 +52,47 @@ public class GridOccupancy extends AbsGridOccupancy {
      * @return true if a vacant cell was found
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
-        return super.findVacantCell(vacantOut, cells, mCountX, mCountY, spanX, spanY);
+        return super.findVacantCell(vacantOut, mCountX, mCountY, spanX, spanY);
     }
 
     public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
-            }
-        }
+        System.arraycopy(mRows, 0, dest.mRows, 0, Math.min(mRows.length, dest.mRows.length));
     }
 
+    /**
+     * Returns true if the cell (x, y) is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
+    }
+
+    @Override
     public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        long mask = spanMask(x, spanX);
+        for (int j = y; j <= y2; j++) {
+            if ((mRows[j] & mask) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if {@param block} can be placed with its top-left corner at (x, y) without
+     * any of its occupied cells overlapping an occupied cell of this grid.
+     */
+    public boolean isRegionVacant(int x, int y, GridOccupancy block) {
+        if (x < 0 || y < 0 || x + block.mCountX > mCountX || y + block.mCountY > mCountY) {
+            return false;
+        }
+        for (int j = 0; j < block.mCountY; j++) {
+            if ((mRows[y + j] & (block.mRows[j] << x)) != 0) {
+                return false;
             }
         }
         return true;
@@ -59,9 +100,15 @@ public class GridOccupancy extends AbsGridOccupancy {
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
         if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
+        int x2 = Math.min(cellX + spanX, mCountX);
+        int y2 = Math.min(cellY + spanY, mCountY);
+        if (cellX >= x2) return;
+        long mask = spanMask(cellX, x2 - cellX);
+        for (int y = cellY; y < y2; y++) {
+            if (value) {
+                mRows[y] |= mask;
+            } else {
+                mRows[y] &= ~mask;
             }
         }
     }
@@ -79,6 +126,6 @@ public class GridOccupancy extends AbsGridOccupancy {
     }
 
     public void clear() {
-        markCells(0, 0, mCountX, mCountY, false);
+        Arrays.fill(mRows, 0);
     }
 }
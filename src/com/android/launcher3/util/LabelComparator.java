@@ -15,8 +15,14 @@
  */
 package com.android.launcher3.util;
 
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Comparator;
+import java.util.Locale;
 
 /**
  * Extension of {@link java.text.Collator} with special handling for digits. Used for comparing
@@ -24,23 +30,77 @@ import java.util.Comparator;
  */
 public class LabelComparator implements Comparator<String> {
 
-    private final Collator mCollator = Collator.getInstance();
+    private final Locale mLocale = Locale.getDefault();
+    private final Collator mCollator = Collator.getInstance(mLocale);
 
     @Override
     public int compare(String titleA, String titleB) {
+        int result = compareStartsWithLetter(startsWithLetter(titleA), startsWithLetter(titleB));
+        if (result != 0) {
+            return result;
+        }
+
+        // Order by the title in the current locale
+        return mCollator.compare(titleA, titleB);
+    }
+
+    /**
+     * Returns a key which compares the same way as {@param label} does with this comparator.
+     */
+    public SortKey getSortKey(@Nullable CharSequence label) {
+        String title = label == null ? "" : label.toString();
+        return new SortKey(title, mLocale, startsWithLetter(title),
+                mCollator.getCollationKey(title));
+    }
+
+    /**
+     * Returns true if {@param key} was created by a comparator of the current locale for a label
+     * equal to {@param label}, and can be used instead of computing a new key.
+     */
+    public boolean isSortKeyValid(@Nullable SortKey key, @Nullable CharSequence label) {
+        return key != null && key.mLocale.equals(mLocale)
+                && TextUtils.equals(key.mLabel, label == null ? "" : label);
+    }
+
+    private static boolean startsWithLetter(String title) {
+        return title.length() > 0 && Character.isLetterOrDigit(title.codePointAt(0));
+    }
+
+    private static int compareStartsWithLetter(boolean aStartsWithLetter,
+            boolean bStartsWithLetter) {
         // Ensure that we de-prioritize any titles that don't start with a
         // linguistic letter or digit
-        boolean aStartsWithLetter = (titleA.length() > 0) &&
-                Character.isLetterOrDigit(titleA.codePointAt(0));
-        boolean bStartsWithLetter = (titleB.length() > 0) &&
-                Character.isLetterOrDigit(titleB.codePointAt(0));
         if (aStartsWithLetter && !bStartsWithLetter) {
             return -1;
         } else if (!aStartsWithLetter && bStartsWithLetter) {
             return 1;
         }
+        return 0;
+    }
 
-        // Order by the title in the current locale
-        return mCollator.compare(titleA, titleB);
+    /**
+     * A precomputed collation key for a label, so that sorting does not need to run a full
+     * collation for every comparison.
+     */
+    public static class SortKey implements Comparable<SortKey> {
+
+        private final String mLabel;
+        private final Locale mLocale;
+        private final boolean mStartsWithLetter;
+        private final CollationKey mCollationKey;
+
+        private SortKey(String label, Locale locale, boolean startsWithLetter,
+                CollationKey collationKey) {
+            mLabel = label;
+            mLocale = locale;
+            mStartsWithLetter = startsWithLetter;
+            mCollationKey = collationKey;
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            int result = compareStartsWithLetter(mStartsWithLetter, other.mStartsWithLetter);
+            return result != 0 ? result : mCollationKey.compareTo(other.mCollationKey);
+        }
     }
 }
@@ -28,6 +28,7 @@ import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.allapps.search.SearchAdapterProvider;
 import com.android.launcher3.dot.DotInfo;
+import com.android.launcher3.dot.DotViewIndex;
 import com.android.launcher3.dragndrop.DragController;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.logger.LauncherAtom;
@@ -52,6 +53,15 @@ public interface ActivityContext {
         return null;
     }
 
+    /**
+     * Returns the index of the icons to update when notification dots change, or null if this
+     * context does not update its dots.
+     */
+    @Nullable
+    default DotViewIndex getDotViewIndex() {
+        return null;
+    }
+
     /**
      * For items with tree hierarchy, notifies the activity to invalidate the parent when a root
      * is invalidated
@@ -33,6 +33,7 @@ import android.util.Log;
 import android.util.Size;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 
 import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.LauncherAppState;
@@ -88,15 +89,30 @@ public class DatabaseWidgetPreviewLoader {
     }
 
     /**
-     * Returns a generated preview for a widget and if the preview should be saved in persistent
-     * storage.
+     * Returns the preview for a widget from {@link WidgetPreviewCache}, or generates it and adds it
+     * to the cache. Also used by the widget picker to render previews ahead of the cells binding.
      */
-    private Bitmap generatePreview(WidgetItem item, int previewWidth, int previewHeight) {
+    @WorkerThread
+    public Bitmap generatePreview(WidgetItem item, int previewWidth, int previewHeight) {
+        WidgetPreviewCache cache = WidgetPreviewCache.INSTANCE.get(mContext);
+        DeviceProfile dp = ActivityContext.lookupContext(mContext).getDeviceProfile();
+        int iconSize = item.widgetInfo != null ? dp.iconSizePx : dp.allAppsIconSizePx;
+        String key = cache.getKey(item.componentName, item.user, previewWidth, previewHeight,
+                mPreviewBoxCornerRadius, iconSize);
+        Bitmap preview = key == null ? null : cache.get(key);
+        if (preview != null) {
+            return preview;
+        }
+
         if (item.widgetInfo != null) {
-            return generateWidgetPreview(item.widgetInfo, previewWidth, null);
+            preview = generateWidgetPreview(item.widgetInfo, previewWidth, null);
         } else {
-            return generateShortcutPreview(item.activityInfo, previewWidth, previewHeight);
+            preview = generateShortcutPreview(item.activityInfo, previewWidth, previewHeight);
+        }
+        if (key != null && preview != null) {
+            cache.put(key, preview);
         }
+        return preview;
     }
 
     /**
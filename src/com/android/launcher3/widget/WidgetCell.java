@@ -334,6 +334,11 @@ public class WidgetCell extends LinearLayout {
         mAnimatePreview = shouldAnimate;
     }
 
+    /** Returns true if the preview of this cell is still being loaded. */
+    public boolean isPreviewLoading() {
+        return mActiveRequest != null;
+    }
+
     private void applyPreview(Bitmap bitmap) {
         if (bitmap != null) {
             Drawable drawable = new RoundDrawableWrapper(
@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.util.Executors.createAndStartNewLooper;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.LooperExecutor;
+import com.android.launcher3.util.MainThreadInitializedObject;
+import com.android.launcher3.util.PackageUserKey;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Two level cache for the previews generated by {@link DatabaseWidgetPreviewLoader}: an in-memory
+ * LRU cache bounded by the size of the bitmaps, backed by files in the cache directory.
+ *
+ * The previews are keyed by the provider, its package version, the preview size, the resource
+ * configuration (night mode and density) and all the other inputs of the generated preview, so
+ * that an entry never needs to be validated. Entries of a package are also dropped when it is
+ * updated, see {@link #invalidate}.
+ */
+public class WidgetPreviewCache {
+
+    private static final String TAG = "WidgetPreviewCache";
+
+    public static final MainThreadInitializedObject<WidgetPreviewCache> INSTANCE =
+            new MainThreadInitializedObject<>(WidgetPreviewCache::new);
+
+    private static final String DIR_NAME = "widget_previews";
+    private static final long MAX_DISK_SIZE_BYTES = 16 * 1024 * 1024;
+
+    private final Context mContext;
+    private final File mCacheDir;
+    private final LruCache<String, Bitmap> mMemoryCache;
+    // Serial executor for the file operations, so that the previews are returned without waiting
+    // for them to be written
+    private final LooperExecutor mDiskExecutor = new LooperExecutor(
+            createAndStartNewLooper("widget-preview-writer", Process.THREAD_PRIORITY_BACKGROUND));
+
+    // Version codes of the packages, cleared when a package is invalidated
+    private final HashMap<String, Long> mPackageVersions = new HashMap<>();
+
+    // Total size of the files in the cache directory, or -1 if not yet computed
+    private long mDiskSize = -1;
+
+    private int mMemoryHits;
+    private int mDiskHits;
+    private int mMisses;
+
+    private WidgetPreviewCache(Context context) {
+        mContext = context;
+        mCacheDir = new File(context.getCacheDir(), DIR_NAME);
+        int maxMemoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 32,
+                Integer.MAX_VALUE);
+        mMemoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the key of a preview of the provided size, or null if the preview can't be cached.
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized String getKey(@NonNull ComponentName provider, @NonNull UserHandle user,
+            int width, int height, float cornerRadius, int iconSize) {
+        String pkg = provider.getPackageName();
+        Long versionCode = mPackageVersions.get(pkg);
+        if (versionCode == null) {
+            try {
+                PackageInfo info = mContext.getPackageManager().getPackageInfo(pkg,
+                        PackageManager.MATCH_UNINSTALLED_PACKAGES);
+                versionCode = info.getLongVersionCode();
+            } catch (PackageManager.NameNotFoundException e) {
+                return null;
+            }
+            mPackageVersions.put(pkg, versionCode);
+        }
+        String iconState = LauncherAppState.getInstance(mContext).getIconCache()
+                .getIconSystemState(pkg);
+        // Previews are drawn from the resources of the provider, which can have night mode and
+        // density variants
+        Configuration config = mContext.getResources().getConfiguration();
+        long serial = UserCache.INSTANCE.get(mContext).getSerialNumberForUser(user);
+        return serial + "/" + provider.flattenToShortString() + "/" + versionCode + "/"
+                + width + "x" + height + "/" + cornerRadius + "/" + iconSize + "/" + iconState
+                + "/" + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                + "/" + config.densityDpi;
+    }
+
+    /**
+     * Returns the cached preview for the {@param key}, or null if it is not cached.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap get(@NonNull String key) {
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            synchronized (this) {
+                mMemoryHits++;
+            }
+            return bitmap;
+        }
+
+        File file = getFile(key);
+        if (file.exists()) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.HARDWARE;
+            bitmap = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        }
+        synchronized (this) {
+            if (bitmap != null) {
+                mDiskHits++;
+            } else {
+                mMisses++;
+            }
+        }
+        if (bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+            // Keep the files ordered by last use for the eviction of the disk cache
+            mDiskExecutor.execute(() -> file.setLastModified(System.currentTimeMillis()));
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds the generated {@param bitmap} to both levels of the cache. The file is written
+     * asynchronously.
+     */
+    @WorkerThread
+    public void put(@NonNull String key, @NonNull Bitmap bitmap) {
+        mMemoryCache.put(key, bitmap);
+        mDiskExecutor.execute(() -> writeFile(key, bitmap));
+    }
+
+    private void writeFile(String key, Bitmap bitmap) {
+        File file = getFile(key);
+        File dir = file.getParentFile();
+        if (dir == null || (!dir.isDirectory() && !dir.mkdirs())) {
+            return;
+        }
+        Bitmap softwareBitmap = bitmap.getConfig() == Bitmap.Config.HARDWARE
+                ? bitmap.copy(Bitmap.Config.ARGB_8888, false) : bitmap;
+        if (softwareBitmap == null) {
+            return;
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            softwareBitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write widget preview " + key, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        onFileAdded(file.length());
+    }
+
+    /**
+     * Removes the previews of the package {@link PackageUserKey#mPackageName} for the user, or
+     * the previews of all the packages which were updated if {@param packageUser} is null.
+     */
+    @WorkerThread
+    public void invalidate(@Nullable PackageUserKey packageUser) {
+        if (packageUser == null) {
+            invalidateUpdatedPackages();
+            return;
+        }
+        if (packageUser.mPackageName == null) {
+            return;
+        }
+        invalidate(packageUser.mPackageName, packageUser.mUser);
+    }
+
+    /**
+     * Removes the previews of the {@param packageName} for the {@param user}.
+     */
+    public void invalidate(@NonNull String packageName, @NonNull UserHandle user) {
+        long serial = UserCache.INSTANCE.get(mContext).getSerialNumberForUser(user);
+        String prefix = serial + "/" + packageName + "/";
+        synchronized (this) {
+            mPackageVersions.remove(packageName);
+        }
+        for (String key : mMemoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mMemoryCache.remove(key);
+            }
+        }
+
+        mDiskExecutor.execute(() -> deleteFiles(packageName, serial + "_"));
+    }
+
+    /**
+     * Removes the previews of the packages whose version changed since their previews were
+     * cached, for all users. Previews keyed with other inputs which changed are never looked up
+     * again and are evicted from the cache as it fills.
+     */
+    private void invalidateUpdatedPackages() {
+        HashMap<String, Long> packageVersions;
+        synchronized (this) {
+            packageVersions = new HashMap<>(mPackageVersions);
+        }
+        PackageManager pm = mContext.getPackageManager();
+        for (Map.Entry<String, Long> entry : packageVersions.entrySet()) {
+            String packageName = entry.getKey();
+            long versionCode;
+            try {
+                versionCode = pm.getPackageInfo(packageName,
+                        PackageManager.MATCH_UNINSTALLED_PACKAGES).getLongVersionCode();
+            } catch (PackageManager.NameNotFoundException e) {
+                versionCode = -1;
+            }
+            if (versionCode == entry.getValue()) {
+                continue;
+            }
+
+            synchronized (this) {
+                mPackageVersions.remove(packageName);
+            }
+            String infix = "/" + packageName + "/";
+            for (String key : mMemoryCache.snapshot().keySet()) {
+                if (key.indexOf(infix) == key.indexOf('/')) {
+                    mMemoryCache.remove(key);
+                }
+            }
+            mDiskExecutor.execute(() -> deleteFiles(packageName, ""));
+        }
+    }
+
+    private void deleteFiles(String packageName, String namePrefix) {
+        File[] files = new File(mCacheDir, packageName).listFiles(
+                (dir, name) -> name.startsWith(namePrefix));
+        if (files != null) {
+            for (File file : files) {
+                long length = file.length();
+                if (file.delete()) {
+                    onFileAdded(-length);
+                }
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        // Key starts with <user serial>/<package>/
+        int userEnd = key.indexOf('/');
+        int packageEnd = key.indexOf('/', userEnd + 1);
+        String name = key.substring(0, userEnd) + "_"
+                + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+        return new File(new File(mCacheDir, key.substring(userEnd + 1, packageEnd)), name);
+    }
+
+    /**
+     * Updates the size of the disk cache, and deletes the least recently used files if the
+     * cache is larger than {@link #MAX_DISK_SIZE_BYTES}. Files are touched when read, see
+     * {@link #get}.
+     */
+    private synchronized void onFileAdded(long length) {
+        if (mDiskSize < 0) {
+            mDiskSize = 0;
+            for (File file : listCacheFiles()) {
+                mDiskSize += file.length();
+            }
+            return;
+        }
+        mDiskSize += length;
+        if (mDiskSize <= MAX_DISK_SIZE_BYTES) {
+            return;
+        }
+
+        File[] files = listCacheFiles();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (mDiskSize <= MAX_DISK_SIZE_BYTES * 3 / 4) {
+                break;
+            }
+            long fileLength = file.length();
+            if (file.delete()) {
+                mDiskSize -= fileLength;
+            }
+        }
+    }
+
+    private File[] listCacheFiles() {
+        File[] packageDirs = mCacheDir.listFiles(File::isDirectory);
+        if (packageDirs == null) {
+            return new File[0];
+        }
+        return Arrays.stream(packageDirs)
+                .map(File::listFiles)
+                .filter(files -> files != null)
+                .flatMap(Arrays::stream)
+                .toArray(File[]::new);
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        int memoryHits;
+        int diskHits;
+        int misses;
+        synchronized (this) {
+            memoryHits = mMemoryHits;
+            diskHits = mDiskHits;
+            misses = mMisses;
+        }
+        int total = memoryHits + diskHits + misses;
+        writer.println(prefix + "WidgetPreviewCache:"
+                + " memoryHits=" + memoryHits
+                + " diskHits=" + diskHits
+                + " misses=" + misses
+                + " hitRate=" + (total == 0 ? 0 : (memoryHits + diskHits) * 100 / total) + "%"
+                + " memorySize=" + mMemoryCache.size() + "/" + mMemoryCache.maxSize()
+                + " diskSize=" + mDiskSize);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.model;
+
+import com.android.launcher3.model.data.PackageItemInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Changes to the list of {@link WidgetsListBaseEntry} shown in the widget picker, which only
+ * contains the entries of the packages that were updated.
+ */
+public final class WidgetsListDiff {
+
+    /** Packages whose previous entries are replaced */
+    public final Set<PackageItemInfo> changedPackages;
+
+    /** New entries of the changed packages that still have widgets or shortcuts */
+    public final List<WidgetsListBaseEntry> entries;
+
+    public WidgetsListDiff(Set<PackageItemInfo> changedPackages,
+            List<WidgetsListBaseEntry> entries) {
+        this.changedPackages = changedPackages;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns a new list containing the entries of {@param oldEntries} with this diff applied.
+     * The order of the unchanged entries is preserved.
+     */
+    public List<WidgetsListBaseEntry> applyTo(List<WidgetsListBaseEntry> oldEntries) {
+        ArrayList<WidgetsListBaseEntry> result =
+                new ArrayList<>(oldEntries.size() + entries.size());
+        for (WidgetsListBaseEntry entry : oldEntries) {
+            if (!changedPackages.contains(entry.mPkgItem)) {
+                result.add(entry);
+            }
+        }
+        result.addAll(entries);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WidgetsListDiff{changedPackages=" + changedPackages
+                + ", entries=" + entries.size() + "}";
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker;
+
+import static android.os.Process.THREAD_PRIORITY_BACKGROUND;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.launcher3.DeviceProfile;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.util.Executors.SimpleThreadFactory;
+import com.android.launcher3.views.ActivityContext;
+import com.android.launcher3.widget.DatabaseWidgetPreviewLoader;
+import com.android.launcher3.widget.WidgetCell;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.util.WidgetSizes;
+import com.android.launcher3.widget.util.WidgetsTableUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the previews of the widgets that are about to be scrolled into view in
+ * {@link WidgetsRecyclerView}, so that the cells find them in {@link
+ * com.android.launcher3.widget.WidgetPreviewCache} when they bind.
+ *
+ * The number of table rows rendered ahead grows with the scroll velocity, and requests for rows
+ * that are no longer ahead of the viewport are cancelled. The prefetch runs on a small pool of
+ * background threads, so it never delays the previews of the visible cells which are loaded on
+ * the UI helper thread.
+ */
+public class WidgetPreviewPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "WidgetPreviewPrefetcher";
+    private static final boolean DEBUG = false;
+
+    private static final int POOL_SIZE = 2;
+    private static final ThreadPoolExecutor PREFETCH_EXECUTOR = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new SimpleThreadFactory("WidgetPreviewPrefetch-", THREAD_PRIORITY_BACKGROUND));
+    static {
+        PREFETCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // Number of table rows rendered ahead of the viewport when scrolling slowly
+    private static final int MIN_PREFETCH_ROWS = 2;
+    private static final int MAX_PREFETCH_ROWS = 12;
+    // How far ahead in time the prefetch window reaches at the current scroll velocity
+    private static final long LOOKAHEAD_MS = 400;
+    // Stop waiting for the viewport to fill after this delay
+    private static final long FILL_TIMEOUT_MS = 5000;
+
+    private final Context mContext;
+    private final DatabaseWidgetPreviewLoader mPreviewLoader;
+    // Pending prefetch requests, only accessed on the main thread
+    private final Map<WidgetItem, Future<?>> mRequests = new HashMap<>();
+
+    private long mLastScrollTime;
+    private float mVelocityPxPerMs;
+    private int mScrollDirection = 1;
+
+    private long mFlingStartTime = -1;
+    private int mBlankFrames;
+    private int mFlingFrames;
+
+    public WidgetPreviewPrefetcher(Context context) {
+        mContext = context;
+        mPreviewLoader = new DatabaseWidgetPreviewLoader(context);
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - mLastScrollTime;
+        mLastScrollTime = now;
+        float velocity = elapsed > 0 && elapsed < 100 ? Math.abs(dy) / (float) elapsed : 0;
+        // Smooth the velocity as onScrolled is not called at a regular interval
+        mVelocityPxPerMs = (mVelocityPxPerMs + velocity) / 2;
+        mScrollDirection = dy > 0 ? 1 : -1;
+
+        prefetch(recyclerView);
+
+        if (mFlingStartTime >= 0) {
+            mFlingFrames++;
+            if (hasLoadingPreviews(recyclerView)) {
+                mBlankFrames++;
+            }
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        switch (newState) {
+            case RecyclerView.SCROLL_STATE_SETTLING:
+                mFlingStartTime = SystemClock.uptimeMillis();
+                mBlankFrames = 0;
+                mFlingFrames = 0;
+                break;
+            case RecyclerView.SCROLL_STATE_IDLE:
+                mVelocityPxPerMs = 0;
+                if (mFlingStartTime >= 0) {
+                    waitForFilledViewport(
+                            recyclerView, mFlingStartTime, SystemClock.uptimeMillis());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Cancels all the pending prefetch requests.
+     */
+    public void cancelAll() {
+        for (Future<?> request : mRequests.values()) {
+            request.cancel(false);
+        }
+        mRequests.clear();
+        mFlingStartTime = -1;
+    }
+
+    private void prefetch(RecyclerView recyclerView) {
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)
+                || !(recyclerView.getAdapter() instanceof WidgetsListAdapter)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        List<WidgetsListBaseEntry> entries =
+                ((WidgetsListAdapter) recyclerView.getAdapter()).getItems();
+        int position = mScrollDirection > 0
+                ? layoutManager.findLastVisibleItemPosition()
+                : layoutManager.findFirstVisibleItemPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int rowCount = MIN_PREFETCH_ROWS;
+        int rowHeight = getAverageRowHeight(recyclerView);
+        if (rowHeight > 0) {
+            rowCount += (int) (mVelocityPxPerMs * LOOKAHEAD_MS / rowHeight);
+        }
+        rowCount = Math.min(rowCount, MAX_PREFETCH_ROWS);
+
+        // Collect the items of the next rows, starting with the entry at the edge of the viewport
+        // as its rows may extend beyond it.
+        List<WidgetItem> items = new ArrayList<>();
+        for (; position >= 0 && position < entries.size() && rowCount > 0;
+                position += mScrollDirection) {
+            if (!(entries.get(position) instanceof WidgetsListContentEntry)) {
+                continue;
+            }
+            WidgetsListContentEntry entry = (WidgetsListContentEntry) entries.get(position);
+            List<ArrayList<WidgetItem>> table =
+                    WidgetsTableUtils.groupWidgetItemsIntoTableWithReordering(
+                            entry.mWidgets, entry.getMaxSpanSizeInCells());
+            for (int i = 0; i < table.size() && rowCount > 0; i++, rowCount--) {
+                items.addAll(table.get(mScrollDirection > 0 ? i : table.size() - 1 - i));
+            }
+        }
+
+        // Cancel the requests for the rows which are no longer ahead of the viewport
+        Iterator<Map.Entry<WidgetItem, Future<?>>> it = mRequests.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<WidgetItem, Future<?>> request = it.next();
+            if (!items.contains(request.getKey())) {
+                request.getValue().cancel(false);
+                it.remove();
+            }
+        }
+
+        DeviceProfile dp = ActivityContext.lookupContext(mContext).getDeviceProfile();
+        for (WidgetItem item : items) {
+            if (item.hasPreviewLayout() || mRequests.containsKey(item)) {
+                continue;
+            }
+            Size size = WidgetSizes.getWidgetItemSizePx(mContext, dp, item);
+            mRequests.put(item, PREFETCH_EXECUTOR.submit(() ->
+                    mPreviewLoader.generatePreview(item, size.getWidth(), size.getHeight())));
+        }
+    }
+
+    private static int getAverageRowHeight(RecyclerView recyclerView) {
+        int height = 0;
+        int rows = 0;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            RecyclerView.ViewHolder holder =
+                    recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            if (holder instanceof WidgetsRowViewHolder) {
+                WidgetsListTableView table = ((WidgetsRowViewHolder) holder).tableContainer;
+                for (int j = 0; j < table.getChildCount(); j++) {
+                    View row = table.getChildAt(j);
+                    if (row.getVisibility() == View.VISIBLE) {
+                        height += row.getHeight();
+                        rows++;
+                    }
+                }
+            }
+        }
+        return rows == 0 ? 0 : height / rows;
+    }
+
+    private static boolean hasLoadingPreviews(RecyclerView recyclerView) {
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            RecyclerView.ViewHolder holder =
+                    recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            if (!(holder instanceof WidgetsRowViewHolder)) {
+                continue;
+            }
+            WidgetsListTableView table = ((WidgetsRowViewHolder) holder).tableContainer;
+            for (int j = 0; j < table.getChildCount(); j++) {
+                ViewGroup row = (ViewGroup) table.getChildAt(j);
+                for (int k = 0; k < row.getChildCount(); k++) {
+                    View cell = row.getChildAt(k);
+                    if (cell.getVisibility() == View.VISIBLE && cell instanceof WidgetCell
+                            && ((WidgetCell) cell).isPreviewLoading()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports the time it took for all the visible cells to show their preview after a fling.
+     */
+    private void waitForFilledViewport(RecyclerView recyclerView, long flingStartTime,
+            long settleTime) {
+        if (mFlingStartTime != flingStartTime) {
+            // Cancelled, or another fling started
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (hasLoadingPreviews(recyclerView) && now - settleTime < FILL_TIMEOUT_MS
+                && recyclerView.isAttachedToWindow()) {
+            recyclerView.postOnAnimation(
+                    () -> waitForFilledViewport(recyclerView, flingStartTime, settleTime));
+            return;
+        }
+        if (DEBUG || Utilities.IS_DEBUG_DEVICE) {
+            Log.d(TAG, "Viewport filled " + (now - flingStartTime) + "ms after fling start, "
+                    + (now - settleTime) + "ms after settling, blank frames: "
+                    + mBlankFrames + "/" + mFlingFrames);
+        }
+        mFlingStartTime = -1;
+    }
+}
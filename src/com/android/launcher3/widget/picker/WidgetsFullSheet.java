@@ -317,6 +317,9 @@ public class WidgetsFullSheet extends BaseWidgetSheet
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         mActivityContext.getAppWidgetHost().removeProviderChangeListener(this);
+        for (int i = 0; i < mAdapters.size(); i++) {
+            mAdapters.valueAt(i).mPreviewPrefetcher.cancelAll();
+        }
         mAdapters.get(AdapterHolder.PRIMARY).mWidgetsRecyclerView
                 .removeOnAttachStateChangeListener(mBindScrollbarInSearchMode);
         if (mHasWorkProfile) {
@@ -768,6 +771,7 @@ public class WidgetsFullSheet extends BaseWidgetSheet
         private final int mAdapterType;
         private final WidgetsListAdapter mWidgetsListAdapter;
         private final DefaultItemAnimator mWidgetsListItemAnimator;
+        private final WidgetPreviewPrefetcher mPreviewPrefetcher;
 
         private WidgetsRecyclerView mWidgetsRecyclerView;
 
@@ -798,6 +802,7 @@ public class WidgetsFullSheet extends BaseWidgetSheet
             // Disable change animations because it disrupts the item focus upon adapter item
             // change.
             mWidgetsListItemAnimator.setSupportsChangeAnimations(false);
+            mPreviewPrefetcher = new WidgetPreviewPrefetcher(context);
         }
 
         private int getEmptySpaceHeight() {
@@ -808,6 +813,7 @@ public class WidgetsFullSheet extends BaseWidgetSheet
             mWidgetsRecyclerView = recyclerView;
             mWidgetsRecyclerView.setAdapter(mWidgetsListAdapter);
             mWidgetsRecyclerView.setItemAnimator(mWidgetsListItemAnimator);
+            mWidgetsRecyclerView.addOnScrollListener(mPreviewPrefetcher);
             mWidgetsRecyclerView.setHeaderViewDimensionsProvider(WidgetsFullSheet.this);
             mWidgetsRecyclerView.setEdgeEffectFactory(
                     ((SpringRelativeLayout) mContent).createEdgeEffectFactory());
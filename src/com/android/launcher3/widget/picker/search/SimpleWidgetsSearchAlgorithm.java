@@ -18,12 +18,13 @@ package com.android.launcher3.widget.picker.search;
 
 import static com.android.launcher3.search.StringMatcherUtility.matches;
 
-import android.os.Handler;
+import androidx.annotation.Nullable;
 
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.popup.PopupDataProvider;
 import com.android.launcher3.search.SearchAlgorithm;
 import com.android.launcher3.search.SearchCallback;
+import com.android.launcher3.search.SearchRequestQueue;
 import com.android.launcher3.search.StringMatcherUtility.StringMatcher;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.model.WidgetsListContentEntry;
@@ -35,28 +36,29 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * Implementation of {@link SearchAlgorithm} that posts a task to query on the main thread.
+ * Implementation of {@link SearchAlgorithm} that runs the query on the search executor.
  */
 public final class SimpleWidgetsSearchAlgorithm implements SearchAlgorithm<WidgetsListBaseEntry> {
 
-    private final Handler mResultHandler;
+    private final SearchRequestQueue<WidgetsListBaseEntry> mRequestQueue =
+            new SearchRequestQueue<>();
     private final PopupDataProvider mDataProvider;
 
     public SimpleWidgetsSearchAlgorithm(PopupDataProvider dataProvider) {
-        mResultHandler = new Handler();
         mDataProvider = dataProvider;
     }
 
     @Override
     public void doSearch(String query, SearchCallback<WidgetsListBaseEntry> callback) {
-        ArrayList<WidgetsListBaseEntry> result = getFilteredWidgets(mDataProvider, query);
-        mResultHandler.post(() -> callback.onSearchResult(query, result));
+        List<WidgetsListBaseEntry> allWidgets = mDataProvider.getAllWidgets();
+        mRequestQueue.submit(query, callback,
+                request -> getFilteredWidgets(allWidgets, query, request));
     }
 
     @Override
     public void cancel(boolean interruptActiveRequests) {
         if (interruptActiveRequests) {
-            mResultHandler.removeCallbacksAndMessages(/*token= */null);
+            mRequestQueue.cancel();
         }
     }
 
@@ -65,19 +67,42 @@ public final class SimpleWidgetsSearchAlgorithm implements SearchAlgorithm<Widge
      */
     public static ArrayList<WidgetsListBaseEntry> getFilteredWidgets(
             PopupDataProvider dataProvider, String input) {
+        return getFilteredWidgets(dataProvider.getAllWidgets(), input, null);
+    }
+
+    /**
+     * Returns entries for all matched widgets, delivering partial results to the
+     * {@param request} if provided.
+     *
+     * @return the results, or null if the request was cancelled before completion.
+     */
+    @Nullable
+    private static ArrayList<WidgetsListBaseEntry> getFilteredWidgets(
+            List<WidgetsListBaseEntry> allWidgets, String input,
+            @Nullable SearchRequestQueue<WidgetsListBaseEntry>.Request request) {
         ArrayList<WidgetsListBaseEntry> results = new ArrayList<>();
-        dataProvider.getAllWidgets().stream()
-                .filter(entry -> entry instanceof WidgetsListHeaderEntry)
-                .forEach(headerEntry -> {
-                    List<WidgetItem> matchedWidgetItems = filterWidgetItems(
-                            input, headerEntry.mPkgItem.title.toString(), headerEntry.mWidgets);
-                    if (matchedWidgetItems.size() > 0) {
-                        results.add(new WidgetsListSearchHeaderEntry(headerEntry.mPkgItem,
-                                headerEntry.mTitleSectionName, matchedWidgetItems));
-                        results.add(new WidgetsListContentEntry(headerEntry.mPkgItem,
-                                headerEntry.mTitleSectionName, matchedWidgetItems));
-                    }
-                });
+        for (WidgetsListBaseEntry headerEntry : allWidgets) {
+            if (!(headerEntry instanceof WidgetsListHeaderEntry)) {
+                continue;
+            }
+            if (request != null) {
+                if (request.isCancelled()) {
+                    return null;
+                }
+                if (request.shouldDeliverPartialResult()) {
+                    request.deliver(new ArrayList<>(results));
+                }
+            }
+
+            List<WidgetItem> matchedWidgetItems = filterWidgetItems(
+                    input, headerEntry.mPkgItem.title.toString(), headerEntry.mWidgets);
+            if (matchedWidgetItems.size() > 0) {
+                results.add(new WidgetsListSearchHeaderEntry(headerEntry.mPkgItem,
+                        headerEntry.mTitleSectionName, matchedWidgetItems));
+                results.add(new WidgetsListContentEntry(headerEntry.mPkgItem,
+                        headerEntry.mTitleSectionName, matchedWidgetItems));
+            }
+        }
         return results;
     }
 
@@ -37,9 +37,11 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
 import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
 import com.android.launcher3.widget.picker.WidgetsDiffReporter;
 
@@ -47,6 +49,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +74,11 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final Map<PackageItemInfo, List<WidgetItem>> mWidgetsList = new HashMap<>();
 
+    /* Packages whose widgets changed since the list for the picker was last returned. */
+    private final Set<PackageItemInfo> mChangedPackages = new HashSet<>();
+    // True if all the widgets changed since the list for the picker was last returned
+    private boolean mPickerListInvalid = true;
+
     /**
      * Returns a list of {@link WidgetsListBaseEntry}. All {@link WidgetItem} in a single row
      * are sorted (based on label and user), but the overall list of
@@ -84,16 +92,46 @@ public class WidgetsModel {
         AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(context);
 
         for (Map.Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsList.entrySet()) {
-            PackageItemInfo pkgItem = entry.getKey();
-            List<WidgetItem> widgetItems = entry.getValue();
-            String sectionName = (pkgItem.title == null) ? "" :
-                    indexer.computeSectionName(pkgItem.title);
-            result.add(new WidgetsListHeaderEntry(pkgItem, sectionName, widgetItems));
-            result.add(new WidgetsListContentEntry(pkgItem, sectionName, widgetItems));
+            addPickerEntries(result, entry.getKey(), entry.getValue(), indexer);
         }
+        mChangedPackages.clear();
+        mPickerListInvalid = false;
         return result;
     }
 
+    /**
+     * Returns the changes to the list returned by {@link #getWidgetsListForPicker} since it was
+     * last called, or since this method was last called. Only the entries of the changed packages
+     * are created.
+     *
+     * @return the diff, or null if all the widgets changed and
+     *         {@link #getWidgetsListForPicker} must be used instead.
+     */
+    @Nullable
+    public synchronized WidgetsListDiff getWidgetsListDiffForPicker(Context context) {
+        if (mPickerListInvalid) {
+            return null;
+        }
+        ArrayList<WidgetsListBaseEntry> entries = new ArrayList<>();
+        AlphabeticIndexCompat indexer = new AlphabeticIndexCompat(context);
+        for (Map.Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsList.entrySet()) {
+            if (mChangedPackages.contains(entry.getKey())) {
+                addPickerEntries(entries, entry.getKey(), entry.getValue(), indexer);
+            }
+        }
+        WidgetsListDiff diff = new WidgetsListDiff(new HashSet<>(mChangedPackages), entries);
+        mChangedPackages.clear();
+        return diff;
+    }
+
+    private static void addPickerEntries(List<WidgetsListBaseEntry> result,
+            PackageItemInfo pkgItem, List<WidgetItem> widgetItems, AlphabeticIndexCompat indexer) {
+        String sectionName = (pkgItem.title == null) ? "" :
+                indexer.computeSectionName(pkgItem.title);
+        result.add(new WidgetsListHeaderEntry(pkgItem, sectionName, widgetItems));
+        result.add(new WidgetsListContentEntry(pkgItem, sectionName, widgetItems));
+    }
+
     /** Returns a mapping of packages to their widgets without static shortcuts. */
     public synchronized Map<PackageUserKey, List<WidgetItem>> getAllWidgetsWithoutShortcuts() {
         Map<PackageUserKey, List<WidgetItem>> packagesToWidgets = new HashMap<>();
@@ -119,6 +157,11 @@ public class WidgetsModel {
         Preconditions.assertWorkerThread();
 
         Context context = app.getContext();
+        WidgetPreviewCache previewCache = WidgetPreviewCache.INSTANCE.getNoCreate();
+        if (previewCache != null) {
+            previewCache.invalidate(packageUser);
+        }
+
         final ArrayList<WidgetItem> widgetsAndShortcuts = new ArrayList<>();
         List<ComponentWithLabelAndIcon> updatedItems = new ArrayList<>();
         try {
@@ -170,17 +213,22 @@ public class WidgetsModel {
         if (packageUser == null) {
             // Clear the list if this is an update on all widgets and shortcuts.
             mWidgetsList.clear();
+            mPickerListInvalid = true;
         } else {
             // Otherwise, only clear the widgets and shortcuts for the changed package.
-            mWidgetsList.remove(packageItemInfoCache.getOrCreate(packageUser));
+            PackageItemInfo pkgItem = packageItemInfoCache.getOrCreate(packageUser);
+            mWidgetsList.remove(pkgItem);
+            mChangedPackages.add(pkgItem);
         }
 
         // add and update.
-        mWidgetsList.putAll(rawWidgetsShortcuts.stream()
+        Map<PackageItemInfo, List<WidgetItem>> updatedWidgets = rawWidgetsShortcuts.stream()
                 .filter(new WidgetValidityCheck(app))
                 .flatMap(widgetItem -> getPackageUserKeys(app.getContext(), widgetItem).stream()
                         .map(key -> new Pair<>(packageItemInfoCache.getOrCreate(key), widgetItem)))
-                .collect(groupingBy(pair -> pair.first, mapping(pair -> pair.second, toList()))));
+                .collect(groupingBy(pair -> pair.first, mapping(pair -> pair.second, toList())));
+        mWidgetsList.putAll(updatedWidgets);
+        mChangedPackages.addAll(updatedWidgets.keySet());
 
         // Update each package entry
         IconCache iconCache = app.getIconCache();
@@ -189,10 +237,18 @@ public class WidgetsModel {
         }
     }
 
-    public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
+    public synchronized void onPackageIconsUpdated(Set<String> packageNames, UserHandle user,
             LauncherAppState app) {
+        WidgetPreviewCache previewCache = WidgetPreviewCache.INSTANCE.getNoCreate();
+        if (previewCache != null) {
+            for (String packageName : packageNames) {
+                previewCache.invalidate(packageName, user);
+            }
+        }
+
         for (Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsList.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
+                mChangedPackages.add(entry.getKey());
                 List<WidgetItem> items = entry.getValue();
                 int count = items.size();
                 for (int i = 0; i < count; i++) {
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.util.LabelComparator.SortKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link AppInfoComparator}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AppInfoComparatorTest {
+
+    @Test
+    public void sortKey_validUntilTitleChanges() {
+        AppInfoComparator comparator = new AppInfoComparator(getApplicationContext());
+        AppInfo app = newApp("Calendar");
+        SortKey key = comparator.getSortKey(app);
+
+        assertTrue(comparator.isSortKeyValid(key, app));
+        app.title = "Calculator";
+        assertFalse(comparator.isSortKeyValid(key, app));
+    }
+
+    @Test
+    public void sortKey_recordedKeyInvalidAfterOtherComparatorRefreshesIt() {
+        AppInfoComparator first = new AppInfoComparator(getApplicationContext());
+        AppInfoComparator second = new AppInfoComparator(getApplicationContext());
+        AppInfo app = newApp("Calendar");
+        SortKey recordedKey = first.getSortKey(app);
+
+        app.title = "Calculator";
+        SortKey refreshedKey = second.getSortKey(app);
+
+        // The key cached on the app is up to date, but the first comparator sorted the app with
+        // its previous title
+        assertTrue(first.isSortKeyValid(app.sortKey, app));
+        assertSame(refreshedKey, app.sortKey);
+        assertFalse(first.isSortKeyValid(recordedKey, app));
+    }
+
+    private static AppInfo newApp(String title) {
+        ComponentName cn = new ComponentName("com.example", "com.example." + title);
+        return new AppInfo(cn, title, Process.myUserHandle(), AppInfo.makeLaunchIntent(cn));
+    }
+}
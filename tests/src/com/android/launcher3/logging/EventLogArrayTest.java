@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link EventLogArray}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class EventLogArrayTest {
+
+    @Test
+    public void registerEvent_returnsSameIdForSameName() {
+        int id = EventLogArray.registerEvent("EventLogArrayTest.same");
+
+        assertEquals(id, EventLogArray.registerEvent("EventLogArrayTest.same"));
+        assertTrue(id != EventLogArray.registerEvent("EventLogArrayTest.other"));
+    }
+
+    @Test
+    public void dump_formatsEventIdsAndExtras() {
+        int pointEvent = EventLogArray.registerEvent("EventLogArrayTest.point");
+        int formattedEvent = EventLogArray.registerEvent(
+                "EventLogArrayTest.formatted", extras -> "value" + extras);
+        EventLogArray log = new EventLogArray("test", 10);
+        log.addLog(pointEvent, 12, -34);
+        log.addLog(formattedEvent, 5);
+        log.addLog("stringEvent", true);
+
+        String dump = dump(log);
+        assertTrue(dump.contains("EventLogArrayTest.point: (12, -34)"));
+        assertTrue(dump.contains("EventLogArrayTest.formatted: value5"));
+        assertTrue(dump.contains("stringEvent: true"));
+    }
+
+    @Test
+    public void addLog_mergesRepeatedEvents() {
+        int event = EventLogArray.registerEvent("EventLogArrayTest.repeated");
+        EventLogArray log = new EventLogArray("test", 10);
+        for (int i = 0; i < 5; i++) {
+            log.addLog(event, i);
+        }
+
+        String dump = dump(log);
+        assertTrue(dump.contains("EventLogArrayTest.repeated: 4"));
+        assertTrue(dump.contains("& 3 similar events"));
+    }
+
+    @Test
+    public void addLog_dropsOldestEventsWhenFull() {
+        EventLogArray log = new EventLogArray("test", 2);
+        log.addLog("first");
+        log.addLog("second");
+        log.addLog("third");
+
+        String dump = dump(log);
+        assertFalse(dump.contains("first"));
+        assertTrue(dump.contains("second"));
+        assertTrue(dump.contains("third"));
+    }
+
+    @Test
+    public void clear_removesAllEvents() {
+        EventLogArray log = new EventLogArray("test", 10);
+        log.addLog("event");
+        log.clear();
+
+        assertFalse(dump(log).contains("event traceId"));
+    }
+
+    private static String dump(EventLogArray log) {
+        StringWriter writer = new StringWriter();
+        log.dump("", new PrintWriter(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.BgDataModel.Snapshot;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Unit tests for {@link BgDataModel#getSnapshot()}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class BgDataModelTest {
+
+    @Test
+    public void testSnapshotReusedUntilModelChanges() {
+        BgDataModel dataModel = new BgDataModel();
+        Snapshot snapshot = dataModel.getSnapshot();
+        assertSame(snapshot, dataModel.getSnapshot());
+
+        dataModel.addItem(null, newItem(1, 0), false);
+        assertNotSame(snapshot, dataModel.getSnapshot());
+    }
+
+    @Test
+    public void testSnapshotNotAffectedByLaterChanges() {
+        BgDataModel dataModel = new BgDataModel();
+        WorkspaceItemInfo item = newItem(1, 0);
+        dataModel.addItem(null, item, false);
+        Snapshot snapshot = dataModel.getSnapshot();
+
+        dataModel.addItem(null, newItem(2, 1), false);
+        dataModel.removeItem(null, item);
+
+        assertEquals(1, snapshot.workspaceItems.size());
+        assertSame(item, snapshot.getItem(1));
+        assertNull(snapshot.getItem(2));
+        assertEquals(1, snapshot.collectWorkspaceScreens().size());
+
+        Snapshot newSnapshot = dataModel.getSnapshot();
+        assertNull(newSnapshot.getItem(1));
+        assertTrue(newSnapshot.collectWorkspaceScreens().contains(1));
+    }
+
+    @Test
+    public void testSnapshotIncludesExtraItems() {
+        BgDataModel dataModel = new BgDataModel();
+        dataModel.putExtraItems(new BgDataModel.FixedContainerItems(
+                Favorites.CONTAINER_PREDICTION));
+        assertEquals(0, dataModel.getSnapshot()
+                .getExtraItems(Favorites.CONTAINER_PREDICTION).items.size());
+    }
+
+    private static WorkspaceItemInfo newItem(int id, int screenId) {
+        WorkspaceItemInfo item = new WorkspaceItemInfo();
+        item.id = id;
+        item.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        item.container = Favorites.CONTAINER_DESKTOP;
+        item.screenId = screenId;
+        return item;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static com.android.launcher3.model.BgDataModel.Callbacks.FLAG_QUIET_MODE_ENABLED;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+import android.util.AtomicFile;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.util.IntArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ModelSnapshot}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ModelSnapshotTest {
+
+    private static final String DB_FILE = "launcher.db";
+
+    private Context mContext;
+    private IconCache mIconCache;
+    private AtomicFile mFile;
+
+    @Before
+    public void setup() {
+        mContext = getApplicationContext();
+        mIconCache = mock(IconCache.class);
+        // All the icons are cached
+        doReturn(new ArrayList<>()).when(mIconCache)
+                .getCachedTitlesAndIconsInBulk(any(), anyBoolean());
+        mFile = new AtomicFile(new File(mContext.getCacheDir(), "model_snapshot_test.bin"));
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void testAppAtSamePositionRebound() {
+        assertTrue(ModelSnapshot.canRebindInPlace(newApp(1, 2), newApp(1, 2)));
+    }
+
+    @Test
+    public void testMovedAppNotRebound() {
+        WorkspaceItemInfo moved = newApp(1, 2);
+        moved.cellX = 3;
+        assertFalse(ModelSnapshot.canRebindInPlace(newApp(1, 2), moved));
+
+        moved = newApp(1, 2);
+        moved.container = Favorites.CONTAINER_HOTSEAT;
+        assertFalse(ModelSnapshot.canRebindInPlace(newApp(1, 2), moved));
+    }
+
+    @Test
+    public void testOtherItemTypesNotRebound() {
+        WorkspaceItemInfo shortcut = newApp(1, 2);
+        shortcut.itemType = Favorites.ITEM_TYPE_DEEP_SHORTCUT;
+        assertFalse(ModelSnapshot.canRebindInPlace(newApp(1, 2), shortcut));
+
+        FolderInfo folder = new FolderInfo();
+        folder.id = 1;
+        folder.container = Favorites.CONTAINER_DESKTOP;
+        folder.screenId = 2;
+        assertFalse(ModelSnapshot.canRebindInPlace(folder, folder));
+    }
+
+    @Test
+    public void testReadWrittenSnapshot() {
+        IntArray screenIds = writeSnapshot();
+
+        ModelSnapshot snapshot = ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE);
+
+        assertNotNull(snapshot);
+        assertEquals(screenIds, snapshot.orderedScreenIds);
+        assertTrue(snapshot.orderedScreenIds.contains(2));
+        assertEquals(2, snapshot.workspaceItems.size());
+
+        WorkspaceItemInfo app = (WorkspaceItemInfo) snapshot.itemsIdMap.get(1);
+        assertEquals(Favorites.CONTAINER_DESKTOP, app.container);
+        assertEquals(2, app.screenId);
+        assertEquals("App 1", app.title);
+        assertEquals(new ComponentName("com.example", "com.example.App1"),
+                app.getTargetComponent());
+
+        FolderInfo folder = (FolderInfo) snapshot.itemsIdMap.get(10);
+        assertEquals(Favorites.CONTAINER_HOTSEAT, folder.container);
+        assertEquals("Folder", folder.title);
+        assertEquals(2, folder.contents.size());
+        assertEquals(11, folder.contents.get(0).id);
+        assertEquals(12, folder.contents.get(1).id);
+        assertEquals(10, folder.contents.get(1).container);
+        assertEquals(1, folder.contents.get(1).rank);
+
+        assertEquals(FLAG_QUIET_MODE_ENABLED, snapshot.appsFlags);
+        assertEquals(1, snapshot.apps.length);
+        assertEquals("Calendar", snapshot.apps[0].title);
+        assertEquals("C", snapshot.apps[0].sectionName);
+        assertEquals(Process.myUserHandle(), snapshot.apps[0].user);
+    }
+
+    @Test
+    public void testReadWithoutCachedIcon_removesItemAndFolder() {
+        writeSnapshot();
+        ComponentName uncached = new ComponentName("com.example", "com.example.App11");
+        doAnswer(invocation -> {
+            List<ItemInfoWithIcon> items = invocation.getArgument(0);
+            return items.stream()
+                    .filter(item -> uncached.equals(item.getTargetComponent()))
+                    .collect(Collectors.toList());
+        }).when(mIconCache).getCachedTitlesAndIconsInBulk(any(), anyBoolean());
+
+        ModelSnapshot snapshot = ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE);
+
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.workspaceItems.size());
+        assertNotNull(snapshot.itemsIdMap.get(1));
+        assertNull(snapshot.itemsIdMap.get(10));
+        assertEquals(1, snapshot.apps.length);
+    }
+
+    @Test
+    public void testReadMissingFile_returnsNull() {
+        assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE));
+    }
+
+    @Test
+    public void testReadTruncatedFile_returnsNull() throws Exception {
+        writeSnapshot();
+        try (RandomAccessFile file = new RandomAccessFile(mFile.getBaseFile(), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE));
+    }
+
+    @Test
+    public void testReadCorruptFile_returnsNull() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(mFile.getBaseFile())) {
+            out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+        }
+
+        assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE));
+    }
+
+    @Test
+    public void testReadCorruptStringLength_returnsNullAndDeletesFile() throws Exception {
+        writeSnapshot();
+        try (RandomAccessFile file = new RandomAccessFile(mFile.getBaseFile(), "rw")) {
+            // Length of the db file name, after the magic and the format version
+            file.seek(8);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE));
+        assertFalse(mFile.getBaseFile().exists());
+    }
+
+    @Test
+    public void testReadAfterInterruptedWrite_readsPreviousSnapshot() throws Exception {
+        writeSnapshot();
+        // A write interrupted after the previous file was moved to its backup
+        File base = mFile.getBaseFile();
+        assertTrue(base.renameTo(new File(base.getPath() + ".bak")));
+        try (FileOutputStream out = new FileOutputStream(base)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        ModelSnapshot snapshot = ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE);
+
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.workspaceItems.size());
+    }
+
+    @Test
+    public void testReadForOtherDb_returnsNull() {
+        writeSnapshot();
+
+        assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, "launcher_4_by_4.db"));
+    }
+
+    @Test
+    public void testReadForOtherLocale_returnsNull() {
+        writeSnapshot();
+
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.JAPAN.equals(defaultLocale) ? Locale.FRANCE : Locale.JAPAN);
+            assertNull(ModelSnapshot.read(mContext, mIconCache, mFile, DB_FILE));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private IntArray writeSnapshot() {
+        BgDataModel dataModel = new BgDataModel();
+        dataModel.addItem(mContext, newApp(1, 2), false);
+
+        FolderInfo folder = new FolderInfo();
+        folder.id = 10;
+        folder.container = Favorites.CONTAINER_HOTSEAT;
+        folder.screenId = 0;
+        folder.title = "Folder";
+        folder.user = Process.myUserHandle();
+        dataModel.addItem(mContext, folder, false);
+        for (int i = 0; i < 2; i++) {
+            WorkspaceItemInfo content = newApp(11 + i, 0);
+            content.container = folder.id;
+            content.rank = i;
+            dataModel.addItem(mContext, content, false);
+        }
+
+        ComponentName cn = new ComponentName("com.example", "com.example.Calendar");
+        AppInfo app = new AppInfo(cn, "Calendar", Process.myUserHandle(),
+                AppInfo.makeLaunchIntent(cn));
+        ModelSnapshot.write(mContext, mFile, DB_FILE, dataModel.getSnapshot(),
+                new AppInfo[] {app}, FLAG_QUIET_MODE_ENABLED);
+        return dataModel.collectWorkspaceScreens();
+    }
+
+    private static WorkspaceItemInfo newApp(int id, int screenId) {
+        WorkspaceItemInfo item = new WorkspaceItemInfo();
+        item.id = id;
+        item.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        item.container = Favorites.CONTAINER_DESKTOP;
+        item.screenId = screenId;
+        item.cellX = 1;
+        item.cellY = 1;
+        item.user = Process.myUserHandle();
+        item.title = "App " + id;
+        ComponentName cn = new ComponentName("com.example", "com.example.App" + id);
+        item.intent = AppInfo.makeLaunchIntent(cn);
+        return item;
+    }
+}
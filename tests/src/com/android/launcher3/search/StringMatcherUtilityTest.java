@@ -15,8 +15,13 @@
  */
 package com.android.launcher3.search;
 
+import static com.android.launcher3.search.StringMatcherUtility.getMatchIndex;
+import static com.android.launcher3.search.StringMatcherUtility.getWordBreaks;
 import static com.android.launcher3.search.StringMatcherUtility.matches;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -93,4 +98,35 @@ public class StringMatcherUtilityTest {
         assertFalse(matches("ㄷ", "로드라이브", MATCHER));
         assertFalse(matches("åç", "abc", MATCHER));
     }
+
+    @Test
+    public void testGetWordBreaks() {
+        assertArrayEquals(new int[] {0, 6}, getWordBreaks("white cow"));
+        assertArrayEquals(new int[] {0, 5}, getWordBreaks("whiteCow"));
+        assertArrayEquals(new int[] {0, 4, 5}, getWordBreaks("cats&Dogs"));
+        assertArrayEquals(new int[0], getWordBreaks(""));
+    }
+
+    @Test
+    public void testGetMatchIndexWithWordBreaks() {
+        String[][] cases = {
+                {"white c", "white cow"},
+                {"cow", "whiteCOW"},
+                {"cow", "whitecowcow"},
+                {"43", "2+43"},
+                {"3", "2+43"},
+                {"ål", "Alpha"},
+                {"子", "电子邮件"},
+                {"phant", "elephant"},
+                {"elephants", "elephant"},
+        };
+        for (String[] c : cases) {
+            String query = c[0];
+            String target = c[1];
+            assertEquals(query + " / " + target,
+                    matches(query, target, MATCHER),
+                    getMatchIndex(query, target, target.toLowerCase(), getWordBreaks(target),
+                            MATCHER) >= 0);
+        }
+    }
 }
@@ -10,6 +10,8 @@ import androidx.test.filters.SmallTest;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Random;
+
 /**
  * Unit tests for {@link GridOccupancy}
  */
@@ -55,13 +57,86 @@ public class GridOccupancyTest {
         assertFalse(grid.isRegionVacant(0, 0, 2, 1));
     }
 
+    @Test
+    public void testIsRegionVacantForBlock() {
+        GridOccupancy grid = initGrid(3,
+                1, 0, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 0
+        );
+        GridOccupancy block = initGrid(2,
+                1, 0,
+                1, 1
+        );
+
+        assertTrue(grid.isRegionVacant(1, 0, block));
+        assertTrue(grid.isRegionVacant(2, 1, block));
+        assertFalse(grid.isRegionVacant(0, 0, block));
+        assertFalse(grid.isRegionVacant(1, 1, block));
+        assertFalse(grid.isRegionVacant(3, 0, block));
+    }
+
+    @Test
+    public void testMarkCellsAndCopy() {
+        GridOccupancy grid = new GridOccupancy(5, 4);
+        grid.markCells(1, 1, 3, 2, true);
+        grid.markCells(2, 2, 1, 1, false);
+
+        GridOccupancy copy = new GridOccupancy(5, 4);
+        grid.copyTo(copy);
+        assertTrue(copy.isOccupied(1, 1));
+        assertTrue(copy.isOccupied(3, 2));
+        assertFalse(copy.isOccupied(2, 2));
+        assertFalse(copy.isOccupied(4, 1));
+        assertFalse(copy.isOccupied(1, 3));
+
+        copy.clear();
+        assertTrue(copy.isRegionVacant(0, 0, 5, 4));
+        assertFalse(grid.isRegionVacant(0, 0, 5, 4));
+    }
+
+    @Test
+    public void testMatchesCellByCellOccupancy() {
+        // Tablet sized grid with random items, compared against a plain boolean grid
+        int countX = 8;
+        int countY = 6;
+        Random random = new Random(42);
+        GridOccupancy grid = new GridOccupancy(countX, countY);
+        boolean[][] cells = new boolean[countX][countY];
+        for (int n = 0; n < 200; n++) {
+            int x = random.nextInt(countX);
+            int y = random.nextInt(countY);
+            int spanX = 1 + random.nextInt(3);
+            int spanY = 1 + random.nextInt(3);
+            boolean value = random.nextBoolean();
+            grid.markCells(x, y, spanX, spanY, value);
+            for (int i = x; i < x + spanX && i < countX; i++) {
+                for (int j = y; j < y + spanY && j < countY; j++) {
+                    cells[i][j] = value;
+                }
+            }
+
+            int qx = random.nextInt(countX + 1) - 1;
+            int qy = random.nextInt(countY + 1) - 1;
+            int qSpanX = 1 + random.nextInt(4);
+            int qSpanY = 1 + random.nextInt(4);
+            boolean vacant = qx >= 0 && qy >= 0 && qx + qSpanX <= countX && qy + qSpanY <= countY;
+            for (int i = qx; vacant && i < qx + qSpanX; i++) {
+                for (int j = qy; vacant && j < qy + qSpanY; j++) {
+                    vacant = !cells[i][j];
+                }
+            }
+            assertEquals(vacant, grid.isRegionVacant(qx, qy, qSpanX, qSpanY));
+        }
+    }
+
     private GridOccupancy initGrid(int rows, int... cells) {
         int cols = cells.length / rows;
         int i = 0;
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
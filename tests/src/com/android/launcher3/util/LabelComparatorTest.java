@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.util.LabelComparator.SortKey;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link LabelComparator}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LabelComparatorTest {
+
+    private static final String[] LABELS = new String[] {
+            "", "apple", "Apple", "Banana", "2048", "_underscore", "Éclair", "eclair", "zebra"};
+
+    private final LabelComparator mComparator = new LabelComparator();
+
+    @Test
+    public void sortKeys_compareSameAsLabels() {
+        for (String a : LABELS) {
+            for (String b : LABELS) {
+                assertEquals(a + " vs " + b,
+                        Integer.signum(mComparator.compare(a, b)),
+                        Integer.signum(mComparator.getSortKey(a).compareTo(
+                                mComparator.getSortKey(b))));
+            }
+        }
+    }
+
+    @Test
+    public void sortKey_invalidWhenLabelChanges() {
+        SortKey key = mComparator.getSortKey("Calendar");
+
+        assertTrue(mComparator.isSortKeyValid(key, "Calendar"));
+        assertTrue(mComparator.isSortKeyValid(new LabelComparator().getSortKey("Calendar"),
+                "Calendar"));
+        assertFalse(mComparator.isSortKeyValid(key, "Calculator"));
+        assertFalse(mComparator.isSortKeyValid(null, "Calendar"));
+    }
+
+    @Test
+    public void sortKey_nullLabelMatchesEmpty() {
+        SortKey key = mComparator.getSortKey(null);
+
+        assertTrue(mComparator.isSortKeyValid(key, ""));
+        assertEquals(0, key.compareTo(mComparator.getSortKey("")));
+    }
+}
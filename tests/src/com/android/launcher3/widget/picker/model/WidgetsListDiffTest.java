@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget.picker.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.UserHandle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.model.data.PackageItemInfo;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListContentEntry;
+import com.android.launcher3.widget.model.WidgetsListDiff;
+import com.android.launcher3.widget.model.WidgetsListHeaderEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Set;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public final class WidgetsListDiffTest {
+    private final PackageItemInfo mPackageItemInfo1 = new PackageItemInfo("com.android.test1",
+            UserHandle.CURRENT);
+    private final PackageItemInfo mPackageItemInfo2 = new PackageItemInfo("com.android.test2",
+            UserHandle.CURRENT);
+    private final PackageItemInfo mPackageItemInfo3 = new PackageItemInfo("com.android.test3",
+            UserHandle.CURRENT);
+
+    @Test
+    public void applyTo_replacesEntriesOfChangedPackages() {
+        WidgetsListBaseEntry header1 = createHeader(mPackageItemInfo1);
+        WidgetsListBaseEntry content1 = createContent(mPackageItemInfo1);
+        WidgetsListBaseEntry header2 = createHeader(mPackageItemInfo2);
+        WidgetsListBaseEntry content2 = createContent(mPackageItemInfo2);
+        WidgetsListBaseEntry newHeader2 = createHeader(mPackageItemInfo2);
+        WidgetsListBaseEntry newContent2 = createContent(mPackageItemInfo2);
+
+        WidgetsListDiff diff = new WidgetsListDiff(
+                Set.of(mPackageItemInfo2), List.of(newHeader2, newContent2));
+
+        assertThat(diff.applyTo(List.of(header1, content1, header2, content2)))
+                .containsExactly(header1, content1, newHeader2, newContent2)
+                .inOrder();
+    }
+
+    @Test
+    public void applyTo_removedPackage_removesEntries() {
+        WidgetsListBaseEntry header1 = createHeader(mPackageItemInfo1);
+        WidgetsListBaseEntry content1 = createContent(mPackageItemInfo1);
+        WidgetsListBaseEntry header2 = createHeader(mPackageItemInfo2);
+        WidgetsListBaseEntry content2 = createContent(mPackageItemInfo2);
+
+        WidgetsListDiff diff = new WidgetsListDiff(Set.of(mPackageItemInfo1), List.of());
+
+        assertThat(diff.applyTo(List.of(header1, content1, header2, content2)))
+                .containsExactly(header2, content2)
+                .inOrder();
+    }
+
+    @Test
+    public void applyTo_addedPackage_appendsEntries() {
+        WidgetsListBaseEntry header1 = createHeader(mPackageItemInfo1);
+        WidgetsListBaseEntry content1 = createContent(mPackageItemInfo1);
+        WidgetsListBaseEntry header3 = createHeader(mPackageItemInfo3);
+        WidgetsListBaseEntry content3 = createContent(mPackageItemInfo3);
+
+        WidgetsListDiff diff = new WidgetsListDiff(
+                Set.of(mPackageItemInfo3), List.of(header3, content3));
+
+        assertThat(diff.applyTo(List.of(header1, content1)))
+                .containsExactly(header1, content1, header3, content3)
+                .inOrder();
+    }
+
+    private static WidgetsListHeaderEntry createHeader(PackageItemInfo pkgItem) {
+        return new WidgetsListHeaderEntry(pkgItem, /* titleSectionName= */ "T", List.of());
+    }
+
+    private static WidgetsListContentEntry createContent(PackageItemInfo pkgItem) {
+        return new WidgetsListContentEntry(pkgItem, /* titleSectionName= */ "T", List.of());
+    }
+}